@@ -0,0 +1,38 @@
+#!/usr/bin/env bash
+# Runs the same open-loop load against the backend served on Tomcat's platform
+# thread pool and then on virtual threads, and prints both latency reports.
+#
+# Needs a 21+ JDK (the java21 profile is activated by it), a local MongoDB that
+# already holds generated data (start the backend once with --loadgen.enabled=true),
+# and port 8080 free. Extra arguments are passed to OnSaleLoadDriver, e.g.
+#   scripts/compare-threads.sh --rate=800 --duration=120 --mix=orders:40,events:60
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+BASE_URL=http://localhost:8080
+
+mvn -B -q -Pjava21 -DskipTests package
+JAR=$(ls target/event-ticket-management-system-*.jar | grep -v original | head -n 1)
+
+for virtual in false true; do
+    echo "=== spring.threads.virtual.enabled=$virtual ==="
+    java -jar "$JAR" --spring.threads.virtual.enabled="$virtual" > "target/compare-threads-$virtual.log" 2>&1 &
+    backend=$!
+    trap 'kill $backend 2>/dev/null || true' EXIT
+
+    until curl -sf "$BASE_URL/api/events?limit=1" > /dev/null; do
+        if ! kill -0 "$backend" 2>/dev/null; then
+            echo "Backend exited, see target/compare-threads-$virtual.log" >&2
+            exit 1
+        fi
+        sleep 1
+    done
+
+    java -cp "$JAR" -Dloader.main=com.events.loadtest.OnSaleLoadDriver \
+        org.springframework.boot.loader.launch.PropertiesLauncher \
+        --base-url="$BASE_URL" "$@"
+
+    kill "$backend"
+    wait "$backend" 2>/dev/null || true
+    trap - EXIT
+done
@@ -0,0 +1,131 @@
+package com.events.config;
+
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class AsyncConfig {
+    
+    public static final String PURCHASE_EXECUTOR = "purchaseExecutor";
+    
+    public static final String DASHBOARD_EXECUTOR = "dashboardExecutor";
+    
+    public static final String DASHBOARD_REFRESH_EXECUTOR = "dashboardRefreshExecutor";
+    
+    public static final String SEAT_STREAM_EXECUTOR = "seatStreamExecutor";
+    
+    @Value("${async.purchase.pool-size:32}")
+    private int purchasePoolSize;
+    
+    @Value("${async.purchase.queue-capacity:1000}")
+    private int purchaseQueueCapacity;
+    
+    @Value("${async.dashboard.pool-size:8}")
+    private int dashboardPoolSize;
+    
+    @Value("${async.dashboard.queue-capacity:200}")
+    private int dashboardQueueCapacity;
+    
+    @Value("${async.dashboard-refresh.pool-size:2}")
+    private int dashboardRefreshPoolSize;
+    
+    @Value("${async.dashboard-refresh.queue-capacity:100}")
+    private int dashboardRefreshQueueCapacity;
+    
+    @Value("${async.seat-stream.pool-size:4}")
+    private int seatStreamPoolSize;
+    
+    @Value("${async.seat-stream.queue-capacity:10000}")
+    private int seatStreamQueueCapacity;
+    
+    /**
+     * Runs the independent repository calls of the /api/v2 endpoints concurrently,
+     * off the request thread. Bounded, and rejects work when the queue is full
+     * rather than growing without limit.
+     */
+    @Bean(name = PURCHASE_EXECUTOR)
+    public ThreadPoolTaskExecutor purchaseExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(purchasePoolSize);
+        executor.setMaxPoolSize(purchasePoolSize);
+        executor.setQueueCapacity(purchaseQueueCapacity);
+        executor.setThreadNamePrefix("purchase-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setTaskDecorator(AsyncConfig::withLoggingContext);
+        executor.initialize();
+        return executor;
+    }
+    
+    /**
+     * Runs the independent sub-queries of the dashboards concurrently. Kept apart
+     * from the purchase pool so that slow dashboard queries cannot delay purchases.
+     */
+    @Bean(name = DASHBOARD_EXECUTOR)
+    public ThreadPoolTaskExecutor dashboardExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(dashboardPoolSize);
+        executor.setMaxPoolSize(dashboardPoolSize);
+        executor.setQueueCapacity(dashboardQueueCapacity);
+        executor.setThreadNamePrefix("dashboard-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setTaskDecorator(AsyncConfig::withLoggingContext);
+        executor.initialize();
+        return executor;
+    }
+    
+    /**
+     * Recomputes dashboard snapshots in the background. A refresh waits for the
+     * sub-queries it submits to the dashboard executor, so it must not run on that
+     * executor itself, or busy refreshes could take every thread and leave their
+     * own sub-queries queued behind them.
+     */
+    @Bean(name = DASHBOARD_REFRESH_EXECUTOR)
+    public ThreadPoolTaskExecutor dashboardRefreshExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(dashboardRefreshPoolSize);
+        executor.setMaxPoolSize(dashboardRefreshPoolSize);
+        executor.setQueueCapacity(dashboardRefreshQueueCapacity);
+        executor.setThreadNamePrefix("dashboard-refresh-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setTaskDecorator(AsyncConfig::withLoggingContext);
+        executor.initialize();
+        return executor;
+    }
+    
+    /**
+     * Writes seat availability updates to the SSE subscribers of each event. Writes
+     * to slow clients can block, so they are kept off the scheduler thread.
+     */
+    @Bean(name = SEAT_STREAM_EXECUTOR)
+    public ThreadPoolTaskExecutor seatStreamExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(seatStreamPoolSize);
+        executor.setMaxPoolSize(seatStreamPoolSize);
+        executor.setQueueCapacity(seatStreamQueueCapacity);
+        executor.setThreadNamePrefix("seat-stream-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+    
+    // Carries the submitting request's MDC, e.g. its correlation id, to the pool thread
+    private static Runnable withLoggingContext(Runnable task) {
+        Map<String, String> context = MDC.getCopyOfContextMap();
+        return () -> {
+            if (context != null) {
+                MDC.setContextMap(context);
+            }
+            try {
+                task.run();
+            } finally {
+                MDC.clear();
+            }
+        };
+    }
+}
@@ -0,0 +1,63 @@
+package com.events.config;
+
+import com.events.util.BoundedTtlCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Arrays;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    
+    public static final String EVENTS = "events";
+    public static final String PUBLISHED_EVENTS = "publishedEvents";
+    public static final String EVENT_SEATS = "eventSeats";
+    public static final String VENUES = "venues";
+    public static final String IDEMPOTENCY_KEYS = "idempotencyKeys";
+    
+    @Value("${cache.events.ttl-ms:600000}")
+    private long eventsTtl;
+    
+    @Value("${cache.events.max-size:10000}")
+    private int eventsMaxSize;
+    
+    @Value("${cache.published-events.ttl-ms:60000}")
+    private long publishedEventsTtl;
+    
+    // Seat counts change on every purchase, so they live much shorter than catalog data
+    @Value("${cache.event-seats.ttl-ms:2000}")
+    private long eventSeatsTtl;
+    
+    @Value("${cache.event-seats.max-size:10000}")
+    private int eventSeatsMaxSize;
+    
+    @Value("${cache.venues.ttl-ms:1800000}")
+    private long venuesTtl;
+    
+    @Value("${cache.venues.max-size:1000}")
+    private int venuesMaxSize;
+    
+    // Recent order results by Idempotency-Key; older keys fall back to Mongo
+    @Value("${cache.idempotency-keys.ttl-ms:600000}")
+    private long idempotencyKeysTtl;
+    
+    @Value("${cache.idempotency-keys.max-size:100000}")
+    private int idempotencyKeysMaxSize;
+    
+    @Bean
+    public CacheManager cacheManager() {
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(Arrays.asList(
+                new BoundedTtlCache(EVENTS, eventsTtl, eventsMaxSize),
+                new BoundedTtlCache(PUBLISHED_EVENTS, publishedEventsTtl, 1),
+                new BoundedTtlCache(EVENT_SEATS, eventSeatsTtl, eventSeatsMaxSize),
+                new BoundedTtlCache(VENUES, venuesTtl, venuesMaxSize),
+                new BoundedTtlCache(IDEMPOTENCY_KEYS, idempotencyKeysTtl, idempotencyKeysMaxSize)));
+        return cacheManager;
+    }
+}
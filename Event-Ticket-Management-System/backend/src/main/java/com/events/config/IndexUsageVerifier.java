@@ -0,0 +1,175 @@
+package com.events.config;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs {@code explain} for the query shape of every derived repository finder at
+ * startup and reports the ones whose winning plan contains a COLLSCAN.
+ *
+ * Controlled by {@code mongo.index-check}: {@code warn} (default) logs offending
+ * queries, {@code fail} aborts startup, {@code off} skips the check.
+ *
+ * On an empty or missing collection the planner has nothing to scan and the check
+ * would pass whatever the indexes, so collections with fewer than
+ * {@code mongo.index-check.min-documents} documents are skipped and named in the log.
+ */
+@Component
+public class IndexUsageVerifier {
+    private static final Logger logger = LoggerFactory.getLogger(IndexUsageVerifier.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${mongo.index-check:warn}")
+    private String mode;
+
+    @Value("${mongo.index-check.min-documents:1}")
+    private long minDocuments;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void verify() {
+        if ("off".equalsIgnoreCase(mode)) {
+            return;
+        }
+
+        List<String> collectionScans = new ArrayList<>();
+        Map<String, Boolean> checked = new HashMap<>();
+        int explained = 0;
+        for (QueryShape shape : queryShapes()) {
+            try {
+                boolean largeEnough = checked.computeIfAbsent(shape.collection,
+                        collection -> mongoTemplate.getCollection(collection).estimatedDocumentCount() >= minDocuments);
+                if (!largeEnough) {
+                    continue;
+                }
+                explained++;
+                Document explain = mongoTemplate.getDb().runCommand(new Document("explain",
+                        new Document("find", shape.collection)
+                                .append("filter", shape.filter)
+                                .append("sort", shape.sort))
+                        .append("verbosity", "queryPlanner"));
+                Document queryPlanner = explain.get("queryPlanner", Document.class);
+                if (queryPlanner != null && containsCollectionScan(queryPlanner.get("winningPlan"))) {
+                    collectionScans.add(shape.collection + "." + shape.finder);
+                }
+            } catch (Exception e) {
+                logger.error("Could not explain {}.{}", shape.collection, shape.finder, e);
+            }
+        }
+
+        List<String> skipped = new ArrayList<>();
+        checked.forEach((collection, largeEnough) -> {
+            if (!largeEnough) {
+                skipped.add(collection);
+            }
+        });
+        if (!skipped.isEmpty()) {
+            logger.info("Index check skipped collections with fewer than {} documents: {}", minDocuments, skipped);
+        }
+
+        if (collectionScans.isEmpty()) {
+            logger.info("Index check passed for {} repository queries", explained);
+            return;
+        }
+
+        String message = "Repository queries planned as COLLSCAN: " + collectionScans;
+        if ("fail".equalsIgnoreCase(mode)) {
+            throw new IllegalStateException(message);
+        }
+        logger.warn(message);
+    }
+
+    // Walks the plan tree (inputStage, inputStages, queryPlan, ...) looking for a COLLSCAN stage
+    private boolean containsCollectionScan(Object node) {
+        if (node instanceof Document) {
+            Document document = (Document) node;
+            if ("COLLSCAN".equals(document.get("stage"))) {
+                return true;
+            }
+            for (Object child : document.values()) {
+                if (containsCollectionScan(child)) {
+                    return true;
+                }
+            }
+        } else if (node instanceof List) {
+            for (Object child : (List<?>) node) {
+                if (containsCollectionScan(child)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private List<QueryShape> queryShapes() {
+        Date now = new Date();
+        ObjectId id = new ObjectId();
+        List<String> ids = Arrays.asList("a", "b");
+        Document none = new Document();
+
+        return Arrays.asList(
+            new QueryShape("events", "findByOrganizerId", new Document("organizerId", "x"), none),
+            new QueryShape("events", "findByEventDateAfter", new Document("eventDate", new Document("$gt", now)), none),
+            new QueryShape("events", "findByPublishedTrue", new Document("published", true), none),
+            new QueryShape("events", "findByCategoriesContaining", new Document("categories", new Document("$in", ids)), none),
+            new QueryShape("events", "findByVenueId", new Document("venueId", "x"), none),
+            new QueryShape("events", "findByCreatedAtAfter", new Document("createdAt", new Document("$gt", now)), none),
+            new QueryShape("events", "findByEventDateBetweenOrderByEventDateAsc",
+                    new Document("eventDate", new Document("$gt", now).append("$lt", now)), new Document("eventDate", 1)),
+            new QueryShape("events", "findByIdGreaterThan", new Document("_id", new Document("$gt", id)), new Document("_id", 1)),
+
+            new QueryShape("orders", "findByUserId", new Document("userId", "x"), none),
+            new QueryShape("orders", "findByEventId", new Document("eventId", "x"), none),
+            new QueryShape("orders", "findByEventIdIn", new Document("eventId", new Document("$in", ids)), none),
+            new QueryShape("orders", "findByCreatedAtAfter", new Document("createdAt", new Document("$gt", now)), none),
+            new QueryShape("orders", "findByIdGreaterThan", new Document("_id", new Document("$gt", id)), new Document("_id", 1)),
+            new QueryShape("orders", "pendingHolds", new Document("status", "PENDING"), new Document("holdExpiresAt", 1)),
+
+            new QueryShape("tickets", "findByEventId", new Document("eventId", "x"), none),
+            new QueryShape("tickets", "findByOrderId", new Document("orderId", "x"), none),
+            new QueryShape("tickets", "findByUserId", new Document("userId", "x"), none),
+            new QueryShape("tickets", "findByEventIdAndUserId", new Document("eventId", "x").append("userId", "y"), none),
+            new QueryShape("tickets", "findByEventIdAndIdGreaterThan",
+                    new Document("eventId", "x").append("_id", new Document("$gt", id)), new Document("_id", 1)),
+
+            new QueryShape("users", "findByEmail", new Document("email", "x"), none),
+            new QueryShape("users", "findByCreatedAtAfter", new Document("createdAt", new Document("$gt", now)), none),
+            new QueryShape("users", "findByCreatedAtAfterOrderByCreatedAtDesc",
+                    new Document("createdAt", new Document("$gt", now)), new Document("createdAt", -1)),
+
+            new QueryShape("sales_buckets", "findBySeriesAndResolutionAndStartBetween",
+                    new Document("series", "global").append("resolution", "hour")
+                            .append("start", new Document("$gte", now).append("$lt", now)), none)
+        );
+    }
+
+    private static final class QueryShape {
+        final String collection;
+        final String finder;
+        final Document filter;
+        final Document sort;
+
+        QueryShape(String collection, String finder, Document filter, Document sort) {
+            this.collection = collection;
+            this.finder = finder;
+            this.filter = filter;
+            this.sort = sort;
+        }
+    }
+}
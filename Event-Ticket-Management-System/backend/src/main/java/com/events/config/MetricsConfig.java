@@ -0,0 +1,64 @@
+package com.events.config;
+
+import com.events.util.MetricsRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Configuration
+public class MetricsConfig {
+
+    public static final String REPOSITORY_CALLS = "repository.calls";
+
+    @Bean
+    public MetricsRegistry metricsRegistry(@Value("${metrics.quantile-window-ms:60000}") long quantileWindowMillis) {
+        return new MetricsRegistry(quantileWindowMillis);
+    }
+
+    /**
+     * Times every method of every Spring Data repository as
+     * {@code repository.calls{repository,method}}, by adding an interceptor to the
+     * repository proxies when they are created.
+     *
+     * Static so the post-processor can be registered before the rest of this
+     * configuration; the registry is looked up on first use for the same reason.
+     */
+    @Bean
+    public static BeanPostProcessor repositoryMetricsPostProcessor(ObjectProvider<MetricsRegistry> metricsRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof RepositoryFactoryBeanSupport) {
+                    ((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(factory ->
+                            factory.addRepositoryProxyPostProcessor((proxy, repositoryInformation) ->
+                                    proxy.addAdvice(timingInterceptor(metricsRegistry,
+                                            repositoryInformation.getRepositoryInterface().getSimpleName()))));
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static MethodInterceptor timingInterceptor(ObjectProvider<MetricsRegistry> metricsRegistry,
+                                                       String repository) {
+        Map<Method, MetricsRegistry.Timer> timers = new ConcurrentHashMap<>();
+        return invocation -> {
+            long start = System.nanoTime();
+            try {
+                return invocation.proceed();
+            } finally {
+                timers.computeIfAbsent(invocation.getMethod(), method -> metricsRegistry.getObject()
+                        .timer(REPOSITORY_CALLS, "repository", repository, "method", method.getName()))
+                        .recordSince(start);
+            }
+        };
+    }
+}
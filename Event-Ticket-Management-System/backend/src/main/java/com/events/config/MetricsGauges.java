@@ -0,0 +1,88 @@
+package com.events.config;
+
+import com.events.service.SeatAvailabilityBroadcaster;
+import com.events.service.SeatHoldService;
+import com.events.service.SeatInventoryCache;
+import com.events.service.WaitingRoomService;
+import com.events.util.BoundedTtlCache;
+import com.events.util.MetricsRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Registers the gauges that are read from existing components at scrape time:
+ * seats left on the busiest events, cache sizes and hit counts, and the depth of
+ * the purchase executor, waiting rooms and seat holds.
+ */
+@Component
+public class MetricsGauges {
+
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
+    @Autowired
+    private SeatInventoryCache seatInventoryCache;
+
+    @Autowired
+    private WaitingRoomService waitingRoomService;
+
+    @Autowired
+    private SeatHoldService seatHoldService;
+
+    @Autowired
+    private SeatAvailabilityBroadcaster seatAvailabilityBroadcaster;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    @Qualifier(AsyncConfig.PURCHASE_EXECUTOR)
+    private ThreadPoolTaskExecutor purchaseExecutor;
+
+    @Autowired
+    @Qualifier(AsyncConfig.DASHBOARD_EXECUTOR)
+    private ThreadPoolTaskExecutor dashboardExecutor;
+
+    @Autowired
+    @Qualifier(AsyncConfig.DASHBOARD_REFRESH_EXECUTOR)
+    private ThreadPoolTaskExecutor dashboardRefreshExecutor;
+
+    @Value("${metrics.hot-events:20}")
+    private int hotEvents;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void register() {
+        metricsRegistry.gaugeFamily("seats.available", "event", () -> seatInventoryCache.getHotEvents(hotEvents));
+
+        for (String name : cacheManager.getCacheNames()) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache instanceof BoundedTtlCache) {
+                BoundedTtlCache bounded = (BoundedTtlCache) cache;
+                metricsRegistry.gauge("cache.size", () -> (Number) bounded.getStats().get("size"), "cache", name);
+                metricsRegistry.gauge("cache.hits", () -> (Number) bounded.getStats().get("hits"), "cache", name);
+                metricsRegistry.gauge("cache.misses", () -> (Number) bounded.getStats().get("misses"), "cache", name);
+            }
+        }
+
+        metricsRegistry.gauge("executor.queued",
+                () -> purchaseExecutor.getThreadPoolExecutor().getQueue().size(), "executor", "purchase");
+        metricsRegistry.gauge("executor.active", purchaseExecutor::getActiveCount, "executor", "purchase");
+        metricsRegistry.gauge("executor.queued",
+                () -> dashboardExecutor.getThreadPoolExecutor().getQueue().size(), "executor", "dashboard");
+        metricsRegistry.gauge("executor.active", dashboardExecutor::getActiveCount, "executor", "dashboard");
+        metricsRegistry.gauge("executor.queued",
+                () -> dashboardRefreshExecutor.getThreadPoolExecutor().getQueue().size(), "executor", "dashboard_refresh");
+        metricsRegistry.gauge("executor.active", dashboardRefreshExecutor::getActiveCount, "executor", "dashboard_refresh");
+        metricsRegistry.gauge("waiting_room.waiters", waitingRoomService::getWaiterCount);
+        metricsRegistry.gauge("seats.holds", seatHoldService::getOutstandingHolds);
+        metricsRegistry.gauge("seats.stream.subscribers", seatAvailabilityBroadcaster::getSubscriberCount);
+        metricsRegistry.gauge("seats.stream.channels", seatAvailabilityBroadcaster::getChannelCount);
+    }
+}
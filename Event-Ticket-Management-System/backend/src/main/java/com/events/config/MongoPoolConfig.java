@@ -0,0 +1,70 @@
+package com.events.config;
+
+import com.events.util.MetricsRegistry;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandSucceededEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connection pool sizing for the MongoDB driver.
+ *
+ * With virtual threads the number of concurrent requests is no longer capped by
+ * Tomcat's thread pool, so the connection pool becomes the limit on database
+ * concurrency. Requests beyond {@code max-size} queue inside the driver for at
+ * most {@code max-wait-ms} instead of opening more connections.
+ */
+@Configuration
+public class MongoPoolConfig {
+    
+    @Value("${mongo.pool.max-size:100}")
+    private int maxSize;
+    
+    @Value("${mongo.pool.min-size:10}")
+    private int minSize;
+    
+    @Value("${mongo.pool.max-connecting:4}")
+    private int maxConnecting;
+    
+    @Value("${mongo.pool.max-wait-ms:2000}")
+    private long maxWaitMs;
+    
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+    
+    @Bean
+    public MongoClientSettingsBuilderCustomizer connectionPoolCustomizer() {
+        return settings -> settings.applyToConnectionPoolSettings(pool -> pool
+                .maxSize(maxSize)
+                .minSize(minSize)
+                .maxConnecting(maxConnecting)
+                .maxWaitTime(maxWaitMs, TimeUnit.MILLISECONDS));
+    }
+    
+    /**
+     * Times every command the driver sends as {@code mongo.commands{command,outcome}},
+     * which also covers MongoTemplate calls that bypass the repositories.
+     */
+    @Bean
+    public MongoClientSettingsBuilderCustomizer commandMetricsCustomizer() {
+        return settings -> settings.addCommandListener(new CommandListener() {
+            @Override
+            public void commandSucceeded(CommandSucceededEvent event) {
+                metricsRegistry.timer("mongo.commands", "command", event.getCommandName(), "outcome", "success")
+                        .recordNanos(event.getElapsedTime(TimeUnit.NANOSECONDS));
+            }
+            
+            @Override
+            public void commandFailed(CommandFailedEvent event) {
+                metricsRegistry.timer("mongo.commands", "command", event.getCommandName(), "outcome", "failure")
+                        .recordNanos(event.getElapsedTime(TimeUnit.NANOSECONDS));
+            }
+        });
+    }
+}
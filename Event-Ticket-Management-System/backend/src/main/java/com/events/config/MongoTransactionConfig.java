@@ -0,0 +1,23 @@
+package com.events.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.MongoTransactionManager;
+
+/**
+ * Multi-document transactions for the order pipeline. They need MongoDB running
+ * as a replica set (a single-node one is enough for local development, e.g.
+ * {@code mongod --replSet rs0} followed by {@code rs.initiate()}), so they are
+ * off unless {@code orders.transactions.enabled=true}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "orders.transactions.enabled", havingValue = "true")
+public class MongoTransactionConfig {
+    
+    @Bean
+    public MongoTransactionManager transactionManager(MongoDatabaseFactory databaseFactory) {
+        return new MongoTransactionManager(databaseFactory);
+    }
+}
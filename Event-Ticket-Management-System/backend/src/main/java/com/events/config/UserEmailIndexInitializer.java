@@ -0,0 +1,107 @@
+package com.events.config;
+
+import com.events.model.User;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates the unique index on user emails, which is not declared on {@link User}
+ * because auto-index-creation would fail startup on a database that already holds
+ * duplicate emails.
+ *
+ * Duplicates are looked up first. Without any, the index is created. With some,
+ * they are logged with their user ids and the index is left out, unless
+ * {@code users.email-index.dedupe=true}: the oldest account then keeps the email
+ * and the others get {@code <email>#duplicate-<id>}, which frees the address and
+ * keeps the original recoverable. Users without an email are not indexed.
+ *
+ * Runs before {@link IndexUsageVerifier}, so the email lookup is checked against
+ * the index.
+ */
+@Component
+public class UserEmailIndexInitializer {
+    private static final Logger logger = LoggerFactory.getLogger(UserEmailIndexInitializer.class);
+
+    private static final String INDEX_NAME = "email_unique";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${users.email-index.dedupe:false}")
+    private boolean dedupe;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void initialize() {
+        try {
+            List<Document> duplicates = findDuplicates();
+            if (!duplicates.isEmpty()) {
+                if (!dedupe) {
+                    for (Document duplicate : duplicates) {
+                        logger.warn("Users {} share the email {}", duplicate.get("ids"), duplicate.get("_id"));
+                    }
+                    logger.warn("Not creating the unique email index: {} emails are used by several users. "
+                            + "Fix them, or set users.email-index.dedupe=true to rename the newer ones",
+                            duplicates.size());
+                    return;
+                }
+                renameNewer(duplicates);
+            }
+
+            mongoTemplate.indexOps(User.class).ensureIndex(new Index().named(INDEX_NAME)
+                    .on("email", Sort.Direction.ASC)
+                    .unique()
+                    .partial(PartialIndexFilter.of(new Document("email", new Document("$type", "string")))));
+        } catch (Exception e) {
+            logger.error("Could not create the unique email index", e);
+        }
+    }
+
+    // Ids of each duplicated email, oldest account first
+    private List<Document> findDuplicates() {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("email").type(2)),
+                Aggregation.sort(Sort.by("createdAt", "_id")),
+                Aggregation.group("email").push("_id").as("ids").count().as("count"),
+                Aggregation.match(Criteria.where("count").gt(1)));
+        List<Document> duplicates = new ArrayList<>();
+        mongoTemplate.aggregate(aggregation.withOptions(Aggregation.newAggregationOptions().allowDiskUse(true).build()),
+                User.class, Document.class).forEach(duplicates::add);
+        return duplicates;
+    }
+
+    private void renameNewer(List<Document> duplicates) {
+        int renamed = 0;
+        for (Document duplicate : duplicates) {
+            String email = duplicate.getString("_id");
+            List<?> ids = duplicate.getList("ids", Object.class);
+            for (Object id : ids.subList(1, ids.size())) {
+                String replacement = email + "#duplicate-" + id;
+                mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(id).and("email").is(email)),
+                        Update.update("email", replacement), User.class);
+                logger.warn("Renamed the email of user {} from {} to {}", id, email, replacement);
+                renamed++;
+            }
+        }
+        logger.info("Renamed {} duplicate user emails", renamed);
+    }
+}
@@ -1,14 +1,23 @@
 package com.events.controller;
 
-import com.events.service.DashboardService;
+import com.events.model.SalesBucket;
+import com.events.service.DashboardSnapshotService;
+import com.events.service.SalesRollupService;
+import com.events.service.SalesTimeSeriesService;
+import com.events.service.TopEventsService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -18,15 +27,31 @@ public class DashboardController {
     private static final Logger logger = LoggerFactory.getLogger(DashboardController.class);
     
     @Autowired
-    private DashboardService dashboardService;
+    private SalesRollupService salesRollupService;
     
+    @Autowired
+    private SalesTimeSeriesService salesTimeSeriesService;
+    
+    @Autowired
+    private TopEventsService topEventsService;
+    
+    @Autowired
+    private DashboardSnapshotService dashboardSnapshotService;
+    
+    /**
+     * The latest admin dashboard snapshot. Answers 304 when the If-None-Match
+     * header carries the snapshot's ETag.
+     */
     @GetMapping("/metrics")
-    public ResponseEntity<Map<String, Object>> getDashboardMetrics() {
+    public ResponseEntity<Map<String, Object>> getDashboardMetrics(WebRequest request) {
         try {
-            logger.info("Received request for admin dashboard metrics");
-            Map<String, Object> metrics = dashboardService.getDashboardMetrics();
-            logger.info("Successfully retrieved admin dashboard metrics");
-            return ResponseEntity.ok(metrics);
+            logger.debug("Received request for admin dashboard metrics");
+            DashboardSnapshotService.Snapshot snapshot = dashboardSnapshotService.getAdminSnapshot();
+            if (isNotModified(request, snapshot)) {
+                return null;
+            }
+            logger.debug("Successfully retrieved admin dashboard metrics");
+            return snapshotResponse(snapshot);
         } catch (Exception e) {
             logger.error("Error in admin dashboard metrics", e);
             
@@ -61,8 +86,9 @@ public class DashboardController {
     }
     
     @GetMapping("/metrics/organizer/{organizerId}")
-    public ResponseEntity<Map<String, Object>> getOrganizerDashboardMetrics(@PathVariable String organizerId) {
-        logger.info("Received request for organizer dashboard metrics. Organizer ID: {}", organizerId);
+    public ResponseEntity<Map<String, Object>> getOrganizerDashboardMetrics(@PathVariable String organizerId,
+            WebRequest request) {
+        logger.debug("Received request for organizer dashboard metrics. Organizer ID: {}", organizerId);
         
         if (organizerId == null || organizerId.trim().isEmpty()) {
             logger.warn("Invalid organizer ID received");
@@ -73,15 +99,19 @@ public class DashboardController {
         }
         
         try {
-            Map<String, Object> metrics = dashboardService.getOrganizerDashboardMetrics(organizerId);
+            DashboardSnapshotService.Snapshot snapshot = dashboardSnapshotService.getOrganizerSnapshot(organizerId);
+            Map<String, Object> metrics = snapshot.getMetrics();
             
             if (metrics.containsKey("error")) {
                 logger.error("Error in organizer dashboard service: {}", metrics.get("error"));
                 return ResponseEntity.ok(metrics); // Still return 200 with error info
             }
             
-            logger.info("Successfully retrieved organizer dashboard metrics for ID: {}", organizerId);
-            return ResponseEntity.ok(metrics);
+            if (isNotModified(request, snapshot)) {
+                return null;
+            }
+            logger.debug("Successfully retrieved organizer dashboard metrics for ID: {}", organizerId);
+            return snapshotResponse(snapshot);
             
         } catch (Exception e) {
             logger.error("Unhandled exception in organizer dashboard metrics", e);
@@ -96,4 +126,102 @@ public class DashboardController {
             return ResponseEntity.ok(errorResponse); // Return 200 with error info
         }
     }
-}
\ No newline at end of file
+    
+    @PostMapping("/rollups/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildSalesRollups() {
+        logger.info("Received request to rebuild sales rollups");
+        
+        Map<String, Object> response = new HashMap<>();
+        try {
+            salesRollupService.rebuild();
+            response.put("status", "REBUILT");
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            logger.error("Error rebuilding sales rollups", e);
+            response.put("error", "Failed to rebuild sales rollups: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+    
+    /**
+     * Sales buckets for sparklines, platform-wide or for one event. Defaults to
+     * the last 24 buckets.
+     */
+    @GetMapping("/timeseries")
+    public ResponseEntity<?> getSalesTimeSeries(
+            @RequestParam(required = false) String eventId,
+            @RequestParam(defaultValue = SalesBucket.HOUR) String resolution,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to) {
+        try {
+            Date end = to != null ? to : new Date();
+            Date start = from != null ? from : new Date(end.getTime() - 24 * SalesTimeSeriesService.bucketMillis(resolution));
+            List<SalesBucket> buckets = salesTimeSeriesService.getSeries(seriesFor(eventId), resolution, start, end);
+            return ResponseEntity.ok(buckets);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+    
+    @GetMapping("/growth")
+    public ResponseEntity<Map<String, Double>> getGrowth(
+            @RequestParam(required = false) String eventId,
+            @RequestParam(defaultValue = "7") int days) {
+        return ResponseEntity.ok(salesTimeSeriesService.getGrowth(seriesFor(eventId), days));
+    }
+    
+    @PostMapping("/timeseries/rebuild")
+    public ResponseEntity<Map<String, Object>> rebuildSalesTimeSeries() {
+        logger.info("Received request to rebuild sales time series");
+        
+        Map<String, Object> response = new HashMap<>();
+        try {
+            salesTimeSeriesService.rebuild();
+            response.put("status", "REBUILT");
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            logger.error("Error rebuilding sales time series", e);
+            response.put("error", "Failed to rebuild sales time series: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+    
+    /**
+     * Best-selling events over the last 24h, 7d or all time, ranked by tickets or revenue.
+     */
+    @GetMapping("/top-events")
+    public ResponseEntity<?> getTopEvents(
+            @RequestParam(defaultValue = "7d") String window,
+            @RequestParam(defaultValue = TopEventsService.BY_TICKETS) String by,
+            @RequestParam(defaultValue = "10") int limit) {
+        try {
+            return ResponseEntity.ok(topEventsService.getTopEvents(TopEventsService.Window.fromParam(window), by, limit));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+    
+    // Clients must revalidate, which costs them a 304 while the snapshot is unchanged.
+    // A degraded snapshot gets no ETag and must not be stored at all
+    // Degraded snapshots carry no ETag, so they are never answered with 304 either;
+    // checkNotModified would also put the ETag on the response
+    private static boolean isNotModified(WebRequest request, DashboardSnapshotService.Snapshot snapshot) {
+        return !snapshot.isDegraded() && request.checkNotModified(snapshot.getEtag());
+    }
+    
+    private static ResponseEntity<Map<String, Object>> snapshotResponse(DashboardSnapshotService.Snapshot snapshot) {
+        if (snapshot.isDegraded()) {
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noStore())
+                    .body(snapshot.getMetrics());
+        }
+        return ResponseEntity.ok()
+                .eTag(snapshot.getEtag())
+                .cacheControl(CacheControl.noCache())
+                .body(snapshot.getMetrics());
+    }
+    
+    private static String seriesFor(String eventId) {
+        return eventId == null || eventId.isEmpty() ? SalesBucket.SERIES_GLOBAL : SalesBucket.eventSeries(eventId);
+    }
+}
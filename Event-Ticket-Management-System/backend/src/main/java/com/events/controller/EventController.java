@@ -2,10 +2,21 @@ package com.events.controller;
 
 import com.events.model.Event;
 import com.events.service.EventService;
+import com.events.service.SeatAvailabilityBroadcaster;
+import com.events.util.NdjsonWriter;
+import com.events.util.UnpagedLists;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -14,19 +25,29 @@ import java.util.Map;
 @RequestMapping("/api/events")
 @CrossOrigin(origins = "*")
 public class EventController {
+    private static final Logger logger = LoggerFactory.getLogger(EventController.class);
     
     @Autowired
     private EventService eventService;
     
+    @Autowired
+    private NdjsonWriter ndjsonWriter;
+    
+    @Autowired
+    private SeatAvailabilityBroadcaster seatAvailabilityBroadcaster;
+    
     @GetMapping
-    public ResponseEntity<Object> getAllEvents() {
+    public ResponseEntity<Object> getAllEvents(
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit) {
         try {
-            List<Event> events = eventService.getAllEvents();
-            System.out.println("EventController: Successfully retrieved " + events.size() + " events");
-            return ResponseEntity.ok(events);
+            if (after != null || limit != null) {
+                return ResponseEntity.ok(eventService.getEventsPage(after, limit));
+            }
+            
+            return UnpagedLists.of("/api/events", eventService.getAllEvents());
         } catch (Exception e) {
-            System.err.println("ERROR in EventController.getAllEvents: " + e.getMessage());
-            e.printStackTrace();
+            logger.error("Error retrieving events", e);
             Map<String, String> error = new HashMap<>();
             error.put("message", e.getMessage());
             error.put("error", e.getClass().getName());
@@ -34,6 +55,11 @@ public class EventController {
         }
     }
     
+    @GetMapping(params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAllEvents() {
+        return ndjsonWriter.stream(eventService::streamAllEvents);
+    }
+    
     @GetMapping("/{id}")
     public ResponseEntity<Event> getEventById(@PathVariable String id) {
         return eventService.getEventById(id)
@@ -41,16 +67,35 @@ public class EventController {
                 .orElse(ResponseEntity.notFound().build());
     }
     
+    /**
+     * Server-sent "seats" events carrying the remaining seats of the event, for
+     * pages that would otherwise poll GET /api/events/{id}.
+     */
+    @GetMapping(path = "/{id}/availability/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamAvailability(@PathVariable String id) throws IOException {
+        try {
+            SseEmitter emitter = seatAvailabilityBroadcaster.subscribe(id);
+            return emitter != null ? ResponseEntity.ok(emitter) : ResponseEntity.notFound().build();
+        } catch (IllegalStateException e) {
+            logger.warn("Rejected seat availability stream for event {}: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+    
     @PostMapping
     public ResponseEntity<Event> createEvent(@RequestBody Event event) {
         return ResponseEntity.status(HttpStatus.CREATED).body(eventService.createEvent(event));
     }
     
     @PutMapping("/{id}")
-    public ResponseEntity<Event> updateEvent(@PathVariable String id, @RequestBody Event event) {
-        return eventService.updateEvent(id, event)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<?> updateEvent(@PathVariable String id, @RequestBody Event event) {
+        try {
+            return eventService.updateEvent(id, event)
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
     }
     
     @DeleteMapping("/{id}")
@@ -63,10 +108,16 @@ public class EventController {
     
     @GetMapping("/search")
     public ResponseEntity<List<Event>> searchEvents(
+            @RequestParam(required = false) String q,
             @RequestParam(required = false) String title,
             @RequestParam(required = false) String category,
-            @RequestParam(required = false) String venue) {
-        return ResponseEntity.ok(eventService.searchEvents(title, category, venue));
+            @RequestParam(required = false) String venue,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Integer limit) {
+        // title is the original name of the free-text parameter
+        String query = q != null ? q : title;
+        return ResponseEntity.ok(eventService.searchEvents(query, category, venue, from, to, limit));
     }
     
     @PutMapping("/{id}/publish")
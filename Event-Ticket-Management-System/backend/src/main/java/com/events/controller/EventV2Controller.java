@@ -0,0 +1,54 @@
+package com.events.controller;
+
+import com.events.model.Event;
+import com.events.service.AsyncOrderService;
+import com.events.service.EventService;
+import com.events.service.TicketService;
+import com.events.util.NdjsonWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous variant of the catalog endpoints. Listings are streamed as NDJSON
+ * from a Mongo cursor on the async request thread: the next batch is only fetched
+ * once the previous documents have been written to the client, so a slow reader
+ * holds back the cursor instead of filling memory.
+ */
+@RestController
+@RequestMapping("/api/v2/events")
+@CrossOrigin(origins = "*")
+public class EventV2Controller {
+    
+    @Autowired
+    private AsyncOrderService asyncOrderService;
+    
+    @Autowired
+    private EventService eventService;
+    
+    @Autowired
+    private TicketService ticketService;
+    
+    @Autowired
+    private NdjsonWriter ndjsonWriter;
+    
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> streamEvents() {
+        return ndjsonWriter.stream(eventService::streamAllEvents);
+    }
+    
+    @GetMapping("/{id}")
+    public CompletableFuture<ResponseEntity<Event>> getEventById(@PathVariable String id) {
+        return asyncOrderService.getEventById(id)
+                .thenApply(event -> event.map(ResponseEntity::ok)
+                        .orElse(ResponseEntity.notFound().build()));
+    }
+    
+    @GetMapping("/{id}/tickets")
+    public ResponseEntity<StreamingResponseBody> streamTickets(@PathVariable String id) {
+        return ndjsonWriter.stream(() -> ticketService.streamTicketsByEventId(id));
+    }
+}
@@ -2,26 +2,58 @@ package com.events.controller;
 
 import com.events.model.Order;
 import com.events.model.TicketType;
+import com.events.service.IdempotencyService;
 import com.events.service.OrderService;
+import com.events.service.OrderTransactionService;
+import com.events.util.LogSampler;
+import com.events.util.NdjsonWriter;
+import com.events.util.UnpagedLists;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;  // Add this import statement
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/orders")
 @CrossOrigin(origins = "*")
 public class OrderController {
+    private static final Logger logger = LoggerFactory.getLogger(OrderController.class);
+
+    // One line per order would dominate the logs during an on-sale
+    private static final LogSampler ORDER_LOG = new LogSampler(1, TimeUnit.SECONDS);
 
     @Autowired
     private OrderService orderService;
+    
+    @Autowired
+    private IdempotencyService idempotencyService;
+    
+    @Autowired
+    private OrderTransactionService orderTransactionService;
+    
+    @Autowired
+    private NdjsonWriter ndjsonWriter;
 
     @GetMapping
-    public List<Order> getAllOrders() {
-        return orderService.getAllOrders();
+    public ResponseEntity<?> getAllOrders(
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit) {
+        if (after != null || limit != null) {
+            return ResponseEntity.ok(orderService.getOrdersPage(after, limit));
+        }
+        return UnpagedLists.of("/api/orders", orderService.getAllOrders());
+    }
+    
+    @GetMapping(params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAllOrders() {
+        return ndjsonWriter.stream(orderService::streamAllOrders);
     }
 
     @GetMapping("/{id}")
@@ -31,13 +63,21 @@ public class OrderController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    @GetMapping("/transactions/stats")
+    public ResponseEntity<Map<String, Object>> getTransactionStats() {
+        return ResponseEntity.ok(orderTransactionService.getStats());
+    }
+
     @GetMapping("/user/{userId}")
     public List<Order> getOrdersByUserId(@PathVariable String userId) {
         return orderService.getOrdersByUserId(userId);
     }
 
     @PostMapping
-    public ResponseEntity<?> createOrder(@RequestBody Map<String, Object> orderRequest) {
+    public ResponseEntity<?> createOrder(
+            @RequestBody Map<String, Object> orderRequest,
+            @RequestHeader(value = "X-Admission-Token", required = false) String admissionToken,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         try {
             String userId = (String) orderRequest.get("userId");
             String eventId = (String) orderRequest.get("eventId");
@@ -47,18 +87,26 @@ public class OrderController {
             double unitPrice = Double.parseDouble(orderRequest.get("unitPrice").toString());
             String paymentMethod = (String) orderRequest.get("paymentMethod");
 
-            // Add logging to debug
-            System.out.println("Creating order with: userId=" + userId + ", eventId=" + eventId + 
-                               ", ticketType=" + ticketType + ", quantity=" + quantity + 
-                               ", unitPrice=" + unitPrice + ", paymentMethod=" + paymentMethod);
+            long suppressed = ORDER_LOG.sample();
+            if (suppressed >= 0) {
+                logger.info("Creating order: userId={}, eventId={}, ticketType={}, quantity={}, unitPrice={}, "
+                        + "paymentMethod={} ({} similar suppressed)",
+                        userId, eventId, ticketType, quantity, unitPrice, paymentMethod, suppressed);
+            }
 
-            Order order = orderService.createOrder(userId, eventId, ticketType, quantity, unitPrice, paymentMethod);
+            // A retried request returns the order of the first attempt
+            Order order = idempotencyService.execute("orders", idempotencyKey,
+                    IdempotencyService.requestOf(userId, eventId, ticketType, quantity, unitPrice, paymentMethod),
+                    orderId -> orderService.createOrder(userId, eventId, ticketType, quantity, unitPrice,
+                            paymentMethod, admissionToken, orderId));
             return ResponseEntity.ok(order);
+        } catch (IdempotencyService.RequestInProgressException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
         } catch (IllegalStateException e) {
             // Handle business logic errors (like not enough seats)
             return ResponseEntity.badRequest().body(e.getMessage());
         } catch (Exception e) {
-            e.printStackTrace();
+            logger.error("Error creating order", e);
             // Return the actual error message for debugging
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Error creating order: " + e.getMessage());
@@ -72,14 +120,72 @@ public class OrderController {
             @RequestParam TicketType ticketType,
             @RequestParam int quantity,
             @RequestParam double unitPrice,
-            @RequestParam String paymentMethod) {
+            @RequestParam String paymentMethod,
+            @RequestHeader(value = "X-Admission-Token", required = false) String admissionToken,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         
         try {
-            Order order = orderService.createOrder(userId, eventId, ticketType, quantity, unitPrice, paymentMethod);
+            Order order = idempotencyService.execute("orders", idempotencyKey,
+                    IdempotencyService.requestOf(userId, eventId, ticketType, quantity, unitPrice, paymentMethod),
+                    orderId -> orderService.createOrder(userId, eventId, ticketType, quantity, unitPrice,
+                            paymentMethod, admissionToken, orderId));
             return ResponseEntity.ok(order);
+        } catch (IdempotencyService.RequestInProgressException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         } catch (Exception e) {
-            e.printStackTrace();
+            logger.warn("Order rejected: {}", e.toString());
             return ResponseEntity.badRequest().build();
         }
     }
+    
+    @PostMapping("/hold")
+    public ResponseEntity<?> holdOrder(
+            @RequestBody Map<String, Object> orderRequest,
+            @RequestHeader(value = "X-Admission-Token", required = false) String admissionToken,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        try {
+            String userId = (String) orderRequest.get("userId");
+            String eventId = (String) orderRequest.get("eventId");
+            TicketType ticketType = TicketType.valueOf((String) orderRequest.get("ticketType"));
+            int quantity = Integer.parseInt(orderRequest.get("quantity").toString());
+            double unitPrice = Double.parseDouble(orderRequest.get("unitPrice").toString());
+            String paymentMethod = (String) orderRequest.get("paymentMethod");
+            
+            Order order = idempotencyService.execute("holds", idempotencyKey,
+                    IdempotencyService.requestOf(userId, eventId, ticketType, quantity, unitPrice, paymentMethod),
+                    orderId -> orderService.holdOrder(userId, eventId, ticketType, quantity, unitPrice,
+                            paymentMethod, admissionToken, orderId));
+            return ResponseEntity.status(HttpStatus.CREATED).body(order);
+        } catch (IdempotencyService.RequestInProgressException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error holding seats", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("Error holding seats: " + e.getMessage());
+        }
+    }
+    
+    @PostMapping("/{id}/confirm")
+    public ResponseEntity<?> confirmOrder(@PathVariable String id) {
+        try {
+            return orderService.confirmOrder(id)
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
+    
+    @PostMapping("/{id}/release")
+    public ResponseEntity<?> releaseHold(@PathVariable String id) {
+        try {
+            return orderService.releaseHold(id)
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
 }
\ No newline at end of file
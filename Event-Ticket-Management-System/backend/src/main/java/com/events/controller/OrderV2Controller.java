@@ -0,0 +1,94 @@
+package com.events.controller;
+
+import com.events.model.Order;
+import com.events.model.TicketType;
+import com.events.service.AsyncOrderService;
+import com.events.service.IdempotencyService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Asynchronous variant of {@link OrderController}. Handlers return a
+ * {@link CompletableFuture}, so the request thread goes back to the container
+ * while the purchase runs on the purchase executor.
+ */
+@RestController
+@RequestMapping("/api/v2/orders")
+@CrossOrigin(origins = "*")
+public class OrderV2Controller {
+    
+    private static final String RETRY_AFTER_SECONDS = "1";
+    
+    @Autowired
+    private AsyncOrderService asyncOrderService;
+    
+    @GetMapping("/{id}")
+    public CompletableFuture<ResponseEntity<Order>> getOrderById(@PathVariable String id) {
+        return asyncOrderService.getOrderById(id)
+                .thenApply(order -> order.map(ResponseEntity::ok)
+                        .orElse(ResponseEntity.notFound().build()));
+    }
+    
+    @PostMapping
+    public CompletableFuture<ResponseEntity<?>> createOrder(
+            @RequestBody Map<String, Object> orderRequest,
+            @RequestHeader(value = "X-Admission-Token", required = false) String admissionToken,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        String userId;
+        String eventId;
+        TicketType ticketType;
+        int quantity;
+        double unitPrice;
+        String paymentMethod;
+        try {
+            userId = (String) orderRequest.get("userId");
+            eventId = (String) orderRequest.get("eventId");
+            ticketType = TicketType.valueOf((String) orderRequest.get("ticketType"));
+            quantity = Integer.parseInt(orderRequest.get("quantity").toString());
+            unitPrice = Double.parseDouble(orderRequest.get("unitPrice").toString());
+            paymentMethod = (String) orderRequest.get("paymentMethod");
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.badRequest().body("Invalid order request: " + e.getMessage()));
+        }
+        
+        try {
+            return asyncOrderService.createOrder(userId, eventId, ticketType, quantity, unitPrice, paymentMethod,
+                            admissionToken, idempotencyKey)
+                    .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                    .exceptionally(OrderV2Controller::toErrorResponse);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(toErrorResponse(e));
+        }
+    }
+    
+    static ResponseEntity<?> toErrorResponse(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                ? error.getCause() : error;
+        if (cause instanceof RejectedExecutionException) {
+            // The purchase executor is full; ask the client to come back shortly
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                    .body("Too many purchases in progress, please retry");
+        }
+        if (cause instanceof IllegalArgumentException) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(cause.getMessage());
+        }
+        if (cause instanceof IdempotencyService.RequestInProgressException) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(cause.getMessage());
+        }
+        if (cause instanceof IllegalStateException) {
+            return ResponseEntity.badRequest().body(cause.getMessage());
+        }
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body("Error creating order: " + cause.getMessage());
+    }
+}
@@ -2,9 +2,12 @@ package com.events.controller;
 
 import com.events.model.Ticket;
 import com.events.service.TicketService;
+import com.events.util.NdjsonWriter;
+import com.events.util.UnpagedLists;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import java.util.List;
 
 @RestController
@@ -15,9 +18,22 @@ public class TicketController {
     @Autowired
     private TicketService ticketService;
     
+    @Autowired
+    private NdjsonWriter ndjsonWriter;
+    
     @GetMapping
-    public ResponseEntity<List<Ticket>> getAllTickets() {
-        return ResponseEntity.ok(ticketService.getAllTickets());
+    public ResponseEntity<?> getAllTickets(
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit) {
+        if (after != null || limit != null) {
+            return ResponseEntity.ok(ticketService.getTicketsPage(after, limit));
+        }
+        return UnpagedLists.of("/api/tickets", ticketService.getAllTickets());
+    }
+    
+    @GetMapping(params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAllTickets() {
+        return ndjsonWriter.stream(ticketService::streamAllTickets);
     }
     
     @GetMapping("/{id}")
@@ -28,8 +44,19 @@ public class TicketController {
     }
     
     @GetMapping("/event/{eventId}")
-    public ResponseEntity<List<Ticket>> getTicketsByEventId(@PathVariable String eventId) {
-        return ResponseEntity.ok(ticketService.getTicketsByEventId(eventId));
+    public ResponseEntity<?> getTicketsByEventId(
+            @PathVariable String eventId,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit) {
+        if (after != null || limit != null) {
+            return ResponseEntity.ok(ticketService.getTicketsByEventIdPage(eventId, after, limit));
+        }
+        return UnpagedLists.of("/api/tickets/event/{eventId}", ticketService.getTicketsByEventId(eventId));
+    }
+    
+    @GetMapping(value = "/event/{eventId}", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamTicketsByEventId(@PathVariable String eventId) {
+        return ndjsonWriter.stream(() -> ticketService.streamTicketsByEventId(eventId));
     }
     
     @GetMapping("/order/{orderId}")
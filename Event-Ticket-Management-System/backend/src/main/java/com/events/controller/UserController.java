@@ -1,13 +1,16 @@
 package com.events.controller;
 
+import com.events.model.CursorPage;
 import com.events.model.User;
 import com.events.model.UserStatus;
 import com.events.service.UserService;
+import com.events.util.NdjsonWriter;
+import com.events.util.UnpagedLists;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import java.util.List;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import java.util.Map;
 
 @RestController
@@ -18,9 +21,22 @@ public class UserController {
     @Autowired
     private UserService userService;
     
+    @Autowired
+    private NdjsonWriter ndjsonWriter;
+    
     @GetMapping
-    public ResponseEntity<List<User>> getAllUsers() {
-        return ResponseEntity.ok(userService.getAllUsers());
+    public ResponseEntity<?> getAllUsers(
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit) {
+        boolean paged = after != null || limit != null;
+        CursorPage<User> page = paged ? userService.getUsersPage(after, limit) : userService.getAllUsers();
+        page.getItems().forEach(user -> user.setPassword(null));  // Don't return passwords
+        return paged ? ResponseEntity.ok(page) : UnpagedLists.of("/api/users", page);
+    }
+    
+    @GetMapping(params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAllUsers() {
+        return ndjsonWriter.stream(userService::streamAllUsers, user -> user.setPassword(null));
     }
     
     @GetMapping("/{id}")
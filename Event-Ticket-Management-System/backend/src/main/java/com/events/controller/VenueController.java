@@ -2,11 +2,13 @@ package com.events.controller;
 
 import com.events.model.Venue;
 import com.events.service.VenueService;
+import com.events.util.NdjsonWriter;
+import com.events.util.UnpagedLists;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import java.util.List;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/api/venues")
@@ -16,9 +18,22 @@ public class VenueController {
     @Autowired
     private VenueService venueService;
     
+    @Autowired
+    private NdjsonWriter ndjsonWriter;
+    
     @GetMapping
-    public ResponseEntity<List<Venue>> getAllVenues() {
-        return ResponseEntity.ok(venueService.getAllVenues());
+    public ResponseEntity<?> getAllVenues(
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit) {
+        if (after != null || limit != null) {
+            return ResponseEntity.ok(venueService.getVenuesPage(after, limit));
+        }
+        return UnpagedLists.of("/api/venues", venueService.getAllVenues());
+    }
+    
+    @GetMapping(params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAllVenues() {
+        return ndjsonWriter.stream(venueService::streamAllVenues);
     }
     
     @GetMapping("/{id}")
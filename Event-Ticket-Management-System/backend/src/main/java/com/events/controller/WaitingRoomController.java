@@ -0,0 +1,53 @@
+package com.events.controller;
+
+import com.events.service.WaitingRoomService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/waiting-room")
+@CrossOrigin(origins = "*")
+public class WaitingRoomController {
+    
+    @Autowired
+    private WaitingRoomService waitingRoomService;
+    
+    @PostMapping("/{eventId}/open")
+    public ResponseEntity<Map<String, Object>> openRoom(
+            @PathVariable String eventId,
+            @RequestParam(required = false) Integer rate) {
+        return ResponseEntity.ok(waitingRoomService.open(eventId, rate));
+    }
+    
+    @DeleteMapping("/{eventId}")
+    public ResponseEntity<Void> closeRoom(@PathVariable String eventId) {
+        if (waitingRoomService.close(eventId)) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.notFound().build();
+    }
+    
+    @GetMapping("/{eventId}")
+    public ResponseEntity<Map<String, Object>> getRoom(@PathVariable String eventId) {
+        Map<String, Object> room = waitingRoomService.getRoom(eventId);
+        return room != null ? ResponseEntity.ok(room) : ResponseEntity.notFound().build();
+    }
+    
+    @PostMapping("/{eventId}/join")
+    public ResponseEntity<Map<String, Object>> join(
+            @PathVariable String eventId,
+            @RequestParam(required = false) String userId) {
+        return ResponseEntity.ok(waitingRoomService.join(eventId, userId));
+    }
+    
+    @GetMapping("/{eventId}/position/{queueId}")
+    public ResponseEntity<Map<String, Object>> getPosition(
+            @PathVariable String eventId,
+            @PathVariable String queueId) {
+        Map<String, Object> position = waitingRoomService.position(eventId, queueId);
+        return position != null ? ResponseEntity.ok(position) : ResponseEntity.notFound().build();
+    }
+}
@@ -0,0 +1,313 @@
+package com.events.loadtest;
+
+import com.events.model.Address;
+import com.events.model.Event;
+import com.events.model.Order;
+import com.events.model.OrderStatus;
+import com.events.model.Ticket;
+import com.events.model.TicketType;
+import com.events.model.User;
+import com.events.model.UserRole;
+import com.events.model.UserStatus;
+import com.events.model.Venue;
+import com.events.service.SalesRollupService;
+import com.events.service.SalesTimeSeriesService;
+import com.events.service.TopEventsService;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Fills a local MongoDB with production-scale synthetic data for load tests.
+ *
+ * Runs once at startup when {@code loadgen.enabled=true}, e.g.
+ * {@code mvn spring-boot:run -Dspring-boot.run.arguments="--loadgen.enabled=true --loadgen.orders=5000000"}.
+ * Event popularity follows a Zipf distribution ({@code loadgen.skew}), so the
+ * first few events take most of the orders and the rest form a long tail; orders
+ * never exceed an event's capacity. Users are prefixed {@code loadgen-} so the
+ * generator does nothing if it already ran against the database. Everything is
+ * written with batched inserts, and the sales rollups are rebuilt at the end.
+ */
+@Component
+@ConditionalOnProperty(name = "loadgen.enabled", havingValue = "true")
+public class LoadDataGenerator implements CommandLineRunner {
+    private static final Logger logger = LoggerFactory.getLogger(LoadDataGenerator.class);
+
+    static final String EMAIL_PREFIX = "loadgen-";
+
+    private static final String[] ADJECTIVES = {"Summer", "Midnight", "Electric", "Golden", "Urban", "Acoustic",
+            "Grand", "Neon", "Winter", "Royal", "Wild", "Silent", "Cosmic", "Velvet", "Northern", "Open-Air"};
+    private static final String[] NOUNS = {"Festival", "Sessions", "Showcase", "Gala", "Tour", "Nights",
+            "Weekend", "Series", "Live", "Experience", "Marathon", "Cup", "Expo", "Summit"};
+    private static final String[] CATEGORIES = {"Music", "Sports", "Theater", "Comedy", "Conference",
+            "Festival", "Family", "Dance", "Jazz", "Rock", "Classical", "Technology", "Food", "Art"};
+    private static final String[] CITIES = {"New York", "Los Angeles", "Chicago", "Houston", "Phoenix",
+            "Seattle", "Boston", "Denver", "Austin", "Miami", "Atlanta", "Portland"};
+    private static final String[] PAYMENT_METHODS = {"CREDIT_CARD", "DEBIT_CARD", "PAYPAL"};
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private SalesTimeSeriesService salesTimeSeriesService;
+
+    @Autowired
+    private TopEventsService topEventsService;
+
+    @Value("${loadgen.users:100000}")
+    private int userCount;
+
+    @Value("${loadgen.venues:500}")
+    private int venueCount;
+
+    @Value("${loadgen.events:10000}")
+    private int eventCount;
+
+    @Value("${loadgen.orders:1000000}")
+    private int orderCount;
+
+    @Value("${loadgen.skew:1.1}")
+    private double skew;
+
+    @Value("${loadgen.batch-size:5000}")
+    private int batchSize;
+
+    @Value("${loadgen.seed:42}")
+    private long seed;
+
+    @Override
+    public void run(String... args) {
+        if (mongoTemplate.exists(new Query(Criteria.where("email").regex("^" + EMAIL_PREFIX)), User.class)) {
+            logger.info("Load test data already present, skipping generation");
+            return;
+        }
+
+        Random random = new Random(seed);
+        long started = System.currentTimeMillis();
+
+        String[] allUserIds = generateUsers(random);
+        String[] userIds = Arrays.copyOfRange(allUserIds, 0, userCount);
+        String[] organizerIds = Arrays.copyOfRange(allUserIds, userCount, allUserIds.length);
+        String[] venueIds = new String[venueCount];
+        int[] venueCapacities = new int[venueCount];
+        generateVenues(random, venueIds, venueCapacities);
+        Event[] events = generateEvents(random, organizerIds, venueIds, venueCapacities);
+        generateOrders(random, userIds, events);
+
+        salesRollupService.rebuild();
+        salesTimeSeriesService.rebuild();
+        topEventsService.refresh();
+        logger.info("Generated {} users, {} venues, {} events and {} orders in {} s",
+                userCount, venueCount, eventCount, orderCount, (System.currentTimeMillis() - started) / 1000);
+    }
+
+    // Returns the ids of the customers followed by the ids of the organizers
+    private String[] generateUsers(Random random) {
+        int organizers = Math.max(1, eventCount / 20);
+        String[] ids = new String[userCount + organizers];
+        List<User> batch = new ArrayList<>(batchSize);
+
+        for (int i = 0; i < ids.length; i++) {
+            boolean organizer = i >= userCount;
+            User user = new User();
+            user.setId(new ObjectId().toHexString());
+            user.setName((organizer ? "Organizer " : "User ") + i);
+            user.setEmail(EMAIL_PREFIX + (organizer ? "organizer-" : "user-") + i + "@example.com");
+            user.setPassword("password");
+            user.setPhone(String.format("555-%03d-%04d", random.nextInt(1000), random.nextInt(10000)));
+            user.setRole(organizer ? UserRole.ORGANIZER : UserRole.CUSTOMER);
+            user.setStatus(UserStatus.ACTIVE);
+            user.setRegistrationDate(LocalDateTime.now().minusDays(random.nextInt(730)));
+            ids[i] = user.getId();
+            batch.add(user);
+            if (batch.size() == batchSize) {
+                insert(batch, User.class);
+            }
+        }
+        insert(batch, User.class);
+        logger.info("Generated {} users", ids.length);
+        return ids;
+    }
+
+    private void generateVenues(Random random, String[] ids, int[] capacities) {
+        List<Venue> batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < ids.length; i++) {
+            Venue venue = new Venue();
+            venue.setId(new ObjectId().toHexString());
+            String city = CITIES[random.nextInt(CITIES.length)];
+            venue.setName(city + " " + NOUNS[random.nextInt(NOUNS.length)] + " Hall " + i);
+            // Mostly clubs and theaters, a few arenas and stadiums
+            venue.setCapacity(200 + (int) (50000 * Math.pow(random.nextDouble(), 4)));
+            venue.setDescription("Generated venue in " + city);
+
+            Address address = new Address();
+            address.setStreet((1 + random.nextInt(999)) + " Main Street");
+            address.setCity(city);
+            address.setCountry("USA");
+            venue.setAddress(address);
+
+            ids[i] = venue.getId();
+            capacities[i] = venue.getCapacity();
+            batch.add(venue);
+            if (batch.size() == batchSize) {
+                insert(batch, Venue.class);
+            }
+        }
+        insert(batch, Venue.class);
+        logger.info("Generated {} venues", ids.length);
+    }
+
+    // Events come out in popularity order: index 0 is the hottest
+    private Event[] generateEvents(Random random, String[] organizerIds, String[] venueIds, int[] capacities) {
+        Event[] events = new Event[eventCount];
+        List<Event> batch = new ArrayList<>(batchSize);
+        LocalDateTime now = LocalDateTime.now();
+
+        for (int i = 0; i < eventCount; i++) {
+            int venue = random.nextInt(venueIds.length);
+            Event event = new Event();
+            event.setId(new ObjectId().toHexString());
+            event.setTitle(ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " "
+                    + CATEGORIES[random.nextInt(CATEGORIES.length)] + " " + NOUNS[random.nextInt(NOUNS.length)]
+                    + " " + (i + 1));
+            event.setDescription("Generated event number " + (i + 1) + " for load testing");
+            event.setEventDate(now.plusDays(random.nextInt(240) - 60).withHour(18 + random.nextInt(4)));
+            event.setEndDate(event.getEventDate().plusHours(3));
+            event.setVenueId(venueIds[venue]);
+            event.setOrganizerId(organizerIds[random.nextInt(organizerIds.length)]);
+            event.setCategories(Arrays.asList(CATEGORIES[random.nextInt(CATEGORIES.length)],
+                    CATEGORIES[random.nextInt(CATEGORIES.length)]));
+            event.setPublished(random.nextInt(10) != 0);
+            event.setTotalSeats(capacities[venue]);
+            event.setAvailableSeats(capacities[venue]);
+            event.setBasePrice(20 + random.nextInt(280));
+            events[i] = event;
+            batch.add(event);
+            if (batch.size() == batchSize) {
+                insert(batch, Event.class);
+            }
+        }
+        insert(batch, Event.class);
+        logger.info("Generated {} events", eventCount);
+        return events;
+    }
+
+    private void generateOrders(Random random, String[] userIds, Event[] events) {
+        ZipfSampler popularity = new ZipfSampler(events.length, skew);
+        int[] sold = new int[events.length];
+        List<Order> orders = new ArrayList<>(batchSize);
+        List<Ticket> tickets = new ArrayList<>(batchSize * 2);
+        long now = System.currentTimeMillis();
+        int generated = 0;
+
+        for (int i = 0; i < orderCount; i++) {
+            int quantity = 1 + (int) (4 * Math.pow(random.nextDouble(), 2));
+            int eventIndex = -1;
+            // Hot events sell out, later orders spill over to the next pick
+            for (int attempt = 0; attempt < 10 && eventIndex < 0; attempt++) {
+                int candidate = popularity.next(random);
+                if (events[candidate].getTotalSeats() - sold[candidate] >= quantity) {
+                    eventIndex = candidate;
+                }
+            }
+            if (eventIndex < 0) {
+                continue;
+            }
+
+            Event event = events[eventIndex];
+            String userId = userIds[random.nextInt(userIds.length)];
+            int roll = random.nextInt(100);
+            OrderStatus status = roll < 95 ? OrderStatus.COMPLETED : roll < 99 ? OrderStatus.CANCELED : OrderStatus.REFUNDED;
+            TicketType type = roll % 10 == 0 ? TicketType.VIP : TicketType.STANDARD;
+            double unitPrice = type == TicketType.VIP ? event.getBasePrice() * 2 : event.getBasePrice();
+            Date createdAt = new Date(now - (long) (random.nextDouble() * 90L * 24 * 3600 * 1000));
+
+            Order order = new Order();
+            order.setId(new ObjectId().toHexString());
+            order.setUserId(userId);
+            order.setEventId(event.getId());
+            order.setQuantity(quantity);
+            order.setUnitPrice(unitPrice);
+            order.setTotalAmount(unitPrice * quantity);
+            order.setTicketType(type.name());
+            order.setPaymentMethod(PAYMENT_METHODS[random.nextInt(PAYMENT_METHODS.length)]);
+            order.setTransactionId(new ObjectId().toHexString());
+            order.setStatus(status.name());
+            order.setCreatedAt(createdAt);
+
+            List<String> ticketIds = new ArrayList<>(quantity);
+            for (int t = 0; t < quantity; t++) {
+                Ticket ticket = new Ticket();
+                ticket.setId(new ObjectId().toHexString());
+                ticket.setEventId(event.getId());
+                ticket.setOrderId(order.getId());
+                ticket.setUserId(userId);
+                ticket.setType(type);
+                ticket.setPrice(unitPrice);
+                ticket.setTicketNumber(Long.toHexString(random.nextLong()).toUpperCase());
+                ticket.setPurchaseDate(LocalDateTime.ofInstant(createdAt.toInstant(), ZoneId.systemDefault()));
+                ticketIds.add(ticket.getId());
+                tickets.add(ticket);
+            }
+            order.setTicketIds(ticketIds);
+            orders.add(order);
+            if (status == OrderStatus.COMPLETED) {
+                sold[eventIndex] += quantity;
+            }
+            generated++;
+
+            if (orders.size() == batchSize) {
+                insert(tickets, Ticket.class);
+                insert(orders, Order.class);
+            }
+            if (generated % 100_000 == 0) {
+                logger.info("Generated {} of {} orders", generated, orderCount);
+            }
+        }
+        insert(tickets, Ticket.class);
+        insert(orders, Order.class);
+
+        BulkOperations seats = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Event.class);
+        int updates = 0;
+        for (int i = 0; i < events.length; i++) {
+            if (sold[i] > 0) {
+                seats.updateOne(new Query(Criteria.where("_id").is(events[i].getId())),
+                        new Update().set("availableSeats", events[i].getTotalSeats() - sold[i]));
+                updates++;
+            }
+        }
+        if (updates > 0) {
+            seats.execute();
+        }
+        logger.info("Generated {} orders, hottest event sold {} of {} seats",
+                generated, sold[0], events[0].getTotalSeats());
+    }
+
+    private <T> void insert(List<T> batch, Class<T> type) {
+        if (!batch.isEmpty()) {
+            mongoTemplate.insert(batch, type);
+            batch.clear();
+        }
+    }
+}
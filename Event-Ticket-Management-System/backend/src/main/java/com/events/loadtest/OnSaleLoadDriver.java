@@ -0,0 +1,270 @@
+package com.events.loadtest;
+
+import com.events.util.LatencyHistogram;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop on-sale traffic against a running backend.
+ *
+ * Requests are sent on a Poisson schedule at {@code --rate} per second whether or
+ * not earlier ones have completed, and latency is measured from the time each
+ * request was due rather than when it was sent, so a stalling server shows up as
+ * latency instead of silently lowering the load (no coordinated omission). Orders
+ * pick events with the same Zipf skew as {@link LoadDataGenerator}.
+ *
+ * Run against a local backend with the packaged application on the classpath:
+ * <pre>
+ * java -cp target/event-ticket-management-system-*.jar -Dloader.main=com.events.loadtest.OnSaleLoadDriver \
+ *     org.springframework.boot.loader.launch.PropertiesLauncher \
+ *     --base-url=http://localhost:8080 --rate=500 --duration=60 --mix=orders:30,events:60,dashboard:10
+ * </pre>
+ *
+ * With {@code --quantities} every order buys one of the listed ticket counts, and
+ * latency is reported per quantity, e.g. to compare p50 and p99 of the purchase
+ * path as the number of tickets per order grows (the tickets are written with a
+ * single bulk insert, so the cost should grow far slower than the quantity):
+ * <pre>
+ *     --rate=100 --duration=120 --mix=orders:100 --quantities=1,10,100
+ * </pre>
+ */
+public class OnSaleLoadDriver {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final String baseUrl;
+    private final HttpClient client;
+    private final Random random = new Random();
+    private final Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+
+    private final List<String> eventIds = new ArrayList<>();
+    private final List<Double> eventPrices = new ArrayList<>();
+    private final List<String> userIds = new ArrayList<>();
+    private ZipfSampler popularity;
+
+    // Ticket counts per order; empty means one or two tickets, reported together
+    private final List<Integer> quantities = new ArrayList<>();
+
+    OnSaleLoadDriver(String baseUrl, int connections) {
+        this.baseUrl = baseUrl;
+        ExecutorService executor = Executors.newFixedThreadPool(connections);
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(executor)
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        String baseUrl = options.getOrDefault("base-url", "http://localhost:8080");
+        double rate = Double.parseDouble(options.getOrDefault("rate", "200"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "60"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        int maxUsers = Integer.parseInt(options.getOrDefault("users", "5000"));
+        double skew = Double.parseDouble(options.getOrDefault("skew", "1.1"));
+        int connections = Integer.parseInt(options.getOrDefault("connections", "64"));
+        Map<String, Integer> mix = parseMix(options.getOrDefault("mix", "orders:30,events:60,dashboard:10"));
+
+        OnSaleLoadDriver driver = new OnSaleLoadDriver(baseUrl, connections);
+        if (options.containsKey("quantities")) {
+            for (String quantity : options.get("quantities").split(",")) {
+                driver.quantities.add(Integer.parseInt(quantity.trim()));
+            }
+        }
+        driver.discover(maxUsers, skew);
+        System.out.printf("Driving %s at %.0f req/s for %d s (+%d s warm-up), mix %s%n",
+                baseUrl, rate, duration, warmup, mix);
+
+        driver.run(rate, warmup, mix, false);
+        driver.endpoints.clear();
+        driver.run(rate, duration, mix, true);
+        driver.report(duration);
+        System.exit(0);
+    }
+
+    // Event and user ids come from the API itself, in id order, which for generated
+    // data is also popularity order
+    private void discover(int maxUsers, double skew) throws Exception {
+        String after = null;
+        do {
+            JsonNode page = getJson("/api/events?limit=500" + (after != null ? "&after=" + after : ""));
+            for (JsonNode event : page.get("items")) {
+                eventIds.add(event.get("id").asText());
+                eventPrices.add(event.path("basePrice").asDouble(50.0));
+            }
+            after = page.path("hasMore").asBoolean() ? page.get("nextCursor").asText() : null;
+        } while (after != null);
+
+        after = null;
+        do {
+            JsonNode page = getJson("/api/users?limit=500" + (after != null ? "&after=" + after : ""));
+            for (JsonNode user : page.get("items")) {
+                if (userIds.size() < maxUsers) {
+                    userIds.add(user.get("id").asText());
+                }
+            }
+            after = page.path("hasMore").asBoolean() && userIds.size() < maxUsers
+                    ? page.get("nextCursor").asText() : null;
+        } while (after != null);
+
+        if (eventIds.isEmpty() || userIds.isEmpty()) {
+            throw new IllegalStateException("No events or users found, generate data with --loadgen.enabled=true");
+        }
+        popularity = new ZipfSampler(eventIds.size(), skew);
+        System.out.printf("Found %d events and %d users%n", eventIds.size(), userIds.size());
+    }
+
+    private void run(double rate, int seconds, Map<String, Integer> mix, boolean measure) throws InterruptedException {
+        int totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        long due = start;
+
+        while (due < end) {
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            send(pick(mix, totalWeight), due, measure);
+            // Exponential inter-arrival times make a Poisson arrival process
+            due += (long) (-Math.log(1.0 - random.nextDouble()) / rate * 1_000_000_000L);
+        }
+        // Let the stragglers finish before the next phase
+        Thread.sleep(2000);
+    }
+
+    private String pick(Map<String, Integer> mix, int totalWeight) {
+        int roll = random.nextInt(totalWeight);
+        for (Map.Entry<String, Integer> entry : mix.entrySet()) {
+            roll -= entry.getValue();
+            if (roll < 0) {
+                return entry.getKey();
+            }
+        }
+        return "events";
+    }
+
+    private void send(String kind, long due, boolean measure) {
+        HttpRequest request;
+        int eventIndex = popularity.next(random);
+        String eventId = eventIds.get(eventIndex);
+        String endpointName = kind;
+        switch (kind) {
+            case "orders": {
+                int quantity;
+                if (quantities.isEmpty()) {
+                    quantity = 1 + random.nextInt(2);
+                } else {
+                    quantity = quantities.get(random.nextInt(quantities.size()));
+                    endpointName = "orders x" + quantity;
+                }
+                Map<String, Object> body = new HashMap<>();
+                body.put("userId", userIds.get(random.nextInt(userIds.size())));
+                body.put("eventId", eventId);
+                body.put("ticketType", "STANDARD");
+                body.put("quantity", quantity);
+                body.put("unitPrice", eventPrices.get(eventIndex));
+                body.put("paymentMethod", "CREDIT_CARD");
+                try {
+                    request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/orders"))
+                            .header("Content-Type", "application/json")
+                            .header("Idempotency-Key", UUID.randomUUID().toString())
+                            .POST(HttpRequest.BodyPublishers.ofString(MAPPER.writeValueAsString(body)))
+                            .build();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                break;
+            }
+            case "dashboard":
+                request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/dashboard/metrics")).build();
+                break;
+            default:
+                request = random.nextInt(4) == 0
+                        ? HttpRequest.newBuilder(URI.create(baseUrl + "/api/events?limit=50")).build()
+                        : HttpRequest.newBuilder(URI.create(baseUrl + "/api/events/" + eventId)).build();
+                break;
+        }
+
+        Endpoint endpoint = endpoints.computeIfAbsent(endpointName, key -> new Endpoint());
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    if (!measure) {
+                        return;
+                    }
+                    endpoint.latency.record((System.nanoTime() - due) / 1_000);
+                    String outcome = error != null ? error.getClass().getSimpleName()
+                            : String.valueOf(response.statusCode());
+                    endpoint.outcomes.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+                });
+    }
+
+    private void report(int seconds) {
+        System.out.println();
+        System.out.printf("%-12s %10s %9s %9s %9s %9s %9s %9s  %s%n",
+                "endpoint", "requests", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "status codes");
+        for (Map.Entry<String, Endpoint> entry : endpoints.entrySet()) {
+            LatencyHistogram latency = entry.getValue().latency;
+            Map<String, Long> outcomes = new LinkedHashMap<>();
+            entry.getValue().outcomes.forEach((outcome, count) -> outcomes.put(outcome, count.sum()));
+            System.out.printf("%-12s %10d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f  %s%n",
+                    entry.getKey(), latency.getCount(), (double) latency.getCount() / seconds,
+                    latency.getValueAtPercentile(50) / 1000.0, latency.getValueAtPercentile(90) / 1000.0,
+                    latency.getValueAtPercentile(99) / 1000.0, latency.getValueAtPercentile(99.9) / 1000.0,
+                    latency.getMax() / 1000.0, outcomes);
+        }
+    }
+
+    private JsonNode getJson(String path) throws Exception {
+        HttpResponse<String> response = client.send(
+                HttpRequest.newBuilder(URI.create(baseUrl + path)).build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("GET " + path + " returned " + response.statusCode());
+        }
+        return MAPPER.readTree(response.body());
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        return options;
+    }
+
+    private static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String part : mix.split(",")) {
+            String[] kindAndWeight = part.split(":");
+            weights.put(kindAndWeight[0].trim(), Integer.parseInt(kindAndWeight[1].trim()));
+        }
+        return weights;
+    }
+
+    private static final class Endpoint {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+    }
+}
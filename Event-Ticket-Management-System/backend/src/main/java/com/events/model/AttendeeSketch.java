@@ -0,0 +1,54 @@
+package com.events.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.util.Date;
+
+/**
+ * Serialized HyperLogLog registers of the distinct buyers of one event.
+ * The id is the event id. The version is bumped on every write, so nodes can
+ * merge their registers into the stored ones without overwriting each other.
+ */
+@Document(collection = "attendee_sketches")
+public class AttendeeSketch {
+    
+    @Id
+    private String id;
+    private byte[] registers;
+    private Date updatedAt;
+    private Long version;
+    
+    public AttendeeSketch() {}
+    
+    public String getId() {
+        return id;
+    }
+    
+    public void setId(String id) {
+        this.id = id;
+    }
+    
+    public byte[] getRegisters() {
+        return registers;
+    }
+    
+    public void setRegisters(byte[] registers) {
+        this.registers = registers;
+    }
+    
+    public Date getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    public void setUpdatedAt(Date updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+    
+    public Long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
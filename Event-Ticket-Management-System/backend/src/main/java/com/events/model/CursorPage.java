@@ -0,0 +1,69 @@
+package com.events.model;
+
+import org.springframework.data.domain.Slice;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset-paginated listing. Pass {@code nextCursor} back as the
+ * {@code after} parameter to fetch the following page.
+ */
+public class CursorPage<T> {
+    
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 500;
+    // Most items returned by a list endpoint called without after or limit
+    public static final int UNPAGED_LIMIT = 1000;
+    
+    private List<T> items;
+    private String nextCursor;
+    private boolean hasMore;
+    
+    public CursorPage() {}
+    
+    public CursorPage(List<T> items, String nextCursor, boolean hasMore) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+    }
+    
+    public static <T> CursorPage<T> of(Slice<T> slice, Function<T, String> idOf) {
+        List<T> items = slice.getContent();
+        String nextCursor = slice.hasNext() && !items.isEmpty()
+                ? idOf.apply(items.get(items.size() - 1))
+                : null;
+        return new CursorPage<>(items, nextCursor, slice.hasNext());
+    }
+    
+    // Clamp a requested page size to [1, MAX_LIMIT]
+    public static int limit(Integer requested) {
+        if (requested == null || requested <= 0) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.min(requested, MAX_LIMIT);
+    }
+    
+    public List<T> getItems() {
+        return items;
+    }
+    
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+    
+    public String getNextCursor() {
+        return nextCursor;
+    }
+    
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+    
+    public boolean isHasMore() {
+        return hasMore;
+    }
+    
+    public void setHasMore(boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+}
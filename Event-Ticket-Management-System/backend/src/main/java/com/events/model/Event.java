@@ -1,33 +1,67 @@
 package com.events.model;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
 @Document(collection = "events")
+@CompoundIndexes({
+    @CompoundIndex(name = "organizer_eventDate", def = "{'organizerId': 1, 'eventDate': 1}"),
+    @CompoundIndex(name = "published_eventDate", def = "{'published': 1, 'eventDate': 1}")
+})
 public class Event {
     
     @Id
     private String id;
     private String title;
     private String description;
+    @Indexed
     private LocalDateTime eventDate;
     private LocalDateTime endDate;
+    @Indexed
     private String venueId;
     private String organizerId;
     private String imageUrl;
+    @Indexed
     private List<String> categories;
     private boolean published = false;
     private int totalSeats;
     private int availableSeats;
     private double basePrice;
+    @Indexed
     private Date createdAt = new Date();
+    // Set on every edit of the searchable fields, see EventSearchIndex
+    @Indexed
+    private Date updatedAt = new Date();
     
     // Constructors, getters, setters
     public Event() {}
     
+    // Copy, so a cached instance can be handed out with fields changed per response
+    public Event(Event other) {
+        this.id = other.id;
+        this.title = other.title;
+        this.description = other.description;
+        this.eventDate = other.eventDate;
+        this.endDate = other.endDate;
+        this.venueId = other.venueId;
+        this.organizerId = other.organizerId;
+        this.imageUrl = other.imageUrl;
+        this.categories = other.categories != null ? new ArrayList<>(other.categories) : null;
+        this.published = other.published;
+        this.totalSeats = other.totalSeats;
+        this.availableSeats = other.availableSeats;
+        this.basePrice = other.basePrice;
+        this.createdAt = other.createdAt;
+        this.updatedAt = other.updatedAt;
+    }
+    
     public String getId() {
         return id;
     }
@@ -139,4 +173,12 @@ public class Event {
     public void setCreatedAt(Date createdAt) {
         this.createdAt = createdAt;
     }
+    
+    public Date getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    public void setUpdatedAt(Date updatedAt) {
+        this.updatedAt = updatedAt;
+    }
 }
\ No newline at end of file
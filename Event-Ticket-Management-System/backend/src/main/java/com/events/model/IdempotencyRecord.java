@@ -0,0 +1,87 @@
+package com.events.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.util.Date;
+
+/**
+ * Claim on, and then result of, a request sent with an {@code Idempotency-Key}
+ * header. The id is the scoped key; records are removed by a TTL index a day
+ * after they were written.
+ */
+@Document(collection = "idempotency_keys")
+public class IdempotencyRecord {
+    
+    public static final String PENDING = "PENDING";
+    public static final String COMPLETED = "COMPLETED";
+    
+    @Id
+    private String id;
+    // Canonical form of the request, a key cannot be reused for a different one
+    private String request;
+    // PENDING while the first request runs; records without a status are completed
+    private String status;
+    // Id the claiming request gives its order, so a takeover can find an order
+    // that was written before the claim was completed
+    private String orderId;
+    // The stored order as a raw document, so the order's own indexes are not
+    // created again on this collection
+    private org.bson.Document order;
+    @Indexed(name = "createdAt_ttl", expireAfter = "24h")
+    private Date createdAt = new Date();
+    
+    public IdempotencyRecord() {}
+    
+    public String getId() {
+        return id;
+    }
+    
+    public void setId(String id) {
+        this.id = id;
+    }
+    
+    public String getRequest() {
+        return request;
+    }
+    
+    public void setRequest(String request) {
+        this.request = request;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public void setStatus(String status) {
+        this.status = status;
+    }
+    
+    public boolean isPending() {
+        return PENDING.equals(status);
+    }
+    
+    public String getOrderId() {
+        return orderId;
+    }
+    
+    public void setOrderId(String orderId) {
+        this.orderId = orderId;
+    }
+    
+    public org.bson.Document getOrder() {
+        return order;
+    }
+    
+    public void setOrder(org.bson.Document order) {
+        this.order = order;
+    }
+    
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(Date createdAt) {
+        this.createdAt = createdAt;
+    }
+}
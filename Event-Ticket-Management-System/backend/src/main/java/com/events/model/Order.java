@@ -1,11 +1,18 @@
 package com.events.model;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.util.Date;
 import java.util.List;
 
 @Document(collection = "orders")
+@CompoundIndexes({
+    @CompoundIndex(name = "user_createdAt", def = "{'userId': 1, 'createdAt': -1}"),
+    @CompoundIndex(name = "event_status", def = "{'eventId': 1, 'status': 1}")
+})
 public class Order {
     
     @Id
@@ -16,11 +23,15 @@ public class Order {
     private double unitPrice;
     private double totalAmount;
     private String status;
+    @Indexed
     private Date createdAt = new Date();
     private List<String> ticketIds;
     private String ticketType;
     private String paymentMethod;
     private String transactionId;
+    // Set while the order is PENDING: when its seat hold lapses
+    @Indexed(name = "pending_holdExpiresAt", partialFilter = "{ 'status': 'PENDING' }")
+    private Date holdExpiresAt;
     
     // Default constructor
     public Order() {
@@ -127,6 +138,14 @@ public class Order {
         this.transactionId = transactionId;
     }
     
+    public Date getHoldExpiresAt() {
+        return holdExpiresAt;
+    }
+    
+    public void setHoldExpiresAt(Date holdExpiresAt) {
+        this.holdExpiresAt = holdExpiresAt;
+    }
+    
     @Override
     public String toString() {
         return "Order{" +
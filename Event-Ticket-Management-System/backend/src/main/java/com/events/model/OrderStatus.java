@@ -4,5 +4,7 @@ public enum OrderStatus {
     PENDING,
     COMPLETED,
     CANCELED,
-    REFUNDED
+    REFUNDED,
+    // A PENDING hold that lapsed or was released before payment
+    EXPIRED
 }
\ No newline at end of file
@@ -0,0 +1,131 @@
+package com.events.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.util.Date;
+
+/**
+ * Activity during one minute, hour or day (UTC) for one series: the whole platform
+ * ("global") or a single event ("event:42"). Orders count in the bucket of their
+ * creation time, and order counts, tickets and revenue are net of the later
+ * cancellation of any of those orders.
+ *
+ * The id is the resolution, series and bucket start joined by '|', so writers can
+ * upsert a bucket without reading it. Minute and hour buckets carry an
+ * {@code expireAt} and are removed by a TTL index once the coarser buckets cover them.
+ */
+@Document(collection = "sales_buckets")
+@CompoundIndex(name = "series_resolution_start", def = "{'series': 1, 'resolution': 1, 'start': 1}")
+public class SalesBucket {
+
+    public static final String MINUTE = "minute";
+    public static final String HOUR = "hour";
+    public static final String DAY = "day";
+
+    public static final String SERIES_GLOBAL = "global";
+
+    @Id
+    private String id;
+    private String series;
+    private String resolution;
+    private Date start;
+    private long orders;
+    private long tickets;
+    private double revenue;
+    private long signups;
+    private long eventsCreated;
+    @Indexed(name = "expireAt_ttl", expireAfter = "0s")
+    private Date expireAt;
+
+    public SalesBucket() {}
+
+    public static String idFor(String resolution, String series, Date start) {
+        return resolution + "|" + series + "|" + start.getTime();
+    }
+
+    public static String eventSeries(String eventId) {
+        return "event:" + eventId;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getSeries() {
+        return series;
+    }
+
+    public void setSeries(String series) {
+        this.series = series;
+    }
+
+    public String getResolution() {
+        return resolution;
+    }
+
+    public void setResolution(String resolution) {
+        this.resolution = resolution;
+    }
+
+    public Date getStart() {
+        return start;
+    }
+
+    public void setStart(Date start) {
+        this.start = start;
+    }
+
+    public long getOrders() {
+        return orders;
+    }
+
+    public void setOrders(long orders) {
+        this.orders = orders;
+    }
+
+    public long getTickets() {
+        return tickets;
+    }
+
+    public void setTickets(long tickets) {
+        this.tickets = tickets;
+    }
+
+    public double getRevenue() {
+        return revenue;
+    }
+
+    public void setRevenue(double revenue) {
+        this.revenue = revenue;
+    }
+
+    public long getSignups() {
+        return signups;
+    }
+
+    public void setSignups(long signups) {
+        this.signups = signups;
+    }
+
+    public long getEventsCreated() {
+        return eventsCreated;
+    }
+
+    public void setEventsCreated(long eventsCreated) {
+        this.eventsCreated = eventsCreated;
+    }
+
+    public Date getExpireAt() {
+        return expireAt;
+    }
+
+    public void setExpireAt(Date expireAt) {
+        this.expireAt = expireAt;
+    }
+}
@@ -0,0 +1,106 @@
+package com.events.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.util.Date;
+
+/**
+ * Pre-aggregated sales counters for one event, one organizer or the whole platform.
+ * The id is the scope and key joined by a colon, e.g. "event:42" or "global".
+ */
+@Document(collection = "sales_rollups")
+public class SalesRollup {
+    
+    public static final String SCOPE_EVENT = "event";
+    public static final String SCOPE_ORGANIZER = "organizer";
+    public static final String SCOPE_GLOBAL = "global";
+    
+    @Id
+    private String id;
+    private String scope;
+    private String scopeId;
+    private long ticketsSold;
+    private double grossRevenue;
+    private long refundedTickets;
+    private double refundedRevenue;
+    private Date updatedAt;
+    
+    public SalesRollup() {}
+    
+    public static String idFor(String scope, String scopeId) {
+        return scopeId == null ? scope : scope + ":" + scopeId;
+    }
+    
+    public String getId() {
+        return id;
+    }
+    
+    public void setId(String id) {
+        this.id = id;
+    }
+    
+    public String getScope() {
+        return scope;
+    }
+    
+    public void setScope(String scope) {
+        this.scope = scope;
+    }
+    
+    public String getScopeId() {
+        return scopeId;
+    }
+    
+    public void setScopeId(String scopeId) {
+        this.scopeId = scopeId;
+    }
+    
+    public long getTicketsSold() {
+        return ticketsSold;
+    }
+    
+    public void setTicketsSold(long ticketsSold) {
+        this.ticketsSold = ticketsSold;
+    }
+    
+    public double getGrossRevenue() {
+        return grossRevenue;
+    }
+    
+    public void setGrossRevenue(double grossRevenue) {
+        this.grossRevenue = grossRevenue;
+    }
+    
+    public long getRefundedTickets() {
+        return refundedTickets;
+    }
+    
+    public void setRefundedTickets(long refundedTickets) {
+        this.refundedTickets = refundedTickets;
+    }
+    
+    public double getRefundedRevenue() {
+        return refundedRevenue;
+    }
+    
+    public void setRefundedRevenue(double refundedRevenue) {
+        this.refundedRevenue = refundedRevenue;
+    }
+    
+    public Date getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    public void setUpdatedAt(Date updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+    
+    // Tickets and revenue still held by customers, i.e. sales minus refunds
+    public long getNetTickets() {
+        return ticketsSold - refundedTickets;
+    }
+    
+    public double getNetRevenue() {
+        return grossRevenue - refundedRevenue;
+    }
+}
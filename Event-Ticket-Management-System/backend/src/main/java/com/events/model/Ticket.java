@@ -1,16 +1,26 @@
 package com.events.model;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
 
 @Document(collection = "tickets")
+@CompoundIndexes({
+    @CompoundIndex(name = "event_user", def = "{'eventId': 1, 'userId': 1}"),
+    // Keyset pages of one event's tickets are ordered by id
+    @CompoundIndex(name = "event_id", def = "{'eventId': 1, '_id': 1}")
+})
 public class Ticket {
     
     @Id
     private String id;
     private String eventId;
+    @Indexed
     private String orderId;
+    @Indexed
     private String userId;
     private TicketType type;  // Using the standalone enum
     private double price;
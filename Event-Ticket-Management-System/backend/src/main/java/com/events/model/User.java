@@ -1,6 +1,7 @@
 package com.events.model;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
 import java.util.Date;
@@ -11,6 +12,7 @@ public class User {
     @Id
     private String id;
     private String name;
+    // Unique index created by UserEmailIndexInitializer once existing duplicates are resolved
     private String email;
     private String password;
     private String phone;
@@ -18,6 +20,7 @@ public class User {
     private UserRole role;  // Using the standalone enum
     private LocalDateTime registrationDate;
     private UserStatus status;  // Using the standalone enum
+    @Indexed
     private Date createdAt = new Date();
     
     public User() {
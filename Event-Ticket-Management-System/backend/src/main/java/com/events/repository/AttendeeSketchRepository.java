@@ -0,0 +1,7 @@
+package com.events.repository;
+
+import com.events.model.AttendeeSketch;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface AttendeeSketchRepository extends MongoRepository<AttendeeSketch, String> {
+}
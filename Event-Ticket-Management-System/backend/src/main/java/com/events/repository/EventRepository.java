@@ -1,17 +1,50 @@
 package com.events.repository;
 
 import com.events.model.Event;
+import com.events.model.SalesBucket;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.mongodb.repository.Aggregation;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import java.time.LocalDateTime;
 import java.util.Date;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface EventRepository extends MongoRepository<Event, String> {
     List<Event> findByOrganizerId(String organizerId);
     List<Event> findByEventDateAfter(Date date);
     List<Event> findByPublishedTrue();
-    List<Event> findByTitleContaining(String title);
     List<Event> findByCategoriesContaining(String category);
     List<Event> findByVenueId(String venueId);  // Changed from findByVenue to findByVenueId
     List<Event> findByCreatedAtAfter(Date date);
     List<Event> findByEventDateBetweenOrderByEventDateAsc(Date startDate, Date endDate);
-}
\ No newline at end of file
+    List<Event> findTop5ByPublishedTrueAndEventDateAfterOrderByEventDateAsc(LocalDateTime date);
+    
+    // Events created per time bucket of bucketMillis between from and before, for the sales time series
+    @Aggregation(pipeline = {
+        "{ $match: { createdAt: { $gte: ?1, $lt: ?2 } } }",
+        "{ $group: { _id: { $subtract: [ { $toLong: '$createdAt' }, { $mod: [ { $toLong: '$createdAt' }, ?0 ] } ] }, eventsCreated: { $sum: 1 } } }",
+        "{ $project: { _id: 0, start: { $toDate: '$_id' }, eventsCreated: 1 } }"
+    })
+    List<SalesBucket> countCreatedByBucket(long bucketMillis, Date from, Date before);
+    
+    // Only the seat counts, for refreshing cached catalog entries and seat edits
+    @Query(value = "{ '_id': ?0 }", fields = "{ 'availableSeats': 1, 'totalSeats': 1 }")
+    Optional<Event> findSeatsById(String id);
+    
+    // Only the fields the search index needs, for building it and for its incremental refresh
+    @Query(value = "{}", fields = "{ 'title': 1, 'description': 1, 'categories': 1, 'venueId': 1, 'eventDate': 1 }")
+    Stream<Event> streamSearchFieldsBy();
+    @Query(value = "{ 'updatedAt': { $gte: ?0 } }", fields = "{ 'title': 1, 'description': 1, 'categories': 1, 'venueId': 1, 'eventDate': 1 }")
+    Stream<Event> streamSearchFieldsByUpdatedAtSince(Date since);
+    @Query(value = "{}", fields = "{ '_id': 1 }")
+    Stream<Event> streamIdsBy();
+    
+    // Keyset pagination and cursor streaming for the list endpoints
+    Slice<Event> findAllBy(Pageable pageable);
+    Slice<Event> findByIdGreaterThan(String id, Pageable pageable);
+    Stream<Event> streamAllBy();
+}
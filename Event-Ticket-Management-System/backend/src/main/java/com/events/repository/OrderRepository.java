@@ -1,13 +1,52 @@
 package com.events.repository;
 
 import com.events.model.Order;
+import com.events.model.SalesBucket;
+import com.events.model.SalesRollup;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.mongodb.repository.Aggregation;
+import org.springframework.data.mongodb.repository.Meta;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface OrderRepository extends MongoRepository<Order, String> {
     List<Order> findByUserId(String userId);
     List<Order> findByEventId(String eventId);
     List<Order> findByEventIdIn(List<String> eventIds);
     List<Order> findByCreatedAtAfter(Date date);
-}
\ No newline at end of file
+    
+    @Aggregation(pipeline = {
+        "{ $match: { eventId: { $in: ?0 }, status: { $nin: ['PENDING', 'EXPIRED', 'CANCELED', 'REFUNDED'] } } }",
+        "{ $group: { _id: '$userId' } }",
+        "{ $count: 'attendeeCount' }"
+    })
+    Long countAttendeesByEventIdIn(List<String> eventIds);
+    
+    // Per-event sales and refunds of the orders created before the given date, used to
+    // rebuild the sales rollups from scratch. Revenue falls back to quantity * unitPrice
+    // for orders saved without a totalAmount, the same way Order.getTotalAmount() does
+    @Aggregation(pipeline = {
+        "{ $match: { status: { $nin: ['PENDING', 'EXPIRED'] }, createdAt: { $lt: ?0 } } }",
+        "{ $project: { eventId: 1, quantity: 1, amount: { $cond: [ { $ne: ['$totalAmount', 0] }, '$totalAmount', { $multiply: ['$quantity', '$unitPrice'] } ] }, refunded: { $in: ['$status', ['CANCELED', 'REFUNDED']] } } }",
+        "{ $group: { _id: '$eventId', ticketsSold: { $sum: '$quantity' }, grossRevenue: { $sum: '$amount' }, refundedTickets: { $sum: { $cond: ['$refunded', '$quantity', 0] } }, refundedRevenue: { $sum: { $cond: ['$refunded', '$amount', 0] } } } }"
+    })
+    List<SalesRollup> sumSalesByEvent(Date before);
+    
+    // Completed orders per event and time bucket of bucketMillis created between from and
+    // before, used to rebuild the sales time series. The series field holds the bare event id
+    @Meta(allowDiskUse = true)
+    @Aggregation(pipeline = {
+        "{ $match: { status: 'COMPLETED', createdAt: { $gte: ?1, $lt: ?2 } } }",
+        "{ $group: { _id: { eventId: '$eventId', start: { $subtract: [ { $toLong: '$createdAt' }, { $mod: [ { $toLong: '$createdAt' }, ?0 ] } ] } }, orders: { $sum: 1 }, tickets: { $sum: '$quantity' }, revenue: { $sum: { $cond: [ { $ne: ['$totalAmount', 0] }, '$totalAmount', { $multiply: ['$quantity', '$unitPrice'] } ] } } } }",
+        "{ $project: { _id: 0, series: '$_id.eventId', start: { $toDate: '$_id.start' }, orders: 1, tickets: 1, revenue: 1 } }"
+    })
+    Stream<SalesBucket> sumSalesByEventAndBucket(long bucketMillis, Date from, Date before);
+    
+    // Keyset pagination and cursor streaming for the list endpoints
+    Slice<Order> findAllBy(Pageable pageable);
+    Slice<Order> findByIdGreaterThan(String id, Pageable pageable);
+    Stream<Order> streamAllBy();
+}
@@ -0,0 +1,23 @@
+package com.events.repository;
+
+import com.events.model.SalesBucket;
+import org.springframework.data.domain.Range;
+import org.springframework.data.mongodb.repository.Aggregation;
+import org.springframework.data.mongodb.repository.Meta;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface SalesBucketRepository extends MongoRepository<SalesBucket, String> {
+    List<SalesBucket> findBySeriesAndResolutionAndStartBetween(String series, String resolution, Range<Date> range);
+    
+    // Tickets and revenue per event series over the hour buckets since the given date.
+    // The id of each result is the series, e.g. "event:42"
+    @Meta(allowDiskUse = true)
+    @Aggregation(pipeline = {
+        "{ $match: { series: { $regex: '^event:' }, resolution: 'hour', start: { $gte: ?0 } } }",
+        "{ $group: { _id: '$series', tickets: { $sum: '$tickets' }, revenue: { $sum: '$revenue' } } }"
+    })
+    Stream<SalesBucket> sumEventSalesSince(Date from);
+}
@@ -0,0 +1,12 @@
+package com.events.repository;
+
+import com.events.model.SalesRollup;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import java.util.stream.Stream;
+
+public interface SalesRollupRepository extends MongoRepository<SalesRollup, String> {
+    // All per-event rollups, by the id prefix so the _id index bounds the scan
+    @Query("{ '_id': { $regex: '^event:' } }")
+    Stream<SalesRollup> streamEventRollups();
+}
@@ -1,8 +1,11 @@
 package com.events.repository;
 
 import com.events.model.Ticket;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface TicketRepository extends MongoRepository<Ticket, String> {
     List<Ticket> findByEventId(String eventId);
@@ -12,4 +15,12 @@ public interface TicketRepository extends MongoRepository<Ticket, String> {
     List<Ticket> findByUserId(String userId);
     
     List<Ticket> findByEventIdAndUserId(String eventId, String userId);
-}
\ No newline at end of file
+    
+    // Keyset pagination and cursor streaming for the list endpoints
+    Slice<Ticket> findAllBy(Pageable pageable);
+    Slice<Ticket> findByIdGreaterThan(String id, Pageable pageable);
+    Stream<Ticket> streamAllBy();
+    Slice<Ticket> findByEventId(String eventId, Pageable pageable);
+    Slice<Ticket> findByEventIdAndIdGreaterThan(String eventId, String id, Pageable pageable);
+    Stream<Ticket> streamByEventId(String eventId);
+}
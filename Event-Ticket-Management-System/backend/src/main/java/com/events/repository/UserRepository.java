@@ -1,12 +1,32 @@
 package com.events.repository;
 
+import com.events.model.SalesBucket;
 import com.events.model.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.mongodb.repository.Aggregation;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface UserRepository extends MongoRepository<User, String> {
     User findByEmail(String email);
     List<User> findByCreatedAtAfter(Date date);
     List<User> findByCreatedAtAfterOrderByCreatedAtDesc(Date date);
-}
\ No newline at end of file
+    long countByCreatedAtAfter(Date date);
+    List<User> findTop5ByOrderByCreatedAtDesc();
+    
+    // Signups per time bucket of bucketMillis between from and before, for the sales time series
+    @Aggregation(pipeline = {
+        "{ $match: { createdAt: { $gte: ?1, $lt: ?2 } } }",
+        "{ $group: { _id: { $subtract: [ { $toLong: '$createdAt' }, { $mod: [ { $toLong: '$createdAt' }, ?0 ] } ] }, signups: { $sum: 1 } } }",
+        "{ $project: { _id: 0, start: { $toDate: '$_id' }, signups: 1 } }"
+    })
+    List<SalesBucket> countSignupsByBucket(long bucketMillis, Date from, Date before);
+    
+    // Keyset pagination and cursor streaming for the list endpoints
+    Slice<User> findAllBy(Pageable pageable);
+    Slice<User> findByIdGreaterThan(String id, Pageable pageable);
+    Stream<User> streamAllBy();
+}
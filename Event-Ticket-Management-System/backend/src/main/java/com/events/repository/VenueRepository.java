@@ -1,7 +1,14 @@
 package com.events.repository;
 
 import com.events.model.Venue;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import java.util.stream.Stream;
 
 public interface VenueRepository extends MongoRepository<Venue, String> {
-}
\ No newline at end of file
+    // Keyset pagination and cursor streaming for the list endpoints
+    Slice<Venue> findAllBy(Pageable pageable);
+    Slice<Venue> findByIdGreaterThan(String id, Pageable pageable);
+    Stream<Venue> streamAllBy();
+}
@@ -0,0 +1,92 @@
+package com.events.service;
+
+import com.events.config.AsyncConfig;
+import com.events.model.Event;
+import com.events.model.Order;
+import com.events.model.TicketType;
+import com.events.model.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking facade over the purchase and catalog services for the /api/v2
+ * endpoints. Work runs on the bounded purchase executor so the servlet request
+ * thread is released immediately, and independent lookups run concurrently.
+ */
+@Service
+public class AsyncOrderService {
+    
+    @Autowired
+    private OrderService orderService;
+    
+    @Autowired
+    private EventService eventService;
+    
+    @Autowired
+    private UserService userService;
+    
+    @Autowired
+    private IdempotencyService idempotencyService;
+    
+    @Autowired
+    @Qualifier(AsyncConfig.PURCHASE_EXECUTOR)
+    private AsyncTaskExecutor executor;
+    
+    public CompletableFuture<Optional<Event>> getEventById(String id) {
+        return CompletableFuture.supplyAsync(() -> eventService.getEventById(id), executor);
+    }
+    
+    public CompletableFuture<Optional<Order>> getOrderById(String id) {
+        return CompletableFuture.supplyAsync(() -> orderService.getOrderById(id), executor);
+    }
+    
+    /**
+     * Answers a replayed idempotency key with its stored order, otherwise validates
+     * the buyer and the event in parallel and then places the order.
+     *
+     * @throws java.util.concurrent.RejectedExecutionException if the purchase
+     *         executor is full; later stages fail with it instead
+     */
+    public CompletableFuture<Order> createOrder(String userId, String eventId, TicketType ticketType,
+                                                int quantity, double unitPrice, String paymentMethod,
+                                                String admissionToken, String idempotencyKey) {
+        String request = IdempotencyService.requestOf(userId, eventId, ticketType, quantity, unitPrice, paymentMethod);
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return placeOrder(userId, eventId, ticketType, quantity, unitPrice, paymentMethod,
+                    admissionToken, null, request);
+        }
+        return CompletableFuture.supplyAsync(() -> idempotencyService.findCompleted("orders", idempotencyKey, request),
+                        executor)
+                .thenCompose(replayed -> replayed.map(CompletableFuture::completedFuture)
+                        .orElseGet(() -> placeOrder(userId, eventId, ticketType, quantity, unitPrice, paymentMethod,
+                                admissionToken, idempotencyKey, request)));
+    }
+    
+    private CompletableFuture<Order> placeOrder(String userId, String eventId, TicketType ticketType,
+                                                int quantity, double unitPrice, String paymentMethod,
+                                                String admissionToken, String idempotencyKey, String request) {
+        CompletableFuture<Optional<User>> user =
+                CompletableFuture.supplyAsync(() -> userService.getUserById(userId), executor);
+        CompletableFuture<Optional<Event>> event =
+                CompletableFuture.supplyAsync(() -> eventService.getEventById(eventId), executor);
+        
+        return user.thenCombine(event, (foundUser, foundEvent) -> {
+                    if (foundUser.isEmpty()) {
+                        throw new IllegalArgumentException("User not found with ID: " + userId);
+                    }
+                    if (foundEvent.isEmpty()) {
+                        throw new IllegalArgumentException("Event not found with ID: " + eventId);
+                    }
+                    return foundEvent.get();
+                })
+                .thenApplyAsync(found -> idempotencyService.execute("orders", idempotencyKey, request,
+                        orderId -> orderService.createOrder(userId, eventId, ticketType, quantity, unitPrice,
+                                paymentMethod, admissionToken, orderId)),
+                        executor);
+    }
+}
@@ -1,17 +1,32 @@
 package com.events.service;
 
+import com.events.config.AsyncConfig;
 import com.events.model.Event;
-import com.events.model.Order;
+import com.events.model.SalesBucket;
+import com.events.model.SalesRollup;
 import com.events.model.User;
+import com.events.model.UserRole;
 import com.events.repository.EventRepository;
-import com.events.repository.OrderRepository;
 import com.events.repository.UserRepository;
+import com.events.util.MetricsRegistry;
+import org.bson.Document;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDate;
-import java.time.ZoneId;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -26,101 +41,91 @@ public class DashboardService {
     private EventRepository eventRepository;
     
     @Autowired
-    private OrderRepository orderRepository;
+    private SalesRollupService salesRollupService;
+    
+    @Autowired
+    private AttendeeCountService attendeeCountService;
+    
+    @Autowired
+    private SalesTimeSeriesService salesTimeSeriesService;
+    
+    @Autowired
+    private TopEventsService topEventsService;
+    
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+    
+    @Autowired
+    @Qualifier(AsyncConfig.DASHBOARD_EXECUTOR)
+    private AsyncTaskExecutor dashboardExecutor;
+    
+    @Value("${dashboard.growth-days:7}")
+    private int growthDays;
+    
+    @Value("${dashboard.query-timeout-ms:2000}")
+    private long queryTimeoutMillis;
 
     /**
      * Get admin dashboard metrics with comprehensive error handling
      */
     public Map<String, Object> getDashboardMetrics() {
+        return metricsRegistry.timer("dashboard.metrics", "view", "admin").record(this::buildDashboardMetrics);
+    }
+
+    private Map<String, Object> buildDashboardMetrics() {
         Map<String, Object> metrics = new HashMap<>();
         
         try {
-            logger.info("Generating admin dashboard metrics");
-            
-            // Basic counts with error handling
-            long userCount = 0;
-            try {
-                userCount = userRepository.count();
-                logger.info("User count: {}", userCount);
-            } catch (Exception e) {
-                logger.error("Error counting users", e);
-            }
-            
-            long eventCount = 0;
-            try {
-                eventCount = eventRepository.count();
-                logger.info("Event count: {}", eventCount);
-            } catch (Exception e) {
-                logger.error("Error counting events", e);
-            }
-            
-            // Fetch all orders with defensive coding
-            List<Order> allOrders = new ArrayList<>();
-            try {
-                allOrders = orderRepository.findAll();
-                logger.info("Retrieved {} orders", allOrders.size());
-            } catch (Exception e) {
-                logger.error("Error fetching orders", e);
-            }
-            
-            // Calculate metrics safely with more detailed error handling
-            long ticketCount = 0;
-            double totalRevenue = 0.0;
+            logger.debug("Generating admin dashboard metrics");
             
-            try {
-                ticketCount = calculateTicketCount(allOrders);
-                totalRevenue = calculateTotalRevenue(allOrders);
-                logger.info("Calculated: ticketCount={}, revenue={}", ticketCount, totalRevenue);
-            } catch (Exception e) {
-                logger.error("Error calculating sales metrics", e);
-            }
-
-            // Set metrics safely
-            metrics.put("userCount", userCount);
-            metrics.put("eventCount", eventCount);
-            metrics.put("ticketCount", ticketCount);
-            metrics.put("revenue", totalRevenue);
+            // The sub-queries are independent, so run them all at once. Each one falls
+            // back to a default on error or after queryTimeoutMillis, so the response
+            // takes about as long as the slowest query and never blocks on a stuck one.
+            List<String> degraded = Collections.synchronizedList(new ArrayList<>());
+            CompletableFuture<Long> userCount = query("userCount", userRepository::count, () -> 0L, degraded);
+            CompletableFuture<Long> eventCount = query("eventCount", eventRepository::count, () -> 0L, degraded);
+            // Tickets and revenue come from the maintained sales rollup
+            CompletableFuture<SalesRollup> totals = query("sales",
+                    salesRollupService::getGlobalRollup, SalesRollup::new, degraded);
+            // Growth of the last growth-days days over the same period before, in percent
+            CompletableFuture<Map<String, Double>> growth = query("growth",
+                    () -> salesTimeSeriesService.getGrowth(SalesBucket.SERIES_GLOBAL, growthDays),
+                    Collections::emptyMap, degraded);
+            // Fallbacks are empty, never made-up data; "degraded" names the queries that used them
+            CompletableFuture<List<Map<String, Object>>> topEvents = query("topEvents",
+                    this::getTopEventsData, ArrayList::new, degraded);
+            CompletableFuture<List<Map<String, Object>>> recentUsers = query("recentUsers",
+                    this::getRecentUsersData, ArrayList::new, degraded);
+            CompletableFuture<List<Map<String, Object>>> upcomingEvents = query("upcomingEvents",
+                    this::getUpcomingEventsData, ArrayList::new, degraded);
+            CompletableFuture<Map<String, Object>> usersByRole = query("usersByRole",
+                    this::getUsersByRoleData, DashboardService::emptyUsersByRole, degraded);
             
-            // Add default values for growth metrics
-            metrics.put("userGrowth", 5);
-            metrics.put("eventGrowth", 8);
-            metrics.put("ticketGrowth", 10);
-            metrics.put("revenueGrowth", 7);
+            metrics.put("userCount", userCount.join());
+            metrics.put("eventCount", eventCount.join());
+            metrics.put("ticketCount", totals.join().getNetTickets());
+            metrics.put("revenue", totals.join().getNetRevenue());
             
-            // Add sample or real data for other metrics
-            try {
-                List<Map<String, Object>> topEvents = getTopEventsData(allOrders);
-                metrics.put("topEvents", topEvents);
-            } catch (Exception e) {
-                logger.error("Error getting top events", e);
-                metrics.put("topEvents", getSampleTopEvents());
-            }
+            Map<String, Double> growthRates = growth.join();
+            metrics.put("userGrowth", growthRates.getOrDefault("signups", 0.0));
+            metrics.put("eventGrowth", growthRates.getOrDefault("eventsCreated", 0.0));
+            metrics.put("ticketGrowth", growthRates.getOrDefault("tickets", 0.0));
+            metrics.put("revenueGrowth", growthRates.getOrDefault("revenue", 0.0));
             
-            try {
-                List<Map<String, Object>> recentUsers = getRecentUsersData();
-                metrics.put("recentUsers", recentUsers);
-            } catch (Exception e) {
-                logger.error("Error getting recent users", e);
-                metrics.put("recentUsers", getSampleRecentUsers());
-            }
-            
-            try {
-                List<Map<String, Object>> upcomingEvents = getUpcomingEventsData();
-                metrics.put("upcomingEvents", upcomingEvents);
-            } catch (Exception e) {
-                logger.error("Error getting upcoming events", e);
-                metrics.put("upcomingEvents", getSampleUpcomingEvents());
-            }
+            metrics.put("topEvents", topEvents.join());
+            metrics.put("recentUsers", recentUsers.join());
+            metrics.put("upcomingEvents", upcomingEvents.join());
+            metrics.put("usersByRole", usersByRole.join());
             
-            try {
-                Map<String, Object> usersByRole = getUsersByRoleData();
-                metrics.put("usersByRole", usersByRole);
-            } catch (Exception e) {
-                logger.error("Error getting users by role", e);
-                metrics.put("usersByRole", getSampleUsersByRole());
+            // Lets the frontend tell a partial dashboard from a complete one
+            if (!degraded.isEmpty()) {
+                metrics.put("degraded", new ArrayList<>(degraded));
             }
             
-            logger.info("Admin dashboard metrics generated successfully");
+            logger.debug("Admin dashboard metrics generated successfully");
             
         } catch (Exception e) {
             logger.error("Error generating dashboard metrics", e);
@@ -137,109 +142,114 @@ public class DashboardService {
             metrics.put("topEvents", new ArrayList<>());
             metrics.put("recentUsers", new ArrayList<>());
             metrics.put("upcomingEvents", new ArrayList<>());
-            
-            Map<String, Object> emptyUsersByRole = new HashMap<>();
-            emptyUsersByRole.put("customers", 0);
-            emptyUsersByRole.put("organizers", 0);
-            emptyUsersByRole.put("admins", 0);
-            emptyUsersByRole.put("newUsers", 0);
-            metrics.put("usersByRole", emptyUsersByRole);
+            metrics.put("usersByRole", emptyUsersByRole());
         }
         
         return metrics;
     }
-
-    // Add these methods to implement real data retrieval with fallbacks
-
-    private List<Map<String, Object>> getTopEventsData(List<Order> allOrders) {
-        // Implementation with real data
-        // If this fails, the calling method will fall back to sample data
-        return getSampleTopEvents(); // For now, return sample data
+    
+    private static Map<String, Object> emptyUsersByRole() {
+        Map<String, Object> roles = new HashMap<>();
+        roles.put("customers", 0);
+        roles.put("organizers", 0);
+        roles.put("admins", 0);
+        roles.put("newUsers", 0);
+        return roles;
     }
-
-    private List<Map<String, Object>> getRecentUsersData() {
-        // Implementation with real data
-        // If this fails, the calling method will fall back to sample data
-        return getSampleRecentUsers(); // For now, return sample data
+    
+    /**
+     * Runs one dashboard sub-query on the dashboard executor. The future never
+     * fails: on an error, a timeout or a full executor it completes with the
+     * fallback, and the query name is added to {@code degraded}. A query that
+     * times out is cancelled, which interrupts its thread, so a stuck query does
+     * not keep holding a pool thread after the dashboard has moved on.
+     */
+    private <T> CompletableFuture<T> query(String name, Supplier<T> query, Supplier<T> fallback, List<String> degraded) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = dashboardExecutor.submit(() -> {
+                try {
+                    result.complete(query.get());
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            task = null;
+            result.completeExceptionally(e);
+        }
+        Future<?> running = task;
+        return result
+                .orTimeout(queryTimeoutMillis, TimeUnit.MILLISECONDS)
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof TimeoutException) {
+                        logger.warn("Dashboard query {} timed out after {} ms", name, queryTimeoutMillis);
+                        if (running != null) {
+                            running.cancel(true);
+                        }
+                    } else {
+                        logger.error("Error getting dashboard {}", name, cause);
+                    }
+                    metricsRegistry.counter("dashboard.degraded", "query", name).increment();
+                    degraded.add(name);
+                    return fallback.get();
+                });
     }
 
-    private List<Map<String, Object>> getUpcomingEventsData() {
-        // Implementation with real data
-        // If this fails, the calling method will fall back to sample data
-        return getSampleUpcomingEvents(); // For now, return sample data
-    }
+    // Add these methods to implement real data retrieval with fallbacks
 
-    private Map<String, Object> getUsersByRoleData() {
-        // Implementation with real data
-        // If this fails, the calling method will fall back to sample data
-        return getSampleUsersByRole(); // For now, return sample data
+    private List<Map<String, Object>> getTopEventsData() {
+        // If this fails, the calling method falls back to an empty value
+        return topEventsService.getTopEvents(TopEventsService.Window.ALL_TIME, TopEventsService.BY_TICKETS, 5);
     }
 
-    // Sample data methods for when real data can't be calculated
-    private List<Map<String, Object>> getSampleTopEvents() {
-        List<Map<String, Object>> topEvents = new ArrayList<>();
-        
-        for (int i = 1; i <= 5; i++) {
-            Map<String, Object> event = new HashMap<>();
-            event.put("id", "sample-event-" + i);
-            event.put("title", "Sample Event " + i);
-            event.put("ticketsSold", (6 - i) * 20); // More for lower i values
-            event.put("revenue", (6 - i) * 20 * 50.0); // $50 per ticket
-            topEvents.add(event);
-        }
-        
-        return topEvents;
-    }
-    
-    private List<Map<String, Object>> getSampleRecentUsers() {
+    private List<Map<String, Object>> getRecentUsersData() {
         List<Map<String, Object>> users = new ArrayList<>();
-        
-        String[] names = {"John Doe", "Jane Smith", "Mike Johnson", "Sarah Williams", "David Brown"};
-        for (int i = 0; i < names.length; i++) {
-            Map<String, Object> user = new HashMap<>();
-            user.put("id", "sample-user-" + (i + 1));
-            user.put("name", names[i]);
-            user.put("email", names[i].toLowerCase().replace(" ", ".") + "@example.com");
-            user.put("activity", "Joined the platform");
-            user.put("timestamp", new Date().toString());
-            users.add(user);
+        for (User user : userRepository.findTop5ByOrderByCreatedAtDesc()) {
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("id", user.getId());
+            entry.put("name", user.getName());
+            entry.put("email", user.getEmail());
+            entry.put("activity", "Joined the platform");
+            entry.put("timestamp", user.getCreatedAt() != null ? user.getCreatedAt().toString() : null);
+            users.add(entry);
         }
-        
         return users;
     }
-    
-    private List<Map<String, Object>> getSampleUpcomingEvents() {
+
+    private List<Map<String, Object>> getUpcomingEventsData() {
         List<Map<String, Object>> events = new ArrayList<>();
-        
-        String[] titles = {
-            "Summer Music Festival",
-            "Tech Conference 2025",
-            "Food & Wine Expo",
-            "International Film Festival",
-            "Business Networking Event"
-        };
-        
-        for (int i = 0; i < titles.length; i++) {
-            Map<String, Object> event = new HashMap<>();
-            event.put("id", "sample-upcoming-" + (i + 1));
-            event.put("title", titles[i]);
-            
-            // Generate a date in the next 30 days
-            LocalDate date = LocalDate.now().plusDays(i * 5 + 3);
-            event.put("date", Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant()).toString());
-            
-            events.add(event);
+        // Served by the published_eventDate index
+        for (Event event : eventRepository.findTop5ByPublishedTrueAndEventDateAfterOrderByEventDateAsc(LocalDateTime.now())) {
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("id", event.getId());
+            entry.put("title", event.getTitle());
+            entry.put("date", event.getEventDate().toString());
+            events.add(entry);
         }
-        
         return events;
     }
-    
-    private Map<String, Object> getSampleUsersByRole() {
-        Map<String, Object> roles = new HashMap<>();
-        roles.put("customers", 85);
-        roles.put("organizers", 12);
-        roles.put("admins", 3);
-        roles.put("newUsers", 15);
+
+    private Map<String, Object> getUsersByRoleData() {
+        Map<String, Object> roles = emptyUsersByRole();
+        // One pass over the users instead of a count query per role
+        Aggregation byRole = Aggregation.newAggregation(Aggregation.group("role").count().as("count"));
+        for (Document row : mongoTemplate.aggregate(byRole, User.class, Document.class)) {
+            Object role = row.get("_id");
+            long count = ((Number) row.get("count")).longValue();
+            if (UserRole.CUSTOMER.name().equals(role)) {
+                roles.put("customers", count);
+            } else if (UserRole.ORGANIZER.name().equals(role)) {
+                roles.put("organizers", count);
+            } else if (UserRole.ADMIN.name().equals(role)) {
+                roles.put("admins", count);
+            }
+        }
+        // Signups within the growth window, counted on the createdAt index
+        Date since = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(growthDays));
+        roles.put("newUsers", userRepository.countByCreatedAtAfter(since));
         return roles;
     }
 
@@ -247,6 +257,11 @@ public class DashboardService {
      * Get organizer-specific dashboard metrics
      */
     public Map<String, Object> getOrganizerDashboardMetrics(String organizerId) {
+        return metricsRegistry.timer("dashboard.metrics", "view", "organizer")
+                .record(() -> buildOrganizerDashboardMetrics(organizerId));
+    }
+
+    private Map<String, Object> buildOrganizerDashboardMetrics(String organizerId) {
         Map<String, Object> metrics = new HashMap<>();
         
         if (organizerId == null || organizerId.isEmpty()) {
@@ -256,13 +271,13 @@ public class DashboardService {
         
         try {
             // Rest of the method stays the same
-            logger.info("Generating organizer dashboard metrics for ID: {}", organizerId);
+            logger.debug("Generating organizer dashboard metrics for ID: {}", organizerId);
             
             // Find events by this organizer
             List<Event> organizerEvents = new ArrayList<>();
             try {
                 organizerEvents = eventRepository.findByOrganizerId(organizerId);
-                logger.info("Found {} events for organizer {}", organizerEvents.size(), organizerId);
+                logger.debug("Found {} events for organizer {}", organizerEvents.size(), organizerId);
             } catch (Exception e) {
                 logger.error("Error finding organizer events", e);
             }
@@ -276,6 +291,7 @@ public class DashboardService {
             long attendeeCount = 0;
             
             // Calculate real metrics only if there are events
+            Map<String, SalesRollup> eventRollups = new HashMap<>();
             if (!organizerEvents.isEmpty()) {
                 // Get all event IDs
                 List<String> eventIds = new ArrayList<>();
@@ -283,28 +299,17 @@ public class DashboardService {
                     eventIds.add(event.getId());
                 }
                 
-                // Get orders for these events
+                // One small rollup document per event instead of the orders themselves
                 try {
-                    List<Order> eventOrders = orderRepository.findByEventIdIn(eventIds);
-                    
-                    // Calculate tickets sold
-                    ticketCount = calculateTicketCount(eventOrders);
-                    
-                    // Calculate revenue
-                    revenue = calculateTotalRevenue(eventOrders);
-                    
-                    // Calculate unique attendees
-                    Set<String> uniqueAttendees = new HashSet<>();
-                    for (Order order : eventOrders) {
-                        try {
-                            uniqueAttendees.add(order.getUserId());
-                        } catch (Exception e) {
-                            // Skip orders with invalid user IDs
-                        }
+                    eventRollups = salesRollupService.getEventRollups(eventIds);
+                    for (SalesRollup rollup : eventRollups.values()) {
+                        ticketCount += rollup.getNetTickets();
+                        revenue += rollup.getNetRevenue();
                     }
-                    attendeeCount = uniqueAttendees.size();
                     
-                    logger.info("Organizer metrics: tickets={}, revenue={}, attendees={}", 
+                    attendeeCount = attendeeCountService.countAttendees(eventIds);
+                    
+                    logger.debug("Organizer metrics: tickets={}, revenue={}, attendees={}", 
                             ticketCount, revenue, attendeeCount);
                 } catch (Exception e) {
                     logger.error("Error calculating organizer metrics", e);
@@ -324,6 +329,10 @@ public class DashboardService {
                     eventData.put("id", event.getId());
                     eventData.put("title", event.getTitle());
                     
+                    SalesRollup rollup = eventRollups.get(event.getId());
+                    eventData.put("ticketsSold", rollup != null ? rollup.getNetTickets() : 0L);
+                    eventData.put("revenue", rollup != null ? rollup.getNetRevenue() : 0.0);
+                    
                     if (event.getEventDate() != null) {
                         eventData.put("date", event.getEventDate().toString());
                     } else {
@@ -337,7 +346,7 @@ public class DashboardService {
             }
             
             metrics.put("eventPerformance", eventPerformance);
-            logger.info("Organizer dashboard metrics generated successfully");
+            logger.debug("Organizer dashboard metrics generated successfully");
             
         } catch (Exception e) {
             logger.error("Error generating organizer dashboard metrics", e);
@@ -351,51 +360,4 @@ public class DashboardService {
         
         return metrics;
     }
-
-    private double calculateTotalRevenue(List<Order> orders) {
-        double revenue = 0.0;
-        
-        if (orders == null) {
-            return 0.0;
-        }
-        
-        for (Order order : orders) {
-            try {
-                if (order != null) {
-                    // Try to get the total amount first
-                    try {
-                        double totalAmount = order.getTotalAmount();
-                        revenue += totalAmount;
-                    } catch (Exception e) {
-                        // Log the exception details for debugging
-                        logger.warn("Error getting totalAmount, falling back to calculation: {}", e.getMessage());
-                        
-                        // Fall back to quantity * unitPrice
-                        int quantity = order.getQuantity();
-                        double unitPrice = order.getUnitPrice();
-                        revenue += quantity * unitPrice;
-                    }
-                }
-            } catch (Exception e) {
-                // This is a more general exception - e.g. if getQuantity or getUnitPrice fails
-                logger.error("Error processing order for revenue calculation: {}", e.getMessage());
-            }
-        }
-        
-        return revenue;
-    }
-
-    private long calculateTicketCount(List<Order> orders) {
-        long count = 0;
-        for (Order order : orders) {
-            try {
-                if (order != null) {
-                    count += order.getQuantity();
-                }
-            } catch (Exception e) {
-                logger.warn("Error getting quantity for order", e);
-            }
-        }
-        return count;
-    }
 }
\ No newline at end of file
@@ -0,0 +1,277 @@
+package com.events.service;
+
+import com.events.config.AsyncConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Serves the dashboards from precomputed snapshots instead of recomputing them
+ * on every poll.
+ *
+ * A snapshot is stale once it is {@code dashboard.snapshot.max-age-ms} old, or
+ * {@code dashboard.snapshot.min-age-ms} old while sales or refunds have been
+ * recorded since it was taken. A stale snapshot is still served, and a refresh is
+ * started on the dashboard refresh executor; only the first request for a
+ * dashboard waits for it to be computed. At most one computation per dashboard
+ * runs at a time, and concurrent first requests all wait for that same one. The
+ * admin snapshot is also refreshed on a schedule while someone has looked at it
+ * within {@code dashboard.snapshot.idle-ms}. Organizer snapshots live in an LRU
+ * map of at most {@code dashboard.snapshot.organizer-capacity} entries.
+ *
+ * Results that carry an "error" are returned but never cached, so a failed
+ * refresh leaves the previous snapshot in place. A "degraded" result, where some
+ * sub-queries fell back to empty values, does not replace a complete snapshot
+ * either. It is only cached when there is nothing else to serve, and is then
+ * stale after {@code dashboard.snapshot.min-age-ms} regardless of sales.
+ */
+@Service
+public class DashboardSnapshotService {
+    private static final Logger logger = LoggerFactory.getLogger(DashboardSnapshotService.class);
+
+    private static final String ADMIN_KEY = "admin";
+    private static final String ORGANIZER_KEY_PREFIX = "organizer:";
+
+    @Autowired
+    private DashboardService dashboardService;
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    @Qualifier(AsyncConfig.DASHBOARD_REFRESH_EXECUTOR)
+    private Executor refreshExecutor;
+
+    @Value("${dashboard.snapshot.min-age-ms:2000}")
+    private long minAgeMillis;
+
+    @Value("${dashboard.snapshot.max-age-ms:30000}")
+    private long maxAgeMillis;
+
+    @Value("${dashboard.snapshot.idle-ms:300000}")
+    private long idleMillis;
+
+    private volatile Snapshot adminSnapshot;
+
+    private volatile long adminReadNanos;
+
+    private final Map<String, Snapshot> organizerSnapshots;
+
+    // Snapshot computations in progress, by dashboard
+    private final Map<String, CompletableFuture<Snapshot>> inFlight = new ConcurrentHashMap<>();
+
+    // A monitor-based map is fine here: it only guards in-memory gets and puts, and
+    // organizer dashboards see far less traffic than the catalog caches
+    public DashboardSnapshotService(@Value("${dashboard.snapshot.organizer-capacity:1000}") int organizerCapacity) {
+        this.organizerSnapshots = Collections.synchronizedMap(new LinkedHashMap<String, Snapshot>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Snapshot> eldest) {
+                return size() > organizerCapacity;
+            }
+        });
+    }
+
+    public Snapshot getAdminSnapshot() {
+        adminReadNanos = System.nanoTime();
+        Snapshot snapshot = adminSnapshot;
+        if (snapshot == null) {
+            return loadNow(ADMIN_KEY, this::computeAdmin);
+        }
+        if (isStale(snapshot)) {
+            load(ADMIN_KEY, this::computeAdmin, true);
+        }
+        return snapshot;
+    }
+
+    public Snapshot getOrganizerSnapshot(String organizerId) {
+        String key = ORGANIZER_KEY_PREFIX + organizerId;
+        Snapshot snapshot = organizerSnapshots.get(organizerId);
+        if (snapshot == null) {
+            return loadNow(key, () -> computeOrganizer(organizerId));
+        }
+        if (isStale(snapshot)) {
+            load(key, () -> computeOrganizer(organizerId), true);
+        }
+        return snapshot;
+    }
+
+    @Scheduled(fixedDelayString = "${dashboard.snapshot.check-interval-ms:1000}")
+    public void refreshIfStale() {
+        Snapshot snapshot = adminSnapshot;
+        boolean watched = System.nanoTime() - adminReadNanos < TimeUnit.MILLISECONDS.toNanos(idleMillis);
+        if (snapshot != null && watched && isStale(snapshot)) {
+            load(ADMIN_KEY, this::computeAdmin, true);
+        }
+    }
+
+    /**
+     * Computes a snapshot, unless one for the same dashboard is already being
+     * computed, in which case that computation is shared. In the background the
+     * work runs on the refresh executor, otherwise on the calling thread.
+     */
+    private CompletableFuture<Snapshot> load(String key, Supplier<Snapshot> computation, boolean background) {
+        CompletableFuture<Snapshot> future = new CompletableFuture<>();
+        CompletableFuture<Snapshot> running = inFlight.putIfAbsent(key, future);
+        if (running != null) {
+            return running;
+        }
+
+        Runnable task = () -> {
+            try {
+                future.complete(computation.get());
+            } catch (RuntimeException e) {
+                logger.error("Error computing the {} dashboard snapshot", key, e);
+                future.completeExceptionally(e);
+            } finally {
+                inFlight.remove(key, future);
+            }
+        };
+        if (!background) {
+            task.run();
+            return future;
+        }
+        try {
+            refreshExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // The stale snapshot is served until a later read or check gets through
+            logger.warn("Dashboard refresh executor is full, skipping snapshot refresh");
+            inFlight.remove(key, future);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    // Waits for the snapshot, computing it on this thread unless a computation is already running
+    private Snapshot loadNow(String key, Supplier<Snapshot> computation) {
+        try {
+            return load(key, computation, false).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RejectedExecutionException) {
+                // The shared refresh never ran, so compute the snapshot here instead
+                return loadNow(key, computation);
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private Snapshot computeAdmin() {
+        Snapshot snapshot = compute(dashboardService::getDashboardMetrics);
+        if (shouldCache(adminSnapshot, snapshot)) {
+            adminSnapshot = snapshot;
+        }
+        return snapshot;
+    }
+
+    private Snapshot computeOrganizer(String organizerId) {
+        Snapshot snapshot = compute(() -> dashboardService.getOrganizerDashboardMetrics(organizerId));
+        if (shouldCache(organizerSnapshots.get(organizerId), snapshot)) {
+            organizerSnapshots.put(organizerId, snapshot);
+        }
+        return snapshot;
+    }
+
+    private Snapshot compute(Supplier<Map<String, Object>> metrics) {
+        // Read the change count first, so sales recorded while computing make the snapshot stale
+        long changeCount = salesRollupService.getChangeCount();
+        long computedNanos = System.nanoTime();
+        Map<String, Object> values = metrics.get();
+        return new Snapshot(values, etagFor(values), new Date(), computedNanos, changeCount);
+    }
+
+    // A complete result always replaces the cached one, a degraded one only fills an empty slot
+    private static boolean shouldCache(Snapshot cached, Snapshot fresh) {
+        if (fresh.isFailed()) {
+            return false;
+        }
+        return !fresh.isDegraded() || cached == null || cached.isDegraded();
+    }
+
+    private boolean isStale(Snapshot snapshot) {
+        long age = System.nanoTime() - snapshot.computedNanos;
+        if (age >= TimeUnit.MILLISECONDS.toNanos(maxAgeMillis)) {
+            return true;
+        }
+        return age >= TimeUnit.MILLISECONDS.toNanos(minAgeMillis)
+                && (snapshot.isDegraded() || salesRollupService.getChangeCount() != snapshot.changeCount);
+    }
+
+    // Hash of the metrics alone, without "asOf", so a recomputed but unchanged dashboard
+    // keeps its ETag. The metrics must not contain values that change on every call
+    private String etagFor(Map<String, Object> metrics) {
+        try {
+            return "\"" + DigestUtils.md5DigestAsHex(objectMapper.writeValueAsBytes(metrics)) + "\"";
+        } catch (Exception e) {
+            logger.warn("Could not serialize dashboard metrics for an ETag", e);
+            return "\"" + Long.toHexString(System.nanoTime()) + "\"";
+        }
+    }
+
+    public static final class Snapshot {
+        private final Map<String, Object> metrics;
+        private final String etag;
+        private final Date asOf;
+        private final long computedNanos;
+        private final long changeCount;
+
+        Snapshot(Map<String, Object> metrics, String etag, Date asOf, long computedNanos, long changeCount) {
+            Map<String, Object> body = new LinkedHashMap<>(metrics);
+            body.put("asOf", asOf);
+            this.metrics = Collections.unmodifiableMap(body);
+            this.etag = etag;
+            this.asOf = asOf;
+            this.computedNanos = computedNanos;
+            this.changeCount = changeCount;
+        }
+
+        /**
+         * The dashboard metrics plus the time they were computed under "asOf".
+         */
+        public Map<String, Object> getMetrics() {
+            return metrics;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public Date getAsOf() {
+            return asOf;
+        }
+
+        boolean isFailed() {
+            return metrics.containsKey("error");
+        }
+
+        /**
+         * True if some of the metrics fell back to empty values. Such a snapshot is
+         * served only until a complete one has been computed.
+         */
+        public boolean isDegraded() {
+            return metrics.containsKey("degraded");
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package com.events.service;
+
+import com.events.model.Event;
+import com.events.repository.EventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * In-process inverted index over event title, description and categories.
+ *
+ * Terms are kept in a sorted map so prefix queries are a range scan. A query
+ * matches events that contain every query token (exactly or as a prefix) in any
+ * field; results are ranked by field weight (title, then categories, then
+ * description) with exact matches scoring above prefix matches, and can be
+ * narrowed by category, venue and date range. The index is built at startup and
+ * kept current by {@link EventService} on create, update, publish and delete on
+ * this node. Edits made on other nodes are picked up by a periodic refresh of the
+ * events whose {@code updatedAt} is past the last refresh, and events deleted on
+ * other nodes by a less frequent reconcile against the stored ids.
+ *
+ * Only the terms, venue and date of each event are kept, and a search returns
+ * event ids, so results are always read fresh rather than from shared objects.
+ */
+@Service
+public class EventSearchIndex {
+    private static final Logger logger = LoggerFactory.getLogger(EventSearchIndex.class);
+
+    private static final double TITLE_WEIGHT = 3.0;
+    private static final double CATEGORY_WEIGHT = 2.0;
+    private static final double DESCRIPTION_WEIGHT = 1.0;
+    private static final double PREFIX_FACTOR = 0.5;
+
+    // Edits stamped on another node shortly before the last refresh, or committed
+    // after it, are still picked up by the next one
+    private static final long REFRESH_OVERLAP_MS = 5000;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    // term -> ids of the events containing it
+    private final NavigableMap<String, Set<String>> postings = new ConcurrentSkipListMap<>();
+
+    private final Map<String, IndexedEvent> documents = new ConcurrentHashMap<>();
+
+    // Start time of the last build or refresh, 0 until the index is first built
+    private volatile long lastRefresh;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        postings.clear();
+        documents.clear();
+        try (Stream<Event> events = eventRepository.streamSearchFieldsBy()) {
+            events.forEach(this::index);
+        } catch (Exception e) {
+            logger.error("Error building event search index", e);
+        }
+        lastRefresh = started;
+        logger.info("Indexed {} events for search ({} terms)", documents.size(), postings.size());
+    }
+
+    /**
+     * Re-index the events edited since the previous refresh, on any node.
+     */
+    @Scheduled(fixedDelayString = "${search.index.refresh-interval-ms:5000}")
+    public void refresh() {
+        long since = lastRefresh;
+        if (since == 0) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        int refreshed = 0;
+        try (Stream<Event> events = eventRepository.streamSearchFieldsByUpdatedAtSince(new Date(since - REFRESH_OVERLAP_MS))) {
+            Iterator<Event> iterator = events.iterator();
+            while (iterator.hasNext()) {
+                index(iterator.next());
+                refreshed++;
+            }
+        } catch (Exception e) {
+            logger.error("Error refreshing event search index, will retry", e);
+            return;
+        }
+        lastRefresh = started;
+        logger.debug("Refreshed {} events in the search index", refreshed);
+    }
+
+    /**
+     * Drop events that no longer exist, e.g. deleted on another node.
+     */
+    @Scheduled(fixedDelayString = "${search.index.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        if (lastRefresh == 0) {
+            return;
+        }
+        Set<String> indexed = new HashSet<>(documents.keySet());
+        try (Stream<Event> events = eventRepository.streamIdsBy()) {
+            events.forEach(event -> indexed.remove(event.getId()));
+        } catch (Exception e) {
+            logger.error("Error reconciling event search index", e);
+            return;
+        }
+        // Events indexed during the scan are not in the snapshot, so they are never dropped here
+        indexed.forEach(this::remove);
+        if (!indexed.isEmpty()) {
+            logger.debug("Dropped {} deleted events from the search index", indexed.size());
+        }
+    }
+
+    public void index(Event event) {
+        if (event.getId() == null) {
+            return;
+        }
+        remove(event.getId());
+
+        IndexedEvent document = new IndexedEvent(event.getId(), event.getVenueId(), event.getEventDate(),
+                tokenize(event.getTitle()),
+                tokenize(event.getDescription()),
+                categoryTerms(event.getCategories()));
+        documents.put(event.getId(), document);
+        for (String term : document.allTerms()) {
+            postings.computeIfAbsent(term, key -> ConcurrentHashMap.newKeySet()).add(event.getId());
+        }
+    }
+
+    public void remove(String eventId) {
+        IndexedEvent document = documents.remove(eventId);
+        if (document == null) {
+            return;
+        }
+        for (String term : document.allTerms()) {
+            postings.computeIfPresent(term, (key, ids) -> {
+                ids.remove(eventId);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    /**
+     * Ids of the events matching every token of {@code query}, best match first.
+     * A blank query matches all events, which are then only filtered and ordered
+     * by date.
+     */
+    public List<String> search(String query, String category, String venueId,
+                              LocalDateTime from, LocalDateTime to, int limit) {
+        List<String> tokens = new ArrayList<>(tokenize(query));
+        String categoryTerm = category == null || category.isBlank() ? null : category.trim().toLowerCase(Locale.ROOT);
+
+        Collection<String> candidates;
+        if (tokens.isEmpty()) {
+            candidates = categoryTerm != null
+                    ? postings.getOrDefault(categoryTerm, Set.of())
+                    : documents.keySet();
+        } else {
+            candidates = intersectCandidates(tokens);
+        }
+
+        List<ScoredEvent> results = new ArrayList<>();
+        for (String id : candidates) {
+            IndexedEvent document = documents.get(id);
+            if (document == null || !document.matches(categoryTerm, venueId, from, to)) {
+                continue;
+            }
+            double score = 0.0;
+            boolean allTokensMatch = true;
+            for (String token : tokens) {
+                double tokenScore = document.score(token);
+                if (tokenScore == 0.0) {
+                    allTokensMatch = false;
+                    break;
+                }
+                score += tokenScore;
+            }
+            if (allTokensMatch) {
+                results.add(new ScoredEvent(document, score));
+            }
+        }
+
+        results.sort(Comparator.comparingDouble((ScoredEvent scored) -> -scored.score)
+                .thenComparing(scored -> scored.document.eventDate,
+                        Comparator.nullsLast(Comparator.naturalOrder())));
+
+        List<String> ids = new ArrayList<>(Math.min(limit, results.size()));
+        for (int i = 0; i < results.size() && i < limit; i++) {
+            ids.add(results.get(i).document.id);
+        }
+        return ids;
+    }
+
+    // Start from the rarest token so the candidate set is as small as possible
+    private Set<String> intersectCandidates(List<String> tokens) {
+        Set<String> smallest = null;
+        for (String token : tokens) {
+            Set<String> ids = idsForPrefix(token);
+            if (ids.isEmpty()) {
+                return Set.of();
+            }
+            if (smallest == null || ids.size() < smallest.size()) {
+                smallest = ids;
+            }
+        }
+        return smallest;
+    }
+
+    private Set<String> idsForPrefix(String prefix) {
+        Set<String> ids = new HashSet<>();
+        for (Set<String> matching : postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            ids.addAll(matching);
+        }
+        return ids;
+    }
+
+    static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    // Categories are indexed both whole (for the category filter) and by word
+    private static Set<String> categoryTerms(List<String> categories) {
+        Set<String> terms = new HashSet<>();
+        if (categories == null) {
+            return terms;
+        }
+        for (String category : categories) {
+            if (category != null && !category.isBlank()) {
+                terms.add(category.trim().toLowerCase(Locale.ROOT));
+                terms.addAll(tokenize(category));
+            }
+        }
+        return terms;
+    }
+
+    private static final class IndexedEvent {
+        final String id;
+        final String venueId;
+        final LocalDateTime eventDate;
+        final Set<String> titleTerms;
+        final Set<String> descriptionTerms;
+        final Set<String> categoryTerms;
+
+        IndexedEvent(String id, String venueId, LocalDateTime eventDate,
+                     Set<String> titleTerms, Set<String> descriptionTerms, Set<String> categoryTerms) {
+            this.id = id;
+            this.venueId = venueId;
+            this.eventDate = eventDate;
+            this.titleTerms = titleTerms;
+            this.descriptionTerms = descriptionTerms;
+            this.categoryTerms = categoryTerms;
+        }
+
+        Set<String> allTerms() {
+            Set<String> terms = new HashSet<>(titleTerms);
+            terms.addAll(descriptionTerms);
+            terms.addAll(categoryTerms);
+            return terms;
+        }
+
+        boolean matches(String category, String venueId, LocalDateTime from, LocalDateTime to) {
+            if (category != null && !categoryTerms.contains(category)) {
+                return false;
+            }
+            if (venueId != null && !venueId.isEmpty() && !venueId.equals(this.venueId)) {
+                return false;
+            }
+            LocalDateTime date = eventDate;
+            if (from != null && (date == null || date.isBefore(from))) {
+                return false;
+            }
+            if (to != null && (date == null || date.isAfter(to))) {
+                return false;
+            }
+            return true;
+        }
+
+        double score(String token) {
+            return fieldScore(titleTerms, token) * TITLE_WEIGHT
+                    + fieldScore(categoryTerms, token) * CATEGORY_WEIGHT
+                    + fieldScore(descriptionTerms, token) * DESCRIPTION_WEIGHT;
+        }
+
+        private static double fieldScore(Set<String> terms, String token) {
+            if (terms.contains(token)) {
+                return 1.0;
+            }
+            for (String term : terms) {
+                if (term.startsWith(token)) {
+                    return PREFIX_FACTOR;
+                }
+            }
+            return 0.0;
+        }
+    }
+
+    private static final class ScoredEvent {
+        final IndexedEvent document;
+        final double score;
+
+        ScoredEvent(IndexedEvent document, double score) {
+            this.document = document;
+            this.score = score;
+        }
+    }
+}
@@ -1,106 +1,286 @@
 package com.events.service;
 
+import com.events.config.CacheConfig;
+import com.events.model.CursorPage;
 import com.events.model.Event;
 import com.events.repository.EventRepository;
+import com.events.util.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Service
 public class EventService {
+    private static final Logger logger = LoggerFactory.getLogger(EventService.class);
     
     @Autowired
     private EventRepository eventRepository;
     
-    public List<Event> getAllEvents() {
-        try {
-            System.out.println("Fetching all events from repository...");
-            List<Event> events = eventRepository.findAll();
-            System.out.println("Successfully retrieved " + events.size() + " events");
-            return events;
-        } catch (Exception e) {
-            System.err.println("ERROR fetching events in service layer: " + e.getMessage());
-            e.printStackTrace();
-            throw e; // Re-throw to let controller handle it
-        }
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
+    @Autowired
+    private SeatReservationService seatReservationService;
+    
+    @Autowired
+    private SeatInventoryCache seatInventoryCache;
+    
+    @Autowired
+    private CacheManager cacheManager;
+    
+    @Autowired
+    private EventSearchIndex eventSearchIndex;
+    
+    @Autowired
+    private SalesTimeSeriesService salesTimeSeriesService;
+    
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+    
+    /**
+     * The first {@link CursorPage#UNPAGED_LIMIT} events, for callers that do not
+     * paginate.
+     */
+    public CursorPage<Event> getAllEvents() {
+        CursorPage<Event> events = eventsPage(null, CursorPage.UNPAGED_LIMIT);
+        logger.debug("Retrieved {} events", events.getItems().size());
+        return events;
     }
     
     public List<Event> getPublishedEvents() {
-        return eventRepository.findByPublishedTrue();
+        List<Event> cached = cacheManager.getCache(CacheConfig.PUBLISHED_EVENTS)
+                .get("all", eventRepository::findByPublishedTrue);
+        List<Event> events = new ArrayList<>(cached.size());
+        for (Event event : cached) {
+            events.add(withCurrentSeats(event));
+        }
+        return events;
+    }
+    
+    public CursorPage<Event> getEventsPage(String after, Integer limit) {
+        return eventsPage(after, CursorPage.limit(limit));
+    }
+    
+    private CursorPage<Event> eventsPage(String after, int limit) {
+        Pageable page = PageRequest.of(0, limit, Sort.by("id"));
+        Slice<Event> slice = after == null || after.isEmpty()
+                ? eventRepository.findAllBy(page)
+                : eventRepository.findByIdGreaterThan(after, page);
+        return CursorPage.of(slice, Event::getId);
+    }
+    
+    public Stream<Event> streamAllEvents() {
+        return eventRepository.streamAllBy();
     }
     
     public Optional<Event> getEventById(String id) {
-        return eventRepository.findById(id);
+        Event event = cacheManager.getCache(CacheConfig.EVENTS)
+                .get(id, () -> eventRepository.findById(id).orElse(null));
+        if (event == null) {
+            return Optional.empty();
+        }
+        return Optional.of(withCurrentSeats(event));
     }
     
     public Event createEvent(Event event) {
         event.setPublished(false);
         event.setAvailableSeats(event.getTotalSeats());
-        return eventRepository.save(event);
+        event.setUpdatedAt(new Date());
+        Event saved = eventRepository.save(event);
+        eventSearchIndex.index(saved);
+        salesTimeSeriesService.recordEventCreated();
+        return saved;
     }
     
+    /**
+     * Write the edited fields of an event. availableSeats is never written back
+     * from a read, since reservations and cancellations change it concurrently
+     * with {@code $inc}. A change of totalSeats moves it by the same delta in the
+     * same conditional update, which only applies while totalSeats is still the
+     * value the delta was computed from. published is left to {@link #publishEvent}.
+     *
+     * @throws IllegalStateException if totalSeats would drop below the seats
+     *         already sold
+     */
     public Optional<Event> updateEvent(String id, Event updatedEvent) {
-        return eventRepository.findById(id)
-                .map(existingEvent -> {
-                    updatedEvent.setId(id);
-                    
-                    // Preserve the original available seats if total seats haven't changed
-                    if (existingEvent.getTotalSeats() == updatedEvent.getTotalSeats()) {
-                        updatedEvent.setAvailableSeats(existingEvent.getAvailableSeats());
-                    } else {
-                        // Calculate new available seats based on the difference
-                        int soldSeats = existingEvent.getTotalSeats() - existingEvent.getAvailableSeats();
-                        updatedEvent.setAvailableSeats(Math.max(0, updatedEvent.getTotalSeats() - soldSeats));
-                    }
-                    
-                    return eventRepository.save(updatedEvent);
-                });
+        // Make sure pending seat changes are in Mongo before the conditional update
+        seatInventoryCache.evict(id);
+        
+        while (true) {
+            Optional<Event> existing = eventRepository.findSeatsById(id);
+            if (existing.isEmpty()) {
+                return Optional.empty();
+            }
+            int previousTotal = existing.get().getTotalSeats();
+            int delta = updatedEvent.getTotalSeats() - previousTotal;
+            
+            Criteria criteria = Criteria.where("_id").is(id).and("totalSeats").is(previousTotal);
+            if (delta < 0) {
+                criteria = criteria.and("availableSeats").gte(-delta);
+            }
+            Update update = new Update()
+                    .set("title", updatedEvent.getTitle())
+                    .set("description", updatedEvent.getDescription())
+                    .set("eventDate", updatedEvent.getEventDate())
+                    .set("endDate", updatedEvent.getEndDate())
+                    .set("venueId", updatedEvent.getVenueId())
+                    .set("organizerId", updatedEvent.getOrganizerId())
+                    .set("imageUrl", updatedEvent.getImageUrl())
+                    .set("categories", updatedEvent.getCategories())
+                    .set("basePrice", updatedEvent.getBasePrice())
+                    .set("totalSeats", updatedEvent.getTotalSeats())
+                    .set("updatedAt", new Date());
+            if (delta != 0) {
+                update.inc("availableSeats", delta);
+            }
+            
+            Event saved = mongoTemplate.findAndModify(new Query(criteria), update,
+                    FindAndModifyOptions.options().returnNew(true), Event.class);
+            if (saved == null) {
+                Optional<Event> current = eventRepository.findSeatsById(id);
+                if (current.isEmpty()) {
+                    return Optional.empty();
+                }
+                if (current.get().getTotalSeats() == previousTotal) {
+                    throw new IllegalStateException("Cannot reduce total seats below the seats already sold");
+                }
+                // totalSeats was edited concurrently; recompute the delta
+                continue;
+            }
+            
+            seatInventoryCache.evict(id);
+            evictFromCatalog(id);
+            eventSearchIndex.index(saved);
+            return Optional.of(saved);
+        }
     }
     
     public boolean deleteEvent(String id) {
         return eventRepository.findById(id)
                 .map(event -> {
                     eventRepository.delete(event);
+                    seatInventoryCache.evict(id);
+                    evictFromCatalog(id);
+                    eventSearchIndex.remove(id);
                     return true;
                 })
                 .orElse(false);
     }
     
-    public List<Event> searchEvents(String title, String category, String venueId) {
-        if (title != null && !title.isEmpty()) {
-            return eventRepository.findByTitleContaining(title);
-        } else if (category != null && !category.isEmpty()) {
-            return eventRepository.findByCategoriesContaining(category);
-        } else if (venueId != null && !venueId.isEmpty()) {
-            return eventRepository.findByVenueId(venueId);
+    /**
+     * Ranked search over title, description and categories, combined with optional
+     * category, venue and date filters. Without any criteria it lists upcoming events.
+     */
+    public List<Event> searchEvents(String query, String category, String venueId,
+                                    LocalDateTime from, LocalDateTime to, Integer limit) {
+        return metricsRegistry.timer("events.search")
+                .record(() -> search(query, category, venueId, from, to, limit));
+    }
+    
+    private List<Event> search(String query, String category, String venueId,
+                               LocalDateTime from, LocalDateTime to, Integer limit) {
+        boolean noCriteria = (query == null || query.isBlank())
+                && (category == null || category.isBlank())
+                && (venueId == null || venueId.isBlank());
+        if (noCriteria && from == null) {
+            from = LocalDateTime.now();
         }
         
-        return eventRepository.findByEventDateAfter(java.util.Date.from(LocalDateTime.now().atZone(java.time.ZoneId.systemDefault()).toInstant()));
+        List<String> ids = eventSearchIndex.search(query, category, venueId, from, to, CursorPage.limit(limit));
+        Map<String, Event> found = new HashMap<>();
+        for (Event event : eventRepository.findAllById(ids)) {
+            found.put(event.getId(), event);
+        }
+        // Keep the ranking of the index; events deleted since it was refreshed are skipped
+        List<Event> events = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            Event event = found.get(id);
+            if (event != null) {
+                events.add(withCurrentSeats(event));
+            }
+        }
+        return events;
     }
     
     public Optional<Event> publishEvent(String id) {
-        return eventRepository.findById(id)
-                .map(event -> {
-                    event.setPublished(true);
-                    return eventRepository.save(event);
-                });
+        Event saved = mongoTemplate.findAndModify(new Query(Criteria.where("_id").is(id)),
+                new Update().set("published", true).set("updatedAt", new Date()),
+                FindAndModifyOptions.options().returnNew(true), Event.class);
+        if (saved == null) {
+            return Optional.empty();
+        }
+        evictFromCatalog(id);
+        eventSearchIndex.index(saved);
+        return Optional.of(saved);
     }
     
     public Optional<Event> updateAvailableSeats(String id, int seatsSold) {
+        if (seatsSold > 0 && !seatReservationService.reserve(id, seatsSold)) {
+            if (!eventRepository.existsById(id)) {
+                return Optional.empty();
+            }
+            throw new IllegalStateException("Not enough seats available");
+        } else if (seatsSold < 0) {
+            seatReservationService.release(id, -seatsSold);
+        }
         return eventRepository.findById(id)
                 .map(event -> {
-                    int newAvailableSeats = event.getAvailableSeats() - seatsSold;
-                    if (newAvailableSeats < 0) {
-                        throw new IllegalStateException("Not enough seats available");
+                    // Seat changes may still be waiting for the next write-behind flush
+                    int cachedSeats = seatInventoryCache.getCachedSeats(id);
+                    if (cachedSeats >= 0) {
+                        event.setAvailableSeats(cachedSeats);
                     }
-                    event.setAvailableSeats(newAvailableSeats);
-                    return eventRepository.save(event);
+                    return event;
                 });
     }
     
     public List<Event> getEventsByOrganizerId(String organizerId) {
         return eventRepository.findByOrganizerId(organizerId);
     }
-}
\ No newline at end of file
+    
+    // Catalog entries live much longer than seat counts, so the seats of a cached
+    // event are refreshed from the live inventory or the short-lived seat cache.
+    // The seats are set on a copy: the cached instance is shared by concurrent
+    // requests and must not change under them.
+    private Event withCurrentSeats(Event cached) {
+        Event event = new Event(cached);
+        int seats = seatInventoryCache.getCachedSeats(event.getId());
+        if (seats < 0) {
+            Integer cachedSeats = cacheManager.getCache(CacheConfig.EVENT_SEATS)
+                    .get(event.getId(), () -> eventRepository.findSeatsById(event.getId())
+                            .map(Event::getAvailableSeats)
+                            .orElse(null));
+            if (cachedSeats == null) {
+                return event;
+            }
+            seats = cachedSeats;
+        }
+        event.setAvailableSeats(seats);
+        return event;
+    }
+    
+    private void evictFromCatalog(String id) {
+        cacheManager.getCache(CacheConfig.EVENTS).evict(id);
+        cacheManager.getCache(CacheConfig.EVENT_SEATS).evict(id);
+        cacheManager.getCache(CacheConfig.PUBLISHED_EVENTS).clear();
+    }
+}
@@ -0,0 +1,341 @@
+package com.events.service;
+
+import com.events.config.CacheConfig;
+import com.events.model.IdempotencyRecord;
+import com.events.model.Order;
+import com.events.repository.IdempotencyRecordRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.bson.types.ObjectId;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Deduplicates order requests that carry an {@code Idempotency-Key} header.
+ *
+ * The first request with a key claims it by inserting a PENDING record into the
+ * {@code idempotency_keys} collection (kept for a day by a TTL index) before
+ * anything else happens. Only the request that wins the insert runs; when it
+ * succeeds its order is stored in the record and in a bounded in-memory cache,
+ * and when it fails the claim is deleted so the key can be retried. A replay
+ * returns the stored order without touching events, tickets or orders. A replay
+ * that arrives while the first request is still running waits for its result:
+ * on the same node through the in-flight map, on other nodes by polling the
+ * record for up to {@code idempotency.pending-wait-ms}, after which it is
+ * rejected with {@link RequestInProgressException}. A claim older than
+ * {@code idempotency.claim-timeout-ms} is assumed to belong to a node that died
+ * and is taken over.
+ *
+ * The claim carries the id the request's order will get. A takeover first looks
+ * that order up and replays it if it was written (the owner died, or failed to
+ * complete the claim, after placing it). Otherwise it runs the request again
+ * with the same order id, so if the owner is only slow, at most one of the two
+ * order inserts succeeds and the loser replays the winner's order.
+ */
+@Service
+public class IdempotencyService {
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private static final long POLL_MILLIS = 50;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Value("${idempotency.pending-wait-ms:2000}")
+    private long pendingWaitMillis;
+
+    @Value("${idempotency.claim-timeout-ms:60000}")
+    private long claimTimeoutMillis;
+
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Run {@code action} once per {@code scope} and key.
+     *
+     * @param key the client's Idempotency-Key, the action simply runs when null
+     * @param request canonical form of the request, used to reject a key that is
+     *        reused for a different request
+     * @param action places the order, given the id to give it (null without a key)
+     * @throws IllegalStateException if the key was used for a different request
+     * @throws RequestInProgressException if another node is still running the key
+     */
+    public Order execute(String scope, String key, String request, Function<String, Order> action) {
+        if (key == null || key.isBlank()) {
+            return action.apply(null);
+        }
+        String id = scope + ":" + key;
+
+        Cache cache = cacheManager.getCache(CacheConfig.IDEMPOTENCY_KEYS);
+        StoredResult cached = cache.get(id, StoredResult.class);
+        if (cached != null) {
+            return cached.replay(request);
+        }
+
+        InFlight current = new InFlight(request);
+        CompletableFuture<Order> result = current.result;
+        InFlight running = inFlight.putIfAbsent(id, current);
+        if (running != null) {
+            return new StoredResult(running.request, await(running.result)).replay(request);
+        }
+
+        try {
+            Claim claim = claim(id, request);
+            if (claim.stored != null) {
+                cache.put(id, claim.stored);
+                Order order = claim.stored.replay(request);
+                result.complete(order);
+                return order;
+            }
+
+            Order order;
+            try {
+                order = action.apply(claim.orderId);
+            } catch (DuplicateKeyException e) {
+                // After a takeover the original owner may have placed the order after all
+                order = mongoTemplate.findById(claim.orderId, Order.class);
+                if (order == null) {
+                    release(id);
+                    throw e;
+                }
+            } catch (RuntimeException e) {
+                release(id);
+                throw e;
+            }
+            complete(id, order);
+            cache.put(id, new StoredResult(request, order));
+            result.complete(order);
+            return order;
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(id, current);
+        }
+    }
+
+    /**
+     * The order of a request that already completed with this key, from the cache
+     * or the stored record, so a replay can be answered before any other work.
+     * Empty without a key, and while the key is unused or still being processed.
+     *
+     * @throws IllegalStateException if the key was used for a different request
+     */
+    public Optional<Order> findCompleted(String scope, String key, String request) {
+        if (key == null || key.isBlank()) {
+            return Optional.empty();
+        }
+        String id = scope + ":" + key;
+
+        Cache cache = cacheManager.getCache(CacheConfig.IDEMPOTENCY_KEYS);
+        StoredResult cached = cache.get(id, StoredResult.class);
+        if (cached != null) {
+            return Optional.of(cached.replay(request));
+        }
+        Optional<IdempotencyRecord> record = idempotencyRecordRepository.findById(id);
+        if (record.isEmpty() || record.get().isPending()) {
+            return Optional.empty();
+        }
+        StoredResult stored = new StoredResult(record.get().getRequest(),
+                mongoTemplate.getConverter().read(Order.class, record.get().getOrder()));
+        cache.put(id, stored);
+        return Optional.of(stored.replay(request));
+    }
+
+    /**
+     * Canonical form of a request made of the given parts.
+     */
+    public static String requestOf(Object... parts) {
+        StringBuilder request = new StringBuilder();
+        for (Object part : parts) {
+            request.append(part).append('|');
+        }
+        return request.toString();
+    }
+
+    /**
+     * Claim the key for this request.
+     *
+     * @return the order id to use if this request now owns the key, otherwise the
+     *         result of the request that placed the order
+     */
+    private Claim claim(String id, String request) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(pendingWaitMillis);
+        while (true) {
+            IdempotencyRecord claim = new IdempotencyRecord();
+            claim.setId(id);
+            claim.setRequest(request);
+            claim.setStatus(IdempotencyRecord.PENDING);
+            claim.setOrderId(new ObjectId().toHexString());
+            try {
+                idempotencyRecordRepository.insert(claim);
+                return Claim.owned(claim.getOrderId());
+            } catch (DuplicateKeyException e) {
+                // Someone else has the key, fall through and look at their record
+            }
+
+            Optional<IdempotencyRecord> found = idempotencyRecordRepository.findById(id);
+            if (found.isEmpty()) {
+                // The owner failed and released the key in the meantime
+                continue;
+            }
+            IdempotencyRecord record = found.get();
+            if (!record.isPending()) {
+                return Claim.replayed(new StoredResult(record.getRequest(),
+                        mongoTemplate.getConverter().read(Order.class, record.getOrder())));
+            }
+            if (request != null && !request.equals(record.getRequest())) {
+                throw new IllegalStateException("Idempotency-Key was already used for a different request");
+            }
+            if (takeOver(record)) {
+                // Claims written before order ids were stored cannot be checked
+                String orderId = record.getOrderId() != null ? record.getOrderId() : new ObjectId().toHexString();
+                Order placed = mongoTemplate.findById(orderId, Order.class);
+                if (placed != null) {
+                    logger.warn("Completed the abandoned claim on idempotency key {} with its order {}", id, orderId);
+                    complete(id, placed);
+                    return Claim.replayed(new StoredResult(record.getRequest(), placed));
+                }
+                logger.warn("Took over the abandoned claim on idempotency key {}", id);
+                return Claim.owned(orderId);
+            }
+            if (System.nanoTime() >= deadline) {
+                throw new RequestInProgressException();
+            }
+            try {
+                Thread.sleep(POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RequestInProgressException();
+            }
+        }
+    }
+
+    // Restarts a claim that has been pending too long; only one of several waiters wins
+    private boolean takeOver(IdempotencyRecord record) {
+        Date claimedAt = record.getCreatedAt();
+        if (claimedAt == null || System.currentTimeMillis() - claimedAt.getTime() < claimTimeoutMillis) {
+            return false;
+        }
+        Query query = new Query(Criteria.where("_id").is(record.getId())
+                .and("status").is(IdempotencyRecord.PENDING)
+                .and("createdAt").is(claimedAt));
+        return mongoTemplate.updateFirst(query, Update.update("createdAt", new Date()), IdempotencyRecord.class)
+                .getModifiedCount() == 1;
+    }
+
+    private void complete(String id, Order order) {
+        org.bson.Document document = new org.bson.Document();
+        mongoTemplate.getConverter().write(order, document);
+
+        Query query = new Query(Criteria.where("_id").is(id).and("status").is(IdempotencyRecord.PENDING));
+        Update update = new Update()
+                .set("status", IdempotencyRecord.COMPLETED)
+                .set("order", document);
+        try {
+            mongoTemplate.updateFirst(query, update, IdempotencyRecord.class);
+        } catch (RuntimeException e) {
+            // The order went through; replays on other nodes wait for the claim to time
+            // out, then find the order by the id stored in the claim
+            logger.error("Error storing idempotency key {}", id, e);
+        }
+    }
+
+    private void release(String id) {
+        try {
+            mongoTemplate.remove(new Query(Criteria.where("_id").is(id).and("status").is(IdempotencyRecord.PENDING)),
+                    IdempotencyRecord.class);
+        } catch (RuntimeException e) {
+            // The key stays claimed until the claim times out
+            logger.error("Error releasing idempotency key {}", id, e);
+        }
+    }
+
+    private Order await(CompletableFuture<Order> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static final class InFlight {
+        final String request;
+        final CompletableFuture<Order> result = new CompletableFuture<>();
+
+        InFlight(String request) {
+            this.request = request;
+        }
+    }
+
+    /**
+     * The key is claimed by a request that is still running on another node.
+     */
+    public static final class RequestInProgressException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        RequestInProgressException() {
+            super("A request with this Idempotency-Key is still being processed");
+        }
+    }
+
+    private static final class Claim {
+        final String orderId;
+        final StoredResult stored;
+
+        private Claim(String orderId, StoredResult stored) {
+            this.orderId = orderId;
+            this.stored = stored;
+        }
+
+        static Claim owned(String orderId) {
+            return new Claim(orderId, null);
+        }
+
+        static Claim replayed(StoredResult stored) {
+            return new Claim(null, stored);
+        }
+    }
+
+    private static final class StoredResult {
+        final String request;
+        final Order order;
+
+        StoredResult(String request, Order order) {
+            this.request = request;
+            this.order = order;
+        }
+
+        Order replay(String replayedRequest) {
+            if (request != null && !request.equals(replayedRequest)) {
+                throw new IllegalStateException("Idempotency-Key was already used for a different request");
+            }
+            return order;
+        }
+    }
+}
@@ -1,31 +1,96 @@
 package com.events.service;
 
+import com.events.model.CursorPage;
 import com.events.model.Order;
 import com.events.model.OrderStatus;
 import com.events.model.Ticket;
 import com.events.model.TicketType;
 import com.events.repository.OrderRepository;
+import com.events.util.MetricsRegistry;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
 public class OrderService {
+    private static final Logger logger = LoggerFactory.getLogger(OrderService.class);
     
     @Autowired
     private OrderRepository orderRepository;
     
+    @Autowired
+    private MongoTemplate mongoTemplate;
+    
     @Autowired
     private TicketService ticketService;
     
     @Autowired
     private EventService eventService;
     
-    public List<Order> getAllOrders() {
-        return orderRepository.findAll();
+    @Autowired
+    private SeatReservationService seatReservationService;
+    
+    @Autowired
+    private SalesRollupService salesRollupService;
+    
+    @Autowired
+    private AttendeeCountService attendeeCountService;
+    
+    @Autowired
+    private SalesTimeSeriesService salesTimeSeriesService;
+    
+    @Autowired
+    private TopEventsService topEventsService;
+    
+    @Autowired
+    private WaitingRoomService waitingRoomService;
+    
+    @Autowired
+    private SeatHoldService seatHoldService;
+    
+    @Autowired
+    private OrderTransactionService orderTransactionService;
+    
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+    
+    /**
+     * The first {@link CursorPage#UNPAGED_LIMIT} orders, for callers that
+     * do not paginate.
+     */
+    public CursorPage<Order> getAllOrders() {
+        return ordersPage(null, CursorPage.UNPAGED_LIMIT);
+    }
+    
+    public CursorPage<Order> getOrdersPage(String after, Integer limit) {
+        return ordersPage(after, CursorPage.limit(limit));
+    }
+    
+    private CursorPage<Order> ordersPage(String after, int limit) {
+        Pageable page = PageRequest.of(0, limit, Sort.by("id"));
+        Slice<Order> slice = after == null || after.isEmpty()
+                ? orderRepository.findAllBy(page)
+                : orderRepository.findByIdGreaterThan(after, page);
+        return CursorPage.of(slice, Order::getId);
+    }
+    
+    public Stream<Order> streamAllOrders() {
+        return orderRepository.streamAllBy();
     }
     
     public Optional<Order> getOrderById(String id) {
@@ -38,49 +103,272 @@ public class OrderService {
     
     public Order createOrder(String userId, String eventId, TicketType ticketType, 
                         int quantity, double unitPrice, String paymentMethod) {
+        return createOrder(userId, eventId, ticketType, quantity, unitPrice, paymentMethod, null);
+    }
+    
+    /**
+     * Place an order. Events with an open waiting room require the admission
+     * token issued by {@link WaitingRoomService}; it is given back if the
+     * purchase fails.
+     *
+     * Timed as {@code orders.create{outcome}}, with the seat check, seat update,
+     * ticket issue and order insert steps timed as {@code orders.stage{stage}}.
+     */
+    public Order createOrder(String userId, String eventId, TicketType ticketType, 
+                        int quantity, double unitPrice, String paymentMethod, String admissionToken) {
+        return createOrder(userId, eventId, ticketType, quantity, unitPrice, paymentMethod, admissionToken, null);
+    }
+    
+    /**
+     * Same as above with the id of the new order chosen by the caller, so that a
+     * retried request cannot insert a second order (see {@link IdempotencyService}).
+     *
+     * @param orderId id for the order, or null to generate one
+     */
+    public Order createOrder(String userId, String eventId, TicketType ticketType, int quantity,
+                        double unitPrice, String paymentMethod, String admissionToken, String orderId) {
+        if (quantity <= 0) {
+            throw new IllegalStateException("Quantity must be at least 1");
+        }
+        
+        long start = System.nanoTime();
+        waitingRoomService.consume(eventId, admissionToken);
         try {
-            // First, check if there are enough seats
-            com.events.model.Event event = eventService.getEventById(eventId)
-                .orElseThrow(() -> new IllegalArgumentException("Event not found with ID: " + eventId));
-            
-            if (event.getAvailableSeats() < quantity) {
-                throw new IllegalStateException("Not enough seats available");
-            }
-            
-            // Create the order
-            Order order = new Order();
-            order.setUserId(userId);
-            order.setEventId(eventId);  // Set the eventId
-            order.setQuantity(quantity);  // Set the quantity
-            order.setUnitPrice(unitPrice);  // Set the unitPrice
-            order.setTicketType(ticketType.toString());  // Set the ticketType
-            order.setTotalAmount(unitPrice * quantity);
-            order.setPaymentMethod(paymentMethod);
+            Order order = placeOrder(orderId, userId, eventId, ticketType, quantity, unitPrice, paymentMethod);
+            metricsRegistry.timer("orders.create", "outcome", "success").recordSince(start);
+            return order;
+        } catch (RuntimeException e) {
+            waitingRoomService.restore(admissionToken);
+            metricsRegistry.timer("orders.create", "outcome", "failure").recordSince(start);
+            throw e;
+        }
+    }
+    
+    private Order placeOrder(String orderId, String userId, String eventId, TicketType ticketType, 
+                        int quantity, double unitPrice, String paymentMethod) {
+        if (orderTransactionService.isEnabled()) {
+            return placeOrderInTransaction(orderId, userId, eventId, ticketType, quantity, unitPrice, paymentMethod);
+        }
+        
+        reserveSeats(eventId, quantity);
+        
+        List<Ticket> tickets = null;
+        try {
+            // Create the order, with its id generated up front so the tickets
+            // can point at it before anything is written
+            Order order = newOrder(orderId, userId, eventId, ticketType, quantity, unitPrice, paymentMethod);
             order.setTransactionId(UUID.randomUUID().toString());
             order.setStatus(OrderStatus.COMPLETED.name());
             
-            // Save the order to get an id
-            Order savedOrder = orderRepository.save(order);
+            // Issue all tickets for this order in one bulk write
+            long start = System.nanoTime();
+            tickets = ticketService.createTickets(
+                eventId, order.getId(), userId, ticketType, quantity, unitPrice);
+            stage("ticket_issue").recordSince(start);
             
-            // Create tickets for this order
-            List<Ticket> tickets = ticketService.createTickets(
-                eventId, savedOrder.getId(), userId, ticketType, quantity, unitPrice);
+            // Insert the order once, with its ticket ids already attached
+            order.setTicketIds(tickets.stream().map(Ticket::getId).collect(Collectors.toList()));
+            start = System.nanoTime();
+            Order savedOrder = orderRepository.insert(order);
+            stage("order_insert").recordSince(start);
             
-            // Update the order with ticket ids
-            savedOrder.setTicketIds(tickets.stream().map(Ticket::getId).collect(Collectors.toList()));
-            orderRepository.save(savedOrder);
-            
-            // Update available seats
-            eventService.updateAvailableSeats(eventId, quantity);
+            salesRollupService.recordSale(savedOrder);
             
+            salesTimeSeriesService.recordOrder(savedOrder);
+            topEventsService.recordOrder(savedOrder);
+            attendeeCountService.recordAttendee(eventId, userId);
             return savedOrder;
-        } catch (Exception e) {
-            // Log the error for debugging
-            e.printStackTrace();
+        } catch (RuntimeException e) {
+            // Undo the earlier steps so a failed purchase does not leak tickets or inventory
+            if (tickets != null) {
+                ticketService.deleteTickets(tickets);
+            }
+            seatReservationService.release(eventId, quantity);
+            logger.warn("Rolled back order for event {}: {}", eventId, e.toString());
             throw e; // Re-throw to be handled by the controller
         }
     }
     
+    // Same purchase with the tickets, the order and the seat change committed together
+    private Order placeOrderInTransaction(String orderId, String userId, String eventId, TicketType ticketType, 
+                        int quantity, double unitPrice, String paymentMethod) {
+        Order order = newOrder(orderId, userId, eventId, ticketType, quantity, unitPrice, paymentMethod);
+        order.setTransactionId(UUID.randomUUID().toString());
+        order.setStatus(OrderStatus.COMPLETED.name());
+        List<Ticket> tickets = ticketService.newTickets(
+            eventId, order.getId(), userId, ticketType, quantity, unitPrice);
+        order.setTicketIds(tickets.stream().map(Ticket::getId).collect(Collectors.toList()));
+        
+        long start = System.nanoTime();
+        boolean purchased = orderTransactionService.purchase(order, tickets);
+        stage("transaction").recordSince(start);
+        if (!purchased) {
+            if (eventService.getEventById(eventId).isEmpty()) {
+                throw new IllegalArgumentException("Event not found with ID: " + eventId);
+            }
+            throw new IllegalStateException("Not enough seats available");
+        }
+        
+        salesRollupService.recordSale(order);
+        
+        salesTimeSeriesService.recordOrder(order);
+        topEventsService.recordOrder(order);
+        attendeeCountService.recordAttendee(eventId, userId);
+        return order;
+    }
+    
+    /**
+     * Reserve seats for a PENDING order while the buyer pays. The seats go back to
+     * the event unless the order is confirmed within the hold period.
+     */
+    public Order holdOrder(String userId, String eventId, TicketType ticketType, 
+                        int quantity, double unitPrice, String paymentMethod, String admissionToken) {
+        return holdOrder(userId, eventId, ticketType, quantity, unitPrice, paymentMethod, admissionToken, null);
+    }
+    
+    /**
+     * @param orderId id for the held order, or null to generate one
+     */
+    public Order holdOrder(String userId, String eventId, TicketType ticketType, int quantity,
+                        double unitPrice, String paymentMethod, String admissionToken, String orderId) {
+        if (quantity <= 0) {
+            throw new IllegalStateException("Quantity must be at least 1");
+        }
+        
+        waitingRoomService.consume(eventId, admissionToken);
+        try {
+            reserveSeats(eventId, quantity);
+        } catch (RuntimeException e) {
+            waitingRoomService.restore(admissionToken);
+            throw e;
+        }
+        
+        try {
+            Order order = newOrder(orderId, userId, eventId, ticketType, quantity, unitPrice, paymentMethod);
+            order.setStatus(OrderStatus.PENDING.name());
+            order.setHoldExpiresAt(seatHoldService.newDeadline());
+            Order savedOrder = orderRepository.insert(order);
+            seatHoldService.track(savedOrder);
+            return savedOrder;
+        } catch (RuntimeException e) {
+            seatReservationService.release(eventId, quantity);
+            waitingRoomService.restore(admissionToken);
+            throw e;
+        }
+    }
+    
+    /**
+     * Complete a PENDING order whose hold has not expired, issuing its tickets.
+     * The order only moves to COMPLETED while it is still PENDING, so an order
+     * another node already expired (and whose seats it released) is never
+     * completed over.
+     */
+    public Optional<Order> confirmOrder(String id) {
+        return orderRepository.findById(id)
+                .map(order -> {
+                    if (!OrderStatus.PENDING.name().equals(order.getStatus())) {
+                        throw new IllegalStateException("Only pending orders can be confirmed");
+                    }
+                    if (!seatHoldService.untrack(id)) {
+                        throw new IllegalStateException("The seat hold for this order has expired");
+                    }
+                    
+                    List<Ticket> tickets = null;
+                    boolean stillPending = true;
+                    try {
+                        tickets = ticketService.createTickets(order.getEventId(), id, order.getUserId(),
+                                TicketType.valueOf(order.getTicketType()), order.getQuantity(), order.getUnitPrice());
+                        
+                        order.setTicketIds(tickets.stream().map(Ticket::getId).collect(Collectors.toList()));
+                        order.setTransactionId(UUID.randomUUID().toString());
+                        Query pending = new Query(Criteria.where("_id").is(id)
+                                .and("status").is(OrderStatus.PENDING.name()));
+                        Update complete = new Update()
+                                .set("status", OrderStatus.COMPLETED.name())
+                                .set("ticketIds", order.getTicketIds())
+                                .set("transactionId", order.getTransactionId())
+                                .unset("holdExpiresAt");
+                        if (mongoTemplate.updateFirst(pending, complete, Order.class).getModifiedCount() == 0) {
+                            stillPending = false;
+                            throw new IllegalStateException("The seat hold for this order has expired");
+                        }
+                    } catch (RuntimeException e) {
+                        if (tickets != null) {
+                            ticketService.deleteTickets(tickets);
+                        }
+                        // Keep the hold running so its seats still come back if the buyer gives up
+                        if (stillPending) {
+                            seatHoldService.track(order);
+                        }
+                        throw e;
+                    }
+                    order.setStatus(OrderStatus.COMPLETED.name());
+                    order.setHoldExpiresAt(null);
+                    
+                    salesRollupService.recordSale(order);
+                    
+                    salesTimeSeriesService.recordOrder(order);
+                    topEventsService.recordOrder(order);
+                    attendeeCountService.recordAttendee(order.getEventId(), order.getUserId());
+                    return order;
+                });
+    }
+    
+    /**
+     * Give up a PENDING order before its hold expires, returning its seats.
+     */
+    public Optional<Order> releaseHold(String id) {
+        return orderRepository.findById(id)
+                .map(order -> {
+                    if (!OrderStatus.PENDING.name().equals(order.getStatus())) {
+                        throw new IllegalStateException("Only pending orders can be released");
+                    }
+                    // If the hold expired in the meantime its seats were already returned
+                    if (seatHoldService.untrack(id)) {
+                        seatHoldService.release(order);
+                    }
+                    return orderRepository.findById(id).orElse(order);
+                });
+    }
+    
+    // Take the seats first with a single conditional update, so concurrent
+    // buyers can never oversell the event
+    private void reserveSeats(String eventId, int quantity) {
+        long start = System.nanoTime();
+        boolean reserved = seatReservationService.admit(eventId, quantity);
+        stage("seat_check").recordSince(start);
+        if (reserved) {
+            start = System.nanoTime();
+            reserved = seatReservationService.commit(eventId, quantity);
+            stage("seat_update").recordSince(start);
+        }
+        
+        if (!reserved) {
+            if (eventService.getEventById(eventId).isEmpty()) {
+                throw new IllegalArgumentException("Event not found with ID: " + eventId);
+            }
+            throw new IllegalStateException("Not enough seats available");
+        }
+    }
+    
+    private MetricsRegistry.Timer stage(String stage) {
+        return metricsRegistry.timer("orders.stage", "stage", stage);
+    }
+    
+    private Order newOrder(String orderId, String userId, String eventId, TicketType ticketType, 
+                        int quantity, double unitPrice, String paymentMethod) {
+        Order order = new Order();
+        order.setId(orderId != null ? orderId : new ObjectId().toHexString());
+        order.setUserId(userId);
+        order.setEventId(eventId);  // Set the eventId
+        order.setQuantity(quantity);  // Set the quantity
+        order.setUnitPrice(unitPrice);  // Set the unitPrice
+        order.setTicketType(ticketType.toString());  // Set the ticketType
+        order.setTotalAmount(unitPrice * quantity);
+        order.setPaymentMethod(paymentMethod);
+        return order;
+    }
+    
     public Optional<Order> cancelOrder(String id) {
         return orderRepository.findById(id)
                 .map(order -> {
@@ -88,17 +376,42 @@ public class OrderService {
                         throw new IllegalStateException("Cannot cancel an order that is not completed");
                     }
                     
+                    // Older orders may lack eventId/quantity, fall back to their tickets
+                    String eventId = order.getEventId();
+                    int quantity = order.getQuantity();
+                    if (eventId == null || quantity <= 0) {
+                        List<Ticket> tickets = ticketService.getTicketsByOrderId(id);
+                        eventId = tickets.isEmpty() ? null : tickets.get(0).getEventId();
+                        quantity = tickets.size();
+                    }
+                    
+                    if (orderTransactionService.isEnabled() && eventId != null) {
+                        orderTransactionService.cancel(order, eventId, quantity);
+                        salesRollupService.recordRefund(order);
+                        salesTimeSeriesService.recordCancellation(order);
+                        topEventsService.recordCancellation(order);
+                        return order;
+                    }
+                    
+                    // Only the request that moves the order out of COMPLETED gives the
+                    // seats back, so concurrent cancels cannot release them twice
+                    Query completed = new Query(Criteria.where("_id").is(id)
+                            .and("status").is(OrderStatus.COMPLETED.name()));
+                    if (mongoTemplate.updateFirst(completed,
+                            new Update().set("status", OrderStatus.CANCELED.name()), Order.class).getModifiedCount() == 0) {
+                        throw new IllegalStateException("Cannot cancel an order that is not completed");
+                    }
                     order.setStatus(OrderStatus.CANCELED.name());
                     
-                    // Get the event id from one of the tickets
-                    List<Ticket> tickets = ticketService.getTicketsByOrderId(id);
-                    if (!tickets.isEmpty()) {
-                        String eventId = tickets.get(0).getEventId();
-                        // Restore the available seats
-                        eventService.updateAvailableSeats(eventId, -tickets.size());
+                    // Restore the available seats
+                    if (eventId != null) {
+                        seatReservationService.release(eventId, quantity);
                     }
                     
-                    return orderRepository.save(order);
+                    salesRollupService.recordRefund(order);
+                    salesTimeSeriesService.recordCancellation(order);
+                    topEventsService.recordCancellation(order);
+                    return order;
                 });
     }
 }
\ No newline at end of file
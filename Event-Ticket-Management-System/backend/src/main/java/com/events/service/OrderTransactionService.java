@@ -0,0 +1,205 @@
+package com.events.service;
+
+import com.events.model.Order;
+import com.events.model.OrderStatus;
+import com.events.model.Ticket;
+import com.mongodb.MongoException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs the purchase and cancel flows as MongoDB multi-document transactions when
+ * {@code orders.transactions.enabled=true} (see
+ * {@link com.events.config.MongoTransactionConfig}).
+ *
+ * Everything that can be prepared up front (ids, tickets, the order document, the
+ * in-memory seat admission) is done before the transaction starts, and the write
+ * to the contended event document comes last, so each transaction is short and
+ * holds the hot document for as little time as possible. Transactions that fail
+ * with a TransientTransactionError or a write conflict are retried a bounded
+ * number of times with jittered exponential backoff.
+ */
+@Service
+public class OrderTransactionService {
+    private static final Logger logger = LoggerFactory.getLogger(OrderTransactionService.class);
+
+    private static final int WRITE_CONFLICT = 112;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private SeatReservationService seatReservationService;
+
+    @Autowired
+    private ObjectProvider<MongoTransactionManager> transactionManager;
+
+    @Value("${orders.transactions.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${orders.transactions.backoff-ms:5}")
+    private long backoffMillis;
+
+    private final LongAdder transactions = new LongAdder();
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+
+    public boolean isEnabled() {
+        return transactionManager.getIfAvailable() != null;
+    }
+
+    /**
+     * Insert the tickets and the order and take the seats in one transaction.
+     *
+     * @return false if the event does not have enough seats, in which case
+     *         nothing was written
+     */
+    public boolean purchase(Order order, List<Ticket> tickets) {
+        String eventId = order.getEventId();
+        int quantity = order.getQuantity();
+        if (!seatReservationService.admit(eventId, quantity)) {
+            return false;
+        }
+
+        try {
+            inTransaction(() -> {
+                mongoTemplate.insert(tickets, Ticket.class);
+                mongoTemplate.insert(order);
+                if (!seatReservationService.decrementStored(eventId, quantity)) {
+                    throw new SeatsUnavailableException();
+                }
+            }, () -> mongoTemplate.exists(new Query(Criteria.where("_id").is(order.getId())), Order.class));
+            return true;
+        } catch (SeatsUnavailableException e) {
+            // The stored count disagreed with the cache, which decrementStored already resynced
+            return false;
+        } catch (RuntimeException e) {
+            seatReservationService.readmit(eventId, quantity);
+            throw e;
+        }
+    }
+
+    /**
+     * Mark a completed order canceled and give its seats back in one transaction.
+     *
+     * @throws IllegalStateException if the order is no longer completed
+     */
+    public void cancel(Order order, String eventId, int quantity) {
+        Query completed = new Query(Criteria.where("_id").is(order.getId())
+                .and("status").is(OrderStatus.COMPLETED.name()));
+
+        inTransaction(() -> {
+            if (mongoTemplate.updateFirst(completed,
+                    new Update().set("status", OrderStatus.CANCELED.name()), Order.class).getModifiedCount() == 0) {
+                throw new IllegalStateException("Cannot cancel an order that is not completed");
+            }
+            seatReservationService.incrementStored(eventId, quantity);
+        }, () -> mongoTemplate.exists(new Query(Criteria.where("_id").is(order.getId())
+                .and("status").is(OrderStatus.CANCELED.name())), Order.class));
+
+        seatReservationService.readmit(eventId, quantity);
+        order.setStatus(OrderStatus.CANCELED.name());
+    }
+
+    public Map<String, Object> getStats() {
+        long transactionCount = transactions.sum();
+        long retryCount = retries.sum();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", isEnabled());
+        stats.put("transactions", transactionCount);
+        stats.put("attempts", attempts.sum());
+        stats.put("commits", commits.sum());
+        stats.put("retries", retryCount);
+        stats.put("retriesExhausted", exhausted.sum());
+        stats.put("retryRate", transactionCount == 0 ? 0.0 : (double) retryCount / transactionCount);
+        return stats;
+    }
+
+    /**
+     * @param committed checks, after a commit whose outcome is unknown, whether
+     *        the transaction did commit, so it is not applied twice
+     */
+    private void inTransaction(Runnable work, Supplier<Boolean> committed) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager.getObject());
+        transactions.increment();
+
+        for (int attempt = 1; ; attempt++) {
+            attempts.increment();
+            try {
+                template.executeWithoutResult(status -> work.run());
+                commits.increment();
+                return;
+            } catch (RuntimeException e) {
+                MongoException cause = mongoCause(e);
+                if (cause == null || !isRetryable(cause)) {
+                    throw e;
+                }
+                if (cause.hasErrorLabel(MongoException.UNKNOWN_TRANSACTION_COMMIT_RESULT_LABEL) && committed.get()) {
+                    commits.increment();
+                    return;
+                }
+                if (attempt >= maxAttempts) {
+                    exhausted.increment();
+                    logger.warn("Giving up on transaction after {} attempts", attempt, e);
+                    throw e;
+                }
+                retries.increment();
+                backoff(attempt);
+            }
+        }
+    }
+
+    private boolean isRetryable(MongoException e) {
+        return e.hasErrorLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL)
+                || e.hasErrorLabel(MongoException.UNKNOWN_TRANSACTION_COMMIT_RESULT_LABEL)
+                || e.getCode() == WRITE_CONFLICT;
+    }
+
+    private MongoException mongoCause(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoException) {
+                return (MongoException) cause;
+            }
+        }
+        return null;
+    }
+
+    private void backoff(int attempt) {
+        long bound = backoffMillis << Math.min(attempt - 1, 6);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(bound / 2, bound + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying a transaction", e);
+        }
+    }
+
+    // Aborts the purchase transaction without counting as a failure
+    private static final class SeatsUnavailableException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        SeatsUnavailableException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,407 @@
+package com.events.service;
+
+import com.events.model.Event;
+import com.events.model.Order;
+import com.events.model.SalesRollup;
+import com.events.repository.EventRepository;
+import com.events.repository.OrderRepository;
+import com.events.repository.SalesRollupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Maintains per-event, per-organizer and global sales counters as orders are
+ * created and canceled, so dashboards read a handful of small documents instead
+ * of re-deriving totals from the orders collection.
+ *
+ * Changes are collected in in-memory accumulators and written to the
+ * {@code sales_rollups} collection with one bulk upsert per flush interval.
+ * Reads merge the persisted documents with whatever has not been flushed yet.
+ */
+@Service
+public class SalesRollupService {
+    private static final Logger logger = LoggerFactory.getLogger(SalesRollupService.class);
+
+    private static final String REBUILD_CLAIM_ID = "rebuild-claim";
+
+    @Autowired
+    private SalesRollupRepository salesRollupRepository;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private final Map<String, String> organizerByEvent = new ConcurrentHashMap<>();
+
+    // Writers share the read lock; a flush takes the write lock only to swap maps,
+    // so no update can land in a map that is already being written out
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+
+    private volatile Map<String, Accumulator> current = new ConcurrentHashMap<>();
+
+    private volatile Map<String, Accumulator> flushing = new HashMap<>();
+
+    // Held by a flush and by a rebuild for their whole run, so the rebuild's
+    // replacements never interleave with a flush's upserts
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    // Sales and refunds recorded since startup, for readers that only need to know whether anything changed
+    private final LongAdder changes = new LongAdder();
+
+    public void recordSale(Order order) {
+        apply(order.getEventId(), order.getQuantity(), order.getTotalAmount(), false);
+    }
+
+    public void recordRefund(Order order) {
+        apply(order.getEventId(), order.getQuantity(), order.getTotalAmount(), true);
+    }
+
+    public long getChangeCount() {
+        return changes.sum();
+    }
+
+    public SalesRollup getGlobalRollup() {
+        return getRollups(SalesRollup.SCOPE_GLOBAL, List.of(SalesRollup.SCOPE_GLOBAL)).get(SalesRollup.SCOPE_GLOBAL);
+    }
+
+    /**
+     * Rollups for the given events, keyed by event id. Events without any sales
+     * get an empty rollup.
+     */
+    public Map<String, SalesRollup> getEventRollups(List<String> eventIds) {
+        List<String> ids = new ArrayList<>(eventIds.size());
+        for (String eventId : eventIds) {
+            ids.add(SalesRollup.idFor(SalesRollup.SCOPE_EVENT, eventId));
+        }
+
+        Map<String, SalesRollup> byId = getRollups(SalesRollup.SCOPE_EVENT, ids);
+        Map<String, SalesRollup> byEvent = new HashMap<>();
+        for (SalesRollup rollup : byId.values()) {
+            byEvent.put(rollup.getScopeId(), rollup);
+        }
+        return byEvent;
+    }
+
+    /**
+     * Write all pending changes with one unordered bulk upsert. Skipped while a
+     * rebuild is running; the changes stay pending until the next flush.
+     */
+    @Scheduled(fixedDelayString = "${sales.rollup.flush-interval-ms:1000}")
+    public void flush() {
+        if (!writeLock.tryLock()) {
+            return;
+        }
+        try {
+            flushPending();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void flushPending() {
+        swapLock.writeLock().lock();
+        Map<String, Accumulator> batch;
+        try {
+            batch = current;
+            if (batch.isEmpty()) {
+                return;
+            }
+            flushing = batch;
+            current = new ConcurrentHashMap<>();
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+
+        try {
+            Date now = new Date();
+            BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SalesRollup.class);
+            for (Map.Entry<String, Accumulator> entry : batch.entrySet()) {
+                Accumulator acc = entry.getValue();
+                Update update = new Update()
+                        .setOnInsert("scope", acc.scope)
+                        .setOnInsert("scopeId", acc.scopeId)
+                        .inc("ticketsSold", acc.ticketsSold.sum())
+                        .inc("grossRevenue", acc.grossRevenue.sum())
+                        .inc("refundedTickets", acc.refundedTickets.sum())
+                        .inc("refundedRevenue", acc.refundedRevenue.sum())
+                        .set("updatedAt", now);
+                ops.upsert(new Query(Criteria.where("_id").is(entry.getKey())), update);
+            }
+            ops.execute();
+            logger.debug("Flushed {} sales rollups", batch.size());
+        } catch (Exception e) {
+            logger.error("Error flushing sales rollups, will retry", e);
+            // Fold the batch back into the live accumulators for the next flush
+            swapLock.readLock().lock();
+            try {
+                for (Map.Entry<String, Accumulator> entry : batch.entrySet()) {
+                    Accumulator failed = entry.getValue();
+                    Accumulator acc = current.computeIfAbsent(entry.getKey(),
+                            key -> new Accumulator(failed.scope, failed.scopeId));
+                    acc.add(failed);
+                }
+            } finally {
+                swapLock.readLock().unlock();
+            }
+        } finally {
+            flushing = new HashMap<>();
+        }
+    }
+
+    /**
+     * Recompute every rollup from the orders collection, replacing what is stored.
+     * Used to repair the rollups or to build them for existing data.
+     *
+     * Flushes are paused for the whole rebuild, but sales and refunds are not: the
+     * swap lock is only taken to drop the pending changes (they are in the orders)
+     * and fix a cutoff. The aggregate covers the orders created before the cutoff,
+     * and changes recorded meanwhile build up in the live accumulators, which the
+     * first flush after the rebuild adds on top. The only overlap is an order
+     * created just before the cutoff and recorded just after it, or a cancel or
+     * hold confirmation that races the aggregation. Each rollup is then replaced
+     * in place and rollups without orders are removed, so readers never see an
+     * empty collection. Other nodes keep recording and flushing, so run a rebuild
+     * while a single node takes purchases.
+     */
+    public void rebuild() {
+        logger.info("Rebuilding sales rollups from orders");
+
+        writeLock.lock();
+        try {
+            Date cutoff;
+            swapLock.writeLock().lock();
+            try {
+                current = new ConcurrentHashMap<>();
+                cutoff = new Date();
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+
+            List<SalesRollup> eventTotals = orderRepository.sumSalesByEvent(cutoff);
+            List<String> eventIds = new ArrayList<>(eventTotals.size());
+            for (SalesRollup totals : eventTotals) {
+                if (totals.getId() != null && !organizerByEvent.containsKey(totals.getId())) {
+                    eventIds.add(totals.getId());
+                }
+            }
+            // One lookup for all organizers instead of one per event
+            for (Event event : eventRepository.findAllById(eventIds)) {
+                if (event.getOrganizerId() != null) {
+                    organizerByEvent.put(event.getId(), event.getOrganizerId());
+                }
+            }
+
+            Map<String, Accumulator> rebuilt = new HashMap<>();
+            for (SalesRollup row : eventTotals) {
+                String eventId = row.getId();
+                if (eventId == null) {
+                    continue;
+                }
+                Accumulator totals = new Accumulator(SalesRollup.SCOPE_EVENT, eventId);
+                totals.ticketsSold.add(row.getTicketsSold());
+                totals.grossRevenue.add(row.getGrossRevenue());
+                totals.refundedTickets.add(row.getRefundedTickets());
+                totals.refundedRevenue.add(row.getRefundedRevenue());
+
+                for (Accumulator target : targetsFor(rebuilt, eventId, organizerByEvent.get(eventId))) {
+                    target.add(totals);
+                }
+            }
+
+            Date now = new Date();
+            BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SalesRollup.class);
+            for (Map.Entry<String, Accumulator> entry : rebuilt.entrySet()) {
+                SalesRollup rollup = entry.getValue().toRollup(entry.getKey());
+                rollup.setUpdatedAt(now);
+                ops.replaceOne(new Query(Criteria.where("_id").is(entry.getKey())), rollup,
+                        FindAndReplaceOptions.options().upsert());
+            }
+            if (!rebuilt.isEmpty()) {
+                ops.execute();
+            }
+            mongoTemplate.remove(new Query(Criteria.where("_id").nin(rebuilt.keySet())), SalesRollup.class);
+            logger.info("Rebuilt {} sales rollups", rebuilt.size());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Build the rollups on first start against a database that already has orders.
+     * Nodes starting together race for a claim document, and only the winner
+     * rebuilds. The rebuild removes the claim along with any other stale rollup.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        try {
+            if (salesRollupRepository.count() == 0
+                    && mongoTemplate.exists(new Query(), Order.class)
+                    && claimInitialRebuild()) {
+                rebuild();
+            }
+        } catch (Exception e) {
+            logger.error("Error initializing sales rollups", e);
+        }
+    }
+
+    private boolean claimInitialRebuild() {
+        SalesRollup claim = new SalesRollup();
+        claim.setId(REBUILD_CLAIM_ID);
+        claim.setScope(REBUILD_CLAIM_ID);
+        claim.setUpdatedAt(new Date());
+        try {
+            mongoTemplate.insert(claim);
+            return true;
+        } catch (DuplicateKeyException e) {
+            logger.info("Another node is building the sales rollups");
+            return false;
+        }
+    }
+
+    private void apply(String eventId, int quantity, double amount, boolean refund) {
+        if (eventId == null) {
+            return;
+        }
+
+        // Resolve the organizer before taking the lock, it may need a lookup
+        String organizerId = organizerFor(eventId);
+
+        swapLock.readLock().lock();
+        try {
+            Map<String, Accumulator> live = current;
+            for (Accumulator acc : targetsFor(live, eventId, organizerId)) {
+                if (refund) {
+                    acc.refundedTickets.add(quantity);
+                    acc.refundedRevenue.add(amount);
+                } else {
+                    acc.ticketsSold.add(quantity);
+                    acc.grossRevenue.add(amount);
+                }
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+        changes.increment();
+    }
+
+    private List<Accumulator> targetsFor(Map<String, Accumulator> accumulators, String eventId, String organizerId) {
+        List<Accumulator> targets = new ArrayList<>(3);
+        targets.add(accumulators.computeIfAbsent(SalesRollup.idFor(SalesRollup.SCOPE_EVENT, eventId),
+                key -> new Accumulator(SalesRollup.SCOPE_EVENT, eventId)));
+        if (organizerId != null) {
+            targets.add(accumulators.computeIfAbsent(SalesRollup.idFor(SalesRollup.SCOPE_ORGANIZER, organizerId),
+                    key -> new Accumulator(SalesRollup.SCOPE_ORGANIZER, organizerId)));
+        }
+        targets.add(accumulators.computeIfAbsent(SalesRollup.SCOPE_GLOBAL,
+                key -> new Accumulator(SalesRollup.SCOPE_GLOBAL, null)));
+        return targets;
+    }
+
+    private String organizerFor(String eventId) {
+        String organizerId = organizerByEvent.get(eventId);
+        if (organizerId == null) {
+            organizerId = eventRepository.findById(eventId)
+                    .map(Event::getOrganizerId)
+                    .orElse(null);
+            if (organizerId != null) {
+                organizerByEvent.put(eventId, organizerId);
+            }
+        }
+        return organizerId;
+    }
+
+    private Map<String, SalesRollup> getRollups(String scope, List<String> ids) {
+        Map<String, SalesRollup> rollups = new HashMap<>();
+        for (SalesRollup rollup : salesRollupRepository.findAllById(ids)) {
+            rollups.put(rollup.getId(), rollup);
+        }
+
+        // Pending values are read without the swap lock, so a read that races a
+        // flush can be off by that one batch until the next read
+        for (String id : ids) {
+            SalesRollup rollup = rollups.get(id);
+            if (rollup == null) {
+                rollup = new SalesRollup();
+                rollup.setId(id);
+                rollup.setScope(scope);
+                rollup.setScopeId(SalesRollup.SCOPE_GLOBAL.equals(id) ? null : id.substring(scope.length() + 1));
+                rollups.put(id, rollup);
+            }
+            addPending(rollup, flushing.get(id));
+            addPending(rollup, current.get(id));
+        }
+
+        return rollups;
+    }
+
+    private void addPending(SalesRollup rollup, Accumulator pending) {
+        if (pending == null) {
+            return;
+        }
+        rollup.setTicketsSold(rollup.getTicketsSold() + pending.ticketsSold.sum());
+        rollup.setGrossRevenue(rollup.getGrossRevenue() + pending.grossRevenue.sum());
+        rollup.setRefundedTickets(rollup.getRefundedTickets() + pending.refundedTickets.sum());
+        rollup.setRefundedRevenue(rollup.getRefundedRevenue() + pending.refundedRevenue.sum());
+    }
+
+    private static final class Accumulator {
+        final String scope;
+        final String scopeId;
+        final LongAdder ticketsSold = new LongAdder();
+        final DoubleAdder grossRevenue = new DoubleAdder();
+        final LongAdder refundedTickets = new LongAdder();
+        final DoubleAdder refundedRevenue = new DoubleAdder();
+
+        Accumulator(String scope, String scopeId) {
+            this.scope = scope;
+            this.scopeId = scopeId;
+        }
+
+        void add(Accumulator other) {
+            ticketsSold.add(other.ticketsSold.sum());
+            grossRevenue.add(other.grossRevenue.sum());
+            refundedTickets.add(other.refundedTickets.sum());
+            refundedRevenue.add(other.refundedRevenue.sum());
+        }
+
+        SalesRollup toRollup(String id) {
+            SalesRollup rollup = new SalesRollup();
+            rollup.setId(id);
+            rollup.setScope(scope);
+            rollup.setScopeId(scopeId);
+            rollup.setTicketsSold(ticketsSold.sum());
+            rollup.setGrossRevenue(grossRevenue.sum());
+            rollup.setRefundedTickets(refundedTickets.sum());
+            rollup.setRefundedRevenue(refundedRevenue.sum());
+            return rollup;
+        }
+    }
+}
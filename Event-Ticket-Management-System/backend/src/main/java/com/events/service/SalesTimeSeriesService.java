@@ -0,0 +1,532 @@
+package com.events.service;
+
+import com.events.model.Order;
+import com.events.model.SalesBucket;
+import com.events.repository.EventRepository;
+import com.events.repository.OrderRepository;
+import com.events.repository.SalesBucketRepository;
+import com.events.repository.UserRepository;
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.RenameCollectionOptions;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Range;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Per-minute, per-hour and per-day sales buckets for the whole platform and for
+ * each event, so growth figures and sparklines read a bounded number of small
+ * documents instead of scanning orders and users by creation date.
+ *
+ * Every change is added to all three resolutions at once, collected in memory and
+ * written with one bulk upsert per flush interval, like {@link SalesRollupService}.
+ * Orders count in the buckets of their creation time, and a cancellation is taken
+ * back out of those same buckets, which is also what a rebuild computes.
+ * Coarser buckets therefore already hold the totals of the finer ones, and old
+ * minute and hour buckets are simply dropped by a TTL index after
+ * {@code timeseries.minute-retention-hours} and {@code timeseries.hour-retention-days}.
+ */
+@Service
+public class SalesTimeSeriesService {
+    private static final Logger logger = LoggerFactory.getLogger(SalesTimeSeriesService.class);
+
+    private static final List<String> RESOLUTIONS = List.of(SalesBucket.MINUTE, SalesBucket.HOUR, SalesBucket.DAY);
+
+    private static final int BATCH_SIZE = 1000;
+
+    private static final String COLLECTION = "sales_buckets";
+
+    private static final String REBUILD_COLLECTION = "sales_buckets_rebuild";
+
+    private static final String REBUILD_CLAIM_ID = "rebuild-claim";
+
+    @Autowired
+    private SalesBucketRepository salesBucketRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${timeseries.minute-retention-hours:48}")
+    private long minuteRetentionHours;
+
+    @Value("${timeseries.hour-retention-days:90}")
+    private long hourRetentionDays;
+
+    @Value("${timeseries.max-points:1500}")
+    private int maxPoints;
+
+    // Same swap scheme as SalesRollupService: writers share the read lock, a flush
+    // takes the write lock only to swap maps
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+
+    private volatile Map<String, Accumulator> current = new ConcurrentHashMap<>();
+
+    private volatile Map<String, Accumulator> flushing = new HashMap<>();
+
+    // Held by a flush and by a rebuild for their whole run, see SalesRollupService
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    public void recordOrder(Order order) {
+        apply(order.getEventId(), createdAt(order), 1, order.getQuantity(), order.getTotalAmount(), 0, 0);
+    }
+
+    /**
+     * Take a canceled order back out of the buckets it was counted in when created.
+     */
+    public void recordCancellation(Order order) {
+        apply(order.getEventId(), createdAt(order), -1, -order.getQuantity(), -order.getTotalAmount(), 0, 0);
+    }
+
+    public void recordSignup() {
+        apply(null, System.currentTimeMillis(), 0, 0, 0.0, 1, 0);
+    }
+
+    public void recordEventCreated() {
+        apply(null, System.currentTimeMillis(), 0, 0, 0.0, 0, 1);
+    }
+
+    /**
+     * Buckets of a series starting between {@code from} (inclusive) and {@code to}
+     * (exclusive), oldest first, with empty buckets filled in. Long ranges are cut
+     * to the {@code timeseries.max-points} buckets that end at {@code to}.
+     *
+     * @param series {@link SalesBucket#SERIES_GLOBAL} or {@link SalesBucket#eventSeries}
+     * @throws IllegalStateException if the resolution is unknown
+     */
+    public List<SalesBucket> getSeries(String series, String resolution, Date from, Date to) {
+        long size = bucketMillis(resolution);
+        long end = to.getTime();
+        long first = Math.max(floor(from.getTime(), size), floor(end - 1, size) - (maxPoints - 1) * size);
+
+        Map<String, SalesBucket> stored = new HashMap<>();
+        Range<Date> range = Range.rightOpen(new Date(first), to);
+        for (SalesBucket bucket : salesBucketRepository.findBySeriesAndResolutionAndStartBetween(series, resolution, range)) {
+            stored.put(bucket.getId(), bucket);
+        }
+
+        // Unflushed changes are read without the swap lock, see SalesRollupService
+        List<SalesBucket> buckets = new ArrayList<>();
+        for (long start = first; start < end; start += size) {
+            String id = SalesBucket.idFor(resolution, series, new Date(start));
+            SalesBucket bucket = stored.get(id);
+            if (bucket == null) {
+                bucket = new SalesBucket();
+                bucket.setId(id);
+                bucket.setSeries(series);
+                bucket.setResolution(resolution);
+                bucket.setStart(new Date(start));
+            }
+            addPending(bucket, flushing.get(id));
+            addPending(bucket, current.get(id));
+            buckets.add(bucket);
+        }
+        return buckets;
+    }
+
+    /**
+     * Growth in percent of the last {@code days} days over the {@code days} before,
+     * per measure (orders, tickets, revenue, signups, eventsCreated), read from
+     * the hour buckets of the series.
+     */
+    public Map<String, Double> getGrowth(String series, int days) {
+        int maxDays = (int) Math.min(hourRetentionDays / 2, maxPoints / 48);
+        days = Math.max(1, Math.min(days, maxDays));
+
+        long hour = TimeUnit.HOURS.toMillis(1);
+        long end = floor(System.currentTimeMillis(), hour) + hour;
+        long split = end - days * 24 * hour;
+
+        SalesBucket previous = new SalesBucket();
+        SalesBucket latest = new SalesBucket();
+        for (SalesBucket bucket : getSeries(series, SalesBucket.HOUR, new Date(split - days * 24 * hour), new Date(end))) {
+            add(bucket.getStart().getTime() < split ? previous : latest, bucket);
+        }
+
+        Map<String, Double> growth = new LinkedHashMap<>();
+        growth.put("orders", growth(latest.getOrders(), previous.getOrders()));
+        growth.put("tickets", growth(latest.getTickets(), previous.getTickets()));
+        growth.put("revenue", growth(latest.getRevenue(), previous.getRevenue()));
+        growth.put("signups", growth(latest.getSignups(), previous.getSignups()));
+        growth.put("eventsCreated", growth(latest.getEventsCreated(), previous.getEventsCreated()));
+        return growth;
+    }
+
+    /**
+     * Write all pending changes with one unordered bulk upsert. Skipped while a
+     * rebuild is running; the changes stay pending until the next flush.
+     */
+    @Scheduled(fixedDelayString = "${timeseries.flush-interval-ms:1000}")
+    public void flush() {
+        if (!writeLock.tryLock()) {
+            return;
+        }
+        try {
+            flushPending();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void flushPending() {
+        swapLock.writeLock().lock();
+        Map<String, Accumulator> batch;
+        try {
+            batch = current;
+            if (batch.isEmpty()) {
+                return;
+            }
+            flushing = batch;
+            current = new ConcurrentHashMap<>();
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+
+        try {
+            BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, SalesBucket.class);
+            for (Map.Entry<String, Accumulator> entry : batch.entrySet()) {
+                Accumulator acc = entry.getValue();
+                Update update = new Update()
+                        .setOnInsert("series", acc.series)
+                        .setOnInsert("resolution", acc.resolution)
+                        .setOnInsert("start", new Date(acc.start))
+                        .inc("orders", acc.orders.sum())
+                        .inc("tickets", acc.tickets.sum())
+                        .inc("revenue", acc.revenue.sum())
+                        .inc("signups", acc.signups.sum())
+                        .inc("eventsCreated", acc.eventsCreated.sum());
+                Date expireAt = expireAt(acc.resolution, acc.start);
+                if (expireAt != null) {
+                    update.setOnInsert("expireAt", expireAt);
+                }
+                ops.upsert(new Query(Criteria.where("_id").is(entry.getKey())), update);
+            }
+            ops.execute();
+            logger.debug("Flushed {} sales buckets", batch.size());
+        } catch (Exception e) {
+            logger.error("Error flushing sales buckets, will retry", e);
+            swapLock.readLock().lock();
+            try {
+                for (Map.Entry<String, Accumulator> entry : batch.entrySet()) {
+                    Accumulator failed = entry.getValue();
+                    current.computeIfAbsent(entry.getKey(),
+                            key -> new Accumulator(failed.series, failed.resolution, failed.start)).add(failed);
+                }
+            } finally {
+                swapLock.readLock().unlock();
+            }
+        } finally {
+            flushing = new HashMap<>();
+        }
+    }
+
+    /**
+     * Recompute the buckets still within their retention from completed orders,
+     * users and events, replacing what is stored. Canceled orders are left out,
+     * which matches taking them back out of their original buckets.
+     *
+     * The buckets are written to a separate collection that then replaces
+     * {@code sales_buckets} in one rename, so readers never see a partial series.
+     * Flushes are paused for the whole rebuild, but new changes are not, as in
+     * {@link SalesRollupService#rebuild()}: the swap lock is only taken to drop the
+     * pending changes and fix a cutoff. The aggregates cover what was created before
+     * the cutoff, and changes recorded meanwhile build up in the live accumulators,
+     * which the first flush after the rename adds on top. The only overlap is a
+     * change created just before the cutoff and recorded just after it, or a cancel
+     * that races the aggregation. Other nodes keep flushing into the old collection,
+     * so run a rebuild while a single node takes purchases.
+     */
+    public void rebuild() {
+        logger.info("Rebuilding sales time series");
+
+        writeLock.lock();
+        try {
+            mongoTemplate.dropCollection(REBUILD_COLLECTION);
+            Date cutoff;
+            swapLock.writeLock().lock();
+            try {
+                // Everything pending is already in the source collections and so in the rebuild
+                current = new ConcurrentHashMap<>();
+                cutoff = new Date();
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+            long written = writeBuckets(cutoff);
+
+            IndexOperations indexes = mongoTemplate.indexOps(REBUILD_COLLECTION);
+            indexes.ensureIndex(new Index().named("series_resolution_start")
+                    .on("series", Sort.Direction.ASC)
+                    .on("resolution", Sort.Direction.ASC)
+                    .on("start", Sort.Direction.ASC));
+            indexes.ensureIndex(new Index().named("expireAt_ttl").on("expireAt", Sort.Direction.ASC).expire(0));
+
+            MongoCollection<Document> rebuilt = mongoTemplate.getCollection(REBUILD_COLLECTION);
+            rebuilt.renameCollection(new MongoNamespace(mongoTemplate.getDb().getName(), COLLECTION),
+                    new RenameCollectionOptions().dropTarget(true));
+            logger.info("Rebuilt {} sales buckets", written);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private long writeBuckets(Date cutoff) {
+        long written = 0;
+        for (String resolution : RESOLUTIONS) {
+            long size = bucketMillis(resolution);
+            Date from = new Date(retentionStart(resolution, cutoff.getTime()));
+            Map<Long, SalesBucket> global = new HashMap<>();
+            List<SalesBucket> batch = new ArrayList<>(BATCH_SIZE);
+
+            try (Stream<SalesBucket> rows = orderRepository.sumSalesByEventAndBucket(size, from, cutoff)) {
+                Iterator<SalesBucket> iterator = rows.iterator();
+                while (iterator.hasNext()) {
+                    SalesBucket row = iterator.next();
+                    add(globalBucket(global, resolution, row.getStart()), row);
+                    if (row.getSeries() == null) {
+                        continue;
+                    }
+                    batch.add(prepare(row, SalesBucket.eventSeries(row.getSeries()), resolution));
+                    if (batch.size() >= BATCH_SIZE) {
+                        written += insert(batch);
+                    }
+                }
+            }
+            for (SalesBucket row : userRepository.countSignupsByBucket(size, from, cutoff)) {
+                add(globalBucket(global, resolution, row.getStart()), row);
+            }
+            for (SalesBucket row : eventRepository.countCreatedByBucket(size, from, cutoff)) {
+                add(globalBucket(global, resolution, row.getStart()), row);
+            }
+
+            batch.addAll(global.values());
+            written += insert(batch);
+        }
+        return written;
+    }
+
+    /**
+     * Build the time series on first start against a database that already has orders.
+     * Nodes starting together race for a claim document, and only the winner
+     * rebuilds. The rebuilt collection replaces the one holding the claim.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        try {
+            if (salesBucketRepository.count() == 0
+                    && mongoTemplate.exists(new Query(), Order.class)
+                    && claimInitialRebuild()) {
+                rebuild();
+            }
+        } catch (Exception e) {
+            logger.error("Error initializing sales time series", e);
+        }
+    }
+
+    private boolean claimInitialRebuild() {
+        SalesBucket claim = new SalesBucket();
+        claim.setId(REBUILD_CLAIM_ID);
+        try {
+            mongoTemplate.insert(claim);
+            return true;
+        } catch (DuplicateKeyException e) {
+            logger.info("Another node is building the sales time series");
+            return false;
+        }
+    }
+
+    private void apply(String eventId, long at, long orders, long tickets, double revenue,
+                       long signups, long eventsCreated) {
+        long now = System.currentTimeMillis();
+
+        swapLock.readLock().lock();
+        try {
+            Map<String, Accumulator> live = current;
+            for (String resolution : RESOLUTIONS) {
+                long start = floor(at, bucketMillis(resolution));
+                Date expireAt = expireAt(resolution, start);
+                if (expireAt != null && expireAt.getTime() <= now) {
+                    // The bucket is past its retention, only the coarser ones still hold the order
+                    continue;
+                }
+                accumulator(live, resolution, SalesBucket.SERIES_GLOBAL, start)
+                        .add(orders, tickets, revenue, signups, eventsCreated);
+                if (eventId != null) {
+                    accumulator(live, resolution, SalesBucket.eventSeries(eventId), start)
+                            .add(orders, tickets, revenue, signups, eventsCreated);
+                }
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    private Accumulator accumulator(Map<String, Accumulator> live, String resolution, String series, long start) {
+        return live.computeIfAbsent(SalesBucket.idFor(resolution, series, new Date(start)),
+                key -> new Accumulator(series, resolution, start));
+    }
+
+    private SalesBucket globalBucket(Map<Long, SalesBucket> global, String resolution, Date start) {
+        return global.computeIfAbsent(start.getTime(),
+                key -> prepare(new SalesBucket(), SalesBucket.SERIES_GLOBAL, resolution, start));
+    }
+
+    private SalesBucket prepare(SalesBucket bucket, String series, String resolution) {
+        return prepare(bucket, series, resolution, bucket.getStart());
+    }
+
+    private SalesBucket prepare(SalesBucket bucket, String series, String resolution, Date start) {
+        bucket.setId(SalesBucket.idFor(resolution, series, start));
+        bucket.setSeries(series);
+        bucket.setResolution(resolution);
+        bucket.setStart(start);
+        bucket.setExpireAt(expireAt(resolution, start.getTime()));
+        return bucket;
+    }
+
+    private int insert(List<SalesBucket> batch) {
+        int count = batch.size();
+        if (count > 0) {
+            mongoTemplate.insert(batch, REBUILD_COLLECTION);
+            batch.clear();
+        }
+        return count;
+    }
+
+    private Date expireAt(String resolution, long start) {
+        switch (resolution) {
+            case SalesBucket.MINUTE:
+                return new Date(start + TimeUnit.HOURS.toMillis(minuteRetentionHours));
+            case SalesBucket.HOUR:
+                return new Date(start + TimeUnit.DAYS.toMillis(hourRetentionDays));
+            default:
+                return null;
+        }
+    }
+
+    private static long createdAt(Order order) {
+        return order.getCreatedAt() != null ? order.getCreatedAt().getTime() : System.currentTimeMillis();
+    }
+
+    private long retentionStart(String resolution, long now) {
+        Date expireAt = expireAt(resolution, now);
+        return expireAt == null ? 0 : now - (expireAt.getTime() - now);
+    }
+
+    /**
+     * Length of a bucket. Days are UTC days, which line up with multiples of a
+     * day since the epoch.
+     *
+     * @throws IllegalStateException if the resolution is unknown
+     */
+    public static long bucketMillis(String resolution) {
+        switch (resolution) {
+            case SalesBucket.MINUTE:
+                return TimeUnit.MINUTES.toMillis(1);
+            case SalesBucket.HOUR:
+                return TimeUnit.HOURS.toMillis(1);
+            case SalesBucket.DAY:
+                return TimeUnit.DAYS.toMillis(1);
+            default:
+                throw new IllegalStateException("Unknown resolution: " + resolution);
+        }
+    }
+
+    private static long floor(long millis, long size) {
+        return millis - Math.floorMod(millis, size);
+    }
+
+    private static double growth(double latest, double previous) {
+        if (previous == 0) {
+            return latest > 0 ? 100.0 : 0.0;
+        }
+        return Math.round((latest - previous) / previous * 1000) / 10.0;
+    }
+
+    private static void add(SalesBucket target, SalesBucket other) {
+        target.setOrders(target.getOrders() + other.getOrders());
+        target.setTickets(target.getTickets() + other.getTickets());
+        target.setRevenue(target.getRevenue() + other.getRevenue());
+        target.setSignups(target.getSignups() + other.getSignups());
+        target.setEventsCreated(target.getEventsCreated() + other.getEventsCreated());
+    }
+
+    private static void addPending(SalesBucket bucket, Accumulator pending) {
+        if (pending == null) {
+            return;
+        }
+        bucket.setOrders(bucket.getOrders() + pending.orders.sum());
+        bucket.setTickets(bucket.getTickets() + pending.tickets.sum());
+        bucket.setRevenue(bucket.getRevenue() + pending.revenue.sum());
+        bucket.setSignups(bucket.getSignups() + pending.signups.sum());
+        bucket.setEventsCreated(bucket.getEventsCreated() + pending.eventsCreated.sum());
+    }
+
+    private static final class Accumulator {
+        final String series;
+        final String resolution;
+        final long start;
+        final LongAdder orders = new LongAdder();
+        final LongAdder tickets = new LongAdder();
+        final DoubleAdder revenue = new DoubleAdder();
+        final LongAdder signups = new LongAdder();
+        final LongAdder eventsCreated = new LongAdder();
+
+        Accumulator(String series, String resolution, long start) {
+            this.series = series;
+            this.resolution = resolution;
+            this.start = start;
+        }
+
+        void add(long orderDelta, long ticketDelta, double revenueDelta, long signupDelta, long eventDelta) {
+            orders.add(orderDelta);
+            tickets.add(ticketDelta);
+            revenue.add(revenueDelta);
+            signups.add(signupDelta);
+            eventsCreated.add(eventDelta);
+        }
+
+        void add(Accumulator other) {
+            add(other.orders.sum(), other.tickets.sum(), other.revenue.sum(),
+                    other.signups.sum(), other.eventsCreated.sum());
+        }
+    }
+}
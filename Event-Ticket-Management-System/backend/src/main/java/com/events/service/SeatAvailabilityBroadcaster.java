@@ -0,0 +1,304 @@
+package com.events.service;
+
+import com.events.config.AsyncConfig;
+import com.events.model.Event;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes the remaining seats of an event to its server-sent event subscribers.
+ *
+ * Each event with subscribers has one channel. Every {@code seats.stream.interval-ms}
+ * the channels compare the current seat count with the count they last sent, so
+ * any number of purchases in between turns into a single "seats" message per
+ * event. The current count is this node's counter in {@link SeatInventoryCache}
+ * while it is fresh (it never touches or loads counters, so subscribers do not
+ * keep one alive), and otherwise the stored count, read for all channels with
+ * one query per interval. The message is serialized once and written on the
+ * seat stream executor, split into tasks of {@code seats.stream.batch-size}
+ * subscribers. Writes block while a client's TCP window is full, so a subscriber
+ * whose previous write is still running is left out and gets the latest count on
+ * a later interval. A stalled client therefore holds up at most the rest of one
+ * batch, once, until the container's write timeout
+ * ({@code server.tomcat.connection-timeout}) fails the write and drops it.
+ * Channels also resend the count every {@code seats.stream.heartbeat-ms}, which
+ * detects dead connections and corrects any subscriber that missed a change.
+ *
+ * An idle subscriber only costs its emitter and a map entry. No thread is held
+ * while it waits. Subscriptions are capped at {@code seats.stream.max-subscribers}
+ * per node.
+ *
+ * With several nodes, purchases made through another node show up within the
+ * counter resync interval ({@code seats.inventory.resync-ms}), or at once on a
+ * node that holds no counter for the event.
+ */
+@Service
+public class SeatAvailabilityBroadcaster {
+    private static final Logger logger = LoggerFactory.getLogger(SeatAvailabilityBroadcaster.class);
+
+    private static final String EVENT_NAME = "seats";
+
+    @Autowired
+    private SeatInventoryCache seatInventoryCache;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    @Qualifier(AsyncConfig.SEAT_STREAM_EXECUTOR)
+    private Executor seatStreamExecutor;
+
+    @Value("${seats.stream.max-subscribers:100000}")
+    private int maxSubscribers;
+
+    @Value("${seats.stream.timeout-ms:1800000}")
+    private long timeoutMillis;
+
+    @Value("${seats.stream.heartbeat-ms:30000}")
+    private long heartbeatMillis;
+
+    @Value("${seats.stream.retry-ms:5000}")
+    private long retryMillis;
+
+    @Value("${seats.stream.batch-size:100}")
+    private int batchSize;
+
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    /**
+     * Open a stream of seat updates for the event. The current count is sent right away.
+     *
+     * @return null if the event does not exist
+     * @throws IllegalStateException if this node already holds the maximum number of streams
+     */
+    public SseEmitter subscribe(String eventId) throws IOException {
+        int seats = currentSeats(eventId, storedSeats(List.of(eventId)));
+        if (seats < 0) {
+            return null;
+        }
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new IllegalStateException("Too many seat availability subscribers");
+        }
+
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        try {
+            emitter.send(SseEmitter.event()
+                    .name(EVENT_NAME)
+                    .reconnectTime(retryMillis)
+                    .data(toJson(eventId, seats, 0), MediaType.APPLICATION_JSON));
+        } catch (IOException e) {
+            subscriberCount.decrementAndGet();
+            throw e;
+        }
+
+        Runnable unsubscribe = () -> unsubscribe(eventId, emitter);
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(e -> unsubscribe.run());
+        channels.compute(eventId, (id, channel) -> {
+            if (channel == null) {
+                channel = new Channel(seats);
+            }
+            channel.subscribers.put(emitter, new Subscriber(emitter));
+            return channel;
+        });
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    public int getChannelCount() {
+        return channels.size();
+    }
+
+    @Scheduled(fixedRateString = "${seats.stream.interval-ms:250}")
+    public void broadcast() {
+        if (channels.isEmpty()) {
+            return;
+        }
+        Set<String> eventIds = new HashSet<>(channels.keySet());
+        Map<String, Integer> stored;
+        try {
+            stored = storedSeats(eventIds);
+        } catch (Exception e) {
+            logger.warn("Could not read seats of {} events for their subscribers", channels.size(), e);
+            return;
+        }
+
+        long now = System.nanoTime();
+        long heartbeatNanos = TimeUnit.MILLISECONDS.toNanos(heartbeatMillis);
+        for (Map.Entry<String, Channel> entry : channels.entrySet()) {
+            String eventId = entry.getKey();
+            Channel channel = entry.getValue();
+
+            int seats = currentSeats(eventId, stored);
+            if (seats < 0 && !eventIds.contains(eventId)) {
+                // Channel opened after the read; it has the current count already
+                continue;
+            }
+            int previous = channel.lastSeats;
+            if (seats == previous && !channel.behind && now - channel.lastSentNanos < heartbeatNanos) {
+                continue;
+            }
+
+            Set<ResponseBodyEmitter.DataWithMediaType> message;
+            try {
+                // A deleted event ends its streams
+                message = seats < 0 ? null : SseEmitter.event()
+                        .name(EVENT_NAME)
+                        .data(toJson(eventId, seats, seats - previous), MediaType.APPLICATION_JSON)
+                        .build();
+            } catch (JsonProcessingException e) {
+                logger.error("Could not serialize seat update for event {}", eventId, e);
+                continue;
+            }
+            channel.lastSeats = seats;
+            channel.lastSentNanos = now;
+            channel.behind = false;
+
+            List<Subscriber> batch = new ArrayList<>(batchSize);
+            for (Subscriber subscriber : channel.subscribers.values()) {
+                if (!subscriber.writing.compareAndSet(false, true)) {
+                    // Still writing an earlier message; it gets the latest count later
+                    channel.behind = true;
+                    continue;
+                }
+                batch.add(subscriber);
+                if (batch.size() == batchSize) {
+                    dispatch(eventId, channel, batch, message);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                dispatch(eventId, channel, batch, message);
+            }
+        }
+    }
+
+    // The local counter has this node's latest changes, but only while it is fresh
+    private int currentSeats(String eventId, Map<String, Integer> stored) {
+        int cached = seatInventoryCache.getCachedSeats(eventId);
+        if (cached >= 0) {
+            return cached;
+        }
+        return stored.getOrDefault(eventId, -1);
+    }
+
+    private Map<String, Integer> storedSeats(Collection<String> eventIds) {
+        Query query = new Query(Criteria.where("_id").in(eventIds));
+        query.fields().include("availableSeats");
+        Map<String, Integer> seats = new HashMap<>();
+        for (Event event : mongoTemplate.find(query, Event.class)) {
+            seats.put(event.getId(), event.getAvailableSeats());
+        }
+        return seats;
+    }
+
+    private void dispatch(String eventId, Channel channel, List<Subscriber> batch,
+                          Set<ResponseBodyEmitter.DataWithMediaType> message) {
+        try {
+            seatStreamExecutor.execute(() -> send(eventId, batch, message));
+        } catch (RejectedExecutionException e) {
+            // Try again on the next interval
+            for (Subscriber subscriber : batch) {
+                subscriber.writing.set(false);
+            }
+            channel.behind = true;
+        }
+    }
+
+    // Emitter writes hold the emitter's monitor while they block on the socket; they
+    // run on the platform threads of the seat stream executor, so they pin no virtual thread
+    private void send(String eventId, List<Subscriber> batch, Set<ResponseBodyEmitter.DataWithMediaType> message) {
+        for (Subscriber subscriber : batch) {
+            try {
+                if (message == null) {
+                    subscriber.emitter.complete();
+                } else {
+                    subscriber.emitter.send(message);
+                }
+            } catch (Exception e) {
+                // The client went away or the write timed out; the container completes the emitter as well
+                unsubscribe(eventId, subscriber.emitter);
+            } finally {
+                subscriber.writing.set(false);
+            }
+        }
+    }
+
+    private void unsubscribe(String eventId, SseEmitter emitter) {
+        channels.computeIfPresent(eventId, (id, channel) -> {
+            if (channel.subscribers.remove(emitter) != null) {
+                subscriberCount.decrementAndGet();
+            }
+            return channel.subscribers.isEmpty() ? null : channel;
+        });
+    }
+
+    // availableSeats is authoritative; delta is the change since the channel's previous message
+    private String toJson(String eventId, int seats, int delta) throws JsonProcessingException {
+        Map<String, Object> update = new LinkedHashMap<>();
+        update.put("eventId", eventId);
+        update.put("availableSeats", seats);
+        update.put("delta", delta);
+        return objectMapper.writeValueAsString(update);
+    }
+
+    private static final class Channel {
+        final Map<SseEmitter, Subscriber> subscribers = new ConcurrentHashMap<>();
+        volatile int lastSeats;
+        volatile long lastSentNanos = System.nanoTime();
+        // Some subscriber was skipped or rejected and has not seen lastSeats yet
+        volatile boolean behind;
+
+        Channel(int seats) {
+            this.lastSeats = seats;
+        }
+    }
+
+    private static final class Subscriber {
+        final SseEmitter emitter;
+        final AtomicBoolean writing = new AtomicBoolean();
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+}
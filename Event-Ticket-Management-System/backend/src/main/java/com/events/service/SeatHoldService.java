@@ -0,0 +1,166 @@
+package com.events.service;
+
+import com.events.model.Order;
+import com.events.model.OrderStatus;
+import com.events.util.TimingWheel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Expiry of the seat holds taken by PENDING orders.
+ *
+ * Every outstanding hold is a timer in a {@link TimingWheel}; once a second the
+ * wheel hands back the holds that lapsed. Each is moved from PENDING to EXPIRED
+ * with its own conditional update, and only the orders this node actually moved
+ * give their seats back, with one release per event. The orders collection is
+ * never polled. The wheel is rebuilt from the PENDING orders
+ * at startup, and holds that lapsed while the application was down expire on the
+ * first tick.
+ *
+ * A hold leaves the wheel exactly once, either by expiring or through
+ * {@link #untrack(String)} when it is confirmed or released. Across nodes (or two
+ * nodes recovering the same holds at startup) the conditional PENDING updates
+ * decide: whichever update moves the order first wins, and the loser does nothing.
+ */
+@Service
+public class SeatHoldService {
+    private static final Logger logger = LoggerFactory.getLogger(SeatHoldService.class);
+
+    private static final int EXPIRE_BATCH = 1000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private SeatReservationService seatReservationService;
+
+    @Value("${seats.hold.minutes:10}")
+    private long holdMinutes;
+
+    private final TimingWheel<Hold> wheel;
+
+    public SeatHoldService(@Value("${seats.hold.tick-ms:1000}") long tickMillis) {
+        this.wheel = new TimingWheel<>(tickMillis, System.currentTimeMillis());
+    }
+
+    public Date newDeadline() {
+        return new Date(System.currentTimeMillis() + holdMinutes * 60_000L);
+    }
+
+    public void track(Order order) {
+        wheel.schedule(order.getId(), new Hold(order.getId(), order.getEventId(), order.getQuantity()),
+                order.getHoldExpiresAt().getTime());
+    }
+
+    /**
+     * Take a hold out of the wheel before confirming or releasing its order.
+     *
+     * @return false if the hold already expired (or is unknown)
+     */
+    public boolean untrack(String orderId) {
+        return wheel.cancel(orderId);
+    }
+
+    /**
+     * Release an untracked hold immediately.
+     */
+    public void release(Order order) {
+        expire(List.of(new Hold(order.getId(), order.getEventId(), order.getQuantity())));
+    }
+
+    public int getOutstandingHolds() {
+        return wheel.size();
+    }
+
+    @Scheduled(fixedRateString = "${seats.hold.tick-ms:1000}")
+    public void expireDue() {
+        List<Hold> due = wheel.advance(System.currentTimeMillis());
+        for (int from = 0; from < due.size(); from += EXPIRE_BATCH) {
+            List<Hold> batch = due.subList(from, Math.min(from + EXPIRE_BATCH, due.size()));
+            try {
+                expire(batch);
+            } catch (Exception e) {
+                // Retry on the next tick rather than leaking the seats
+                logger.error("Error expiring {} seat holds, will retry", batch.size(), e);
+                for (Hold hold : batch) {
+                    wheel.schedule(hold.orderId, hold, System.currentTimeMillis());
+                }
+            }
+        }
+        if (!due.isEmpty()) {
+            logger.debug("Expired {} seat holds, {} outstanding", due.size(), wheel.size());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        Query query = new Query(Criteria.where("status").is(OrderStatus.PENDING.name()))
+                .with(Sort.by("holdExpiresAt"));
+        query.fields().include("eventId", "quantity", "holdExpiresAt");
+
+        int recovered = 0;
+        try (Stream<Order> pending = mongoTemplate.stream(query, Order.class)) {
+            for (Order order : (Iterable<Order>) pending::iterator) {
+                if (order.getHoldExpiresAt() == null) {
+                    order.setHoldExpiresAt(new Date());
+                }
+                track(order);
+                recovered++;
+            }
+        } catch (Exception e) {
+            logger.error("Error recovering seat holds", e);
+        }
+        logger.info("Recovered {} outstanding seat holds", recovered);
+    }
+
+    private void expire(List<Hold> holds) {
+        Update expired = new Update().set("status", OrderStatus.EXPIRED.name()).unset("holdExpiresAt");
+
+        // Only an order this call moved out of PENDING gives its seats back, so an
+        // order confirmed, released or expired elsewhere is never released twice
+        Map<String, Integer> seatsByEvent = new HashMap<>();
+        try {
+            for (Hold hold : holds) {
+                Query pending = new Query(Criteria.where("_id").is(hold.orderId)
+                        .and("status").is(OrderStatus.PENDING.name()));
+                if (mongoTemplate.updateFirst(pending, expired, Order.class).getModifiedCount() == 1) {
+                    seatsByEvent.merge(hold.eventId, hold.quantity, Integer::sum);
+                }
+            }
+        } finally {
+            // Orders already expired must not keep their seats if a later update fails
+            for (Map.Entry<String, Integer> entry : seatsByEvent.entrySet()) {
+                seatReservationService.release(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private static final class Hold {
+        final String orderId;
+        final String eventId;
+        final int quantity;
+
+        Hold(String orderId, String eventId, int quantity) {
+            this.orderId = orderId;
+            this.eventId = eventId;
+            this.quantity = quantity;
+        }
+    }
+}
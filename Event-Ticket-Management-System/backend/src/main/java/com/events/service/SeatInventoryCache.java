@@ -0,0 +1,436 @@
+package com.events.service;
+
+import com.events.model.Event;
+import com.events.model.Order;
+import com.events.model.OrderStatus;
+import com.events.repository.EventRepository;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process seat counters keyed by event id.
+ *
+ * Purchases are admitted or rejected against the cached counter with a CAS, so a
+ * sold-out event rarely costs a database round-trip (see below). Counters are loaded lazily
+ * from the events collection under a striped lock so that only one thread per
+ * event hits Mongo while warming. Seat changes that have not reached Mongo yet are
+ * tracked per event and flushed in a single bulk write on a fixed interval.
+ *
+ * Changes to the pending count and the removal of a counter happen under the
+ * event's stripe lock, so a change can never land on a counter that was already
+ * flushed and dropped. A counter taken from the map before it was dropped is
+ * marked {@code removed}, and callers retry against the reloaded one. Loads wait
+ * for a running flush, so they never read a stored count that is missing seats
+ * already taken here. Counters unused for {@code seats.inventory.idle-minutes} are
+ * dropped; only successful takes count as use.
+ *
+ * A counter only sees the changes made through this node. Seats freed elsewhere
+ * (a cancel or an expired hold on another node, a larger totalSeats) reach it by
+ * reloading, so a counter with nothing pending that is older than
+ * {@code seats.inventory.resync-ms} is reloaded before it rejects a purchase as
+ * sold out, and is not reported by {@link #getCachedSeats}. A sold-out event
+ * therefore costs at most one read per resync interval and node.
+ */
+@Service
+public class SeatInventoryCache {
+    private static final Logger logger = LoggerFactory.getLogger(SeatInventoryCache.class);
+
+    private static final int STRIPES = 64;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+
+    // Flushes hold the write lock while their changes are on the way to Mongo;
+    // loads hold the read lock
+    private final ReentrantReadWriteLock flushLock = new ReentrantReadWriteLock();
+
+    // Undercounts seen by the previous reconcile, to tell lasting drift from orders in flight
+    private Map<String, Integer> previousDrift = new HashMap<>();
+
+    @Value("${seats.inventory.idle-minutes:30}")
+    private long idleMinutes;
+
+    @Value("${seats.inventory.resync-ms:2000}")
+    private long resyncMillis;
+
+    public SeatInventoryCache() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Take seats from the cached counter.
+     *
+     * @param markDirty also record the change as pending for the next flush, for
+     *                  write-behind; done atomically with the take so that an
+     *                  eviction cannot separate the two
+     * @return false if the event is unknown or does not have enough seats left
+     */
+    public boolean tryAcquire(String eventId, int quantity, boolean markDirty) {
+        boolean resynced = false;
+        while (true) {
+            Counter counter = getOrLoad(eventId);
+            if (counter == null) {
+                return false;
+            }
+            counter.demand.increment();
+
+            // Sold out: reject without taking any lock, unless seats may have been
+            // freed on another node since the counter was loaded
+            if (!take(counter, quantity)) {
+                if (!resynced && isStale(counter)) {
+                    resynced = true;
+                    evict(eventId);
+                    continue;
+                }
+                return false;
+            }
+            counter.touch();
+            if (!markDirty) {
+                if (!counter.removed) {
+                    return true;
+                }
+                // Evicted meanwhile: the reloaded counter never saw this take
+                continue;
+            }
+
+            ReentrantLock lock = stripeFor(eventId);
+            lock.lock();
+            try {
+                if (!counter.removed) {
+                    counter.pending.addAndGet(-quantity);
+                    return true;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Put seats back into the cached counter.
+     *
+     * @param markDirty also record the change as pending for the next flush, or
+     *                  write it through if the event is no longer cached
+     */
+    public void restore(String eventId, int quantity, boolean markDirty) {
+        if (!markDirty) {
+            // The stored count is the authority, a dropped counter reloads from it
+            Counter counter = counters.get(eventId);
+            if (counter != null) {
+                counter.available.addAndGet(quantity);
+            }
+            return;
+        }
+
+        ReentrantLock lock = stripeFor(eventId);
+        lock.lock();
+        try {
+            Counter counter = counters.get(eventId);
+            if (counter != null) {
+                counter.available.addAndGet(quantity);
+                counter.pending.addAndGet(quantity);
+            } else {
+                incrementAvailableSeats(eventId, quantity);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Current seat count, loading the event into the cache if needed, or -1 if
+     * the event does not exist.
+     */
+    public int getSeats(String eventId) {
+        Counter counter = getOrLoad(eventId);
+        if (counter != null && isStale(counter)) {
+            evict(eventId);
+            counter = getOrLoad(eventId);
+        }
+        return counter != null ? counter.available.get() : -1;
+    }
+
+    /**
+     * Currently cached seat count, or -1 if the event is not cached or its
+     * counter is due for a resync, in which case the stored count is as current.
+     */
+    public int getCachedSeats(String eventId) {
+        Counter counter = counters.get(eventId);
+        return counter != null && !isStale(counter) ? counter.available.get() : -1;
+    }
+
+    /**
+     * Cached seat counts of the {@code limit} events with the most purchase
+     * attempts since they were loaded, busiest first.
+     */
+    public Map<String, Integer> getHotEvents(int limit) {
+        List<Map.Entry<String, Counter>> entries = new ArrayList<>(counters.entrySet());
+        entries.sort(Comparator.comparingLong(
+                (Map.Entry<String, Counter> entry) -> entry.getValue().demand.sum()).reversed());
+
+        Map<String, Integer> hot = new LinkedHashMap<>();
+        for (Map.Entry<String, Counter> entry : entries.subList(0, Math.min(limit, entries.size()))) {
+            hot.put(entry.getKey(), entry.getValue().available.get());
+        }
+        return hot;
+    }
+
+    /**
+     * Flush the event's pending changes and drop it from the cache, so the next
+     * access reloads it from Mongo. Call this whenever the event document itself
+     * is changed or removed.
+     */
+    public void evict(String eventId) {
+        ReentrantLock lock = stripeFor(eventId);
+        lock.lock();
+        try {
+            Counter counter = counters.remove(eventId);
+            if (counter != null) {
+                counter.removed = true;
+                int delta = counter.pending.getAndSet(0);
+                if (delta != 0) {
+                    incrementAvailableSeats(eventId, delta);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Write all pending seat changes to Mongo with one unordered bulk update.
+     */
+    @Scheduled(fixedDelayString = "${seats.inventory.flush-interval-ms:500}")
+    public void flush() {
+        flushLock.writeLock().lock();
+        try {
+            Map<String, Integer> batch = new HashMap<>();
+            for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+                int delta = entry.getValue().pending.getAndSet(0);
+                if (delta != 0) {
+                    batch.put(entry.getKey(), delta);
+                }
+            }
+
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            try {
+                BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Event.class);
+                for (Map.Entry<String, Integer> entry : batch.entrySet()) {
+                    ops.updateOne(new Query(Criteria.where("_id").is(entry.getKey())),
+                            new Update().inc("availableSeats", entry.getValue()));
+                }
+                ops.execute();
+                logger.debug("Flushed seat changes for {} events", batch.size());
+            } catch (Exception e) {
+                logger.error("Error flushing seat changes, will retry", e);
+                // Put the changes back so the next flush picks them up
+                for (Map.Entry<String, Integer> entry : batch.entrySet()) {
+                    requeue(entry.getKey(), entry.getValue());
+                }
+            }
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drop counters that have not been used for {@code seats.inventory.idle-minutes},
+     * writing out anything still pending.
+     */
+    @Scheduled(fixedDelayString = "${seats.inventory.expire-interval-ms:60000}")
+    public void expireIdle() {
+        long cutoff = System.nanoTime() - TimeUnit.MINUTES.toNanos(idleMinutes);
+        int expired = 0;
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            if (entry.getValue().lastUsedNanos - cutoff < 0) {
+                evict(entry.getKey());
+                expired++;
+            }
+        }
+        if (expired > 0) {
+            logger.debug("Dropped {} idle seat counters", expired);
+        }
+    }
+
+    /**
+     * Compare every cached counter with {@code totalSeats} minus the seats held by
+     * completed orders and pending holds, and log any drift.
+     *
+     * Seats are taken from the counter before their order is written, so purchases
+     * in flight make the counter look low for a moment. A counter above the
+     * expected count is reported at once. One below it is only reported when the
+     * same difference was already seen by the previous run.
+     *
+     * @return event id to the difference between the cached and the expected seat
+     *         count, for the events that disagree
+     */
+    @Scheduled(fixedDelayString = "${seats.inventory.reconcile-interval-ms:300000}")
+    public Map<String, Integer> reconcile() {
+        Map<String, Integer> drift = new HashMap<>();
+        Map<String, Integer> undercounts = new HashMap<>();
+        if (counters.isEmpty()) {
+            previousDrift = undercounts;
+            return drift;
+        }
+
+        flush();
+
+        List<String> eventIds = new ArrayList<>(counters.keySet());
+        Map<String, Long> soldByEvent = new HashMap<>();
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("eventId").in(eventIds)
+                        .and("status").in(OrderStatus.COMPLETED.name(), OrderStatus.PENDING.name())),
+                Aggregation.group("eventId").sum("quantity").as("sold"));
+        for (Document row : mongoTemplate.aggregate(aggregation, Order.class, Document.class)) {
+            soldByEvent.put(row.getString("_id"), ((Number) row.get("sold")).longValue());
+        }
+
+        for (Event event : eventRepository.findAllById(eventIds)) {
+            Counter counter = counters.get(event.getId());
+            if (counter == null) {
+                continue;
+            }
+            long expected = event.getTotalSeats() - soldByEvent.getOrDefault(event.getId(), 0L);
+            int difference = (int) (counter.available.get() - expected);
+            if (difference < 0) {
+                undercounts.put(event.getId(), difference);
+                if (!Integer.valueOf(difference).equals(previousDrift.get(event.getId()))) {
+                    continue;
+                }
+            }
+            if (difference != 0) {
+                drift.put(event.getId(), difference);
+                logger.warn("Seat inventory drift for event {}: cached={}, expected from orders={}",
+                        event.getId(), expected + difference, expected);
+            }
+        }
+
+        previousDrift = undercounts;
+        return drift;
+    }
+
+    private Counter getOrLoad(String eventId) {
+        Counter counter = counters.get(eventId);
+        if (counter != null) {
+            return counter;
+        }
+
+        // Always the flush lock before the stripe lock, as in flush()
+        flushLock.readLock().lock();
+        ReentrantLock lock = stripeFor(eventId);
+        lock.lock();
+        try {
+            counter = counters.get(eventId);
+            if (counter == null) {
+                Event event = eventRepository.findById(eventId).orElse(null);
+                if (event == null) {
+                    return null;
+                }
+                counter = new Counter(event.getAvailableSeats());
+                counters.put(eventId, counter);
+            }
+            return counter;
+        } finally {
+            lock.unlock();
+            flushLock.readLock().unlock();
+        }
+    }
+
+    // Nothing pending, so Mongo holds at least everything this counter knows
+    private boolean isStale(Counter counter) {
+        return counter.pending.get() == 0
+                && System.nanoTime() - counter.loadedNanos > TimeUnit.MILLISECONDS.toNanos(resyncMillis);
+    }
+
+    private static boolean take(Counter counter, int quantity) {
+        while (true) {
+            int current = counter.available.get();
+            if (current < quantity) {
+                return false;
+            }
+            if (counter.available.compareAndSet(current, current - quantity)) {
+                return true;
+            }
+        }
+    }
+
+    // Give a change that failed to flush back to the counter, or write it through
+    // if the counter was dropped meanwhile
+    private void requeue(String eventId, int delta) {
+        ReentrantLock lock = stripeFor(eventId);
+        lock.lock();
+        try {
+            Counter counter = counters.get(eventId);
+            if (counter != null) {
+                counter.pending.addAndGet(delta);
+            } else {
+                incrementAvailableSeats(eventId, delta);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void incrementAvailableSeats(String eventId, int delta) {
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(eventId)),
+                new Update().inc("availableSeats", delta), Event.class);
+    }
+
+    private ReentrantLock stripeFor(String eventId) {
+        return stripes[(eventId.hashCode() & 0x7fffffff) % STRIPES];
+    }
+
+    private static final class Counter {
+        final AtomicInteger available;
+        final AtomicInteger pending = new AtomicInteger();
+        final LongAdder demand = new LongAdder();
+        // Set under the stripe lock once the counter is out of the map
+        volatile boolean removed;
+        final long loadedNanos = System.nanoTime();
+        volatile long lastUsedNanos = loadedNanos;
+
+        Counter(int available) {
+            this.available = new AtomicInteger(available);
+        }
+
+        void touch() {
+            lastUsedNanos = System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.events.service;
+
+import com.events.config.CacheConfig;
+import com.events.model.Event;
+import com.mongodb.client.result.UpdateResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+/**
+ * Atomic seat accounting for the purchase path.
+ *
+ * Requests are first admitted against the in-memory {@link SeatInventoryCache}, so
+ * sold-out events are mostly rejected without a database call. The counters are
+ * per node and only resync from Mongo every {@code seats.inventory.resync-ms}, so
+ * they decide nothing on their own: by default every reservation is then a single
+ * conditional update ({@code availableSeats >= quantity}) on the events
+ * collection, and that update is what prevents overselling. Write-behind
+ * ({@code seats.inventory.write-behind=true}) is an opt-in for a single node: the
+ * cache becomes the authority and changes reach Mongo in batches, so changes not
+ * yet flushed are lost on a crash. It is always off when orders run in
+ * transactions ({@code orders.transactions.enabled}).
+ */
+@Service
+public class SeatReservationService {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private SeatInventoryCache seatInventoryCache;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Value("${seats.inventory.write-behind:false}")
+    private boolean writeBehind;
+    
+    // Transactional orders write seat changes inside their transaction, which
+    // rules out write-behind
+    @Value("${orders.transactions.enabled:false}")
+    private boolean transactions;
+
+    /**
+     * Take {@code quantity} seats from the event if that many are still available.
+     *
+     * @return true if the seats were reserved, false if the event does not exist
+     *         or does not have enough seats left
+     */
+    public boolean reserve(String eventId, int quantity) {
+        return admit(eventId, quantity) && commit(eventId, quantity);
+    }
+
+    /**
+     * Write seats taken by {@link #admit} through to the stored count. With
+     * write-behind, {@link #admit} already queued them for the next flush.
+     *
+     * @return false if the stored count no longer has that many seats
+     */
+    public boolean commit(String eventId, int quantity) {
+        if (isWriteBehind()) {
+            return true;
+        }
+        return decrementStored(eventId, quantity);
+    }
+
+    /**
+     * Give seats back to the event, e.g. when a later purchase step fails or an
+     * order is canceled.
+     */
+    public void release(String eventId, int quantity) {
+        if (quantity <= 0) {
+            return;
+        }
+
+        readmit(eventId, quantity);
+
+        // With write-behind, readmit already queued the change for the next flush
+        if (!isWriteBehind()) {
+            incrementStored(eventId, quantity);
+        }
+    }
+
+    /**
+     * Take seats from the in-memory counter only, queueing the change for the next
+     * flush when write-behind is on. Callers that write the stored count themselves
+     * (see {@link #decrementStored}) use this to reject sold-out events before
+     * starting any database work.
+     */
+    public boolean admit(String eventId, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+
+        if (!seatInventoryCache.tryAcquire(eventId, quantity, isWriteBehind())) {
+            return false;
+        }
+        evictCachedSeats(eventId);
+        return true;
+    }
+
+    /**
+     * Undo {@link #admit} on the in-memory counter (and the pending change, with
+     * write-behind).
+     */
+    public void readmit(String eventId, int quantity) {
+        seatInventoryCache.restore(eventId, quantity, isWriteBehind());
+        evictCachedSeats(eventId);
+    }
+
+    /**
+     * Single conditional update ({@code availableSeats >= quantity}) of the stored
+     * count. Joins the current transaction, if any.
+     */
+    public boolean decrementStored(String eventId, int quantity) {
+        Query query = new Query(Criteria.where("_id").is(eventId)
+                .and("availableSeats").gte(quantity));
+        Update update = new Update().inc("availableSeats", -quantity);
+
+        UpdateResult result = mongoTemplate.updateFirst(query, update, Event.class);
+        if (result.getModifiedCount() == 1) {
+            return true;
+        }
+
+        // Another node took the seats, resync the cached counter from Mongo
+        seatInventoryCache.evict(eventId);
+        return false;
+    }
+
+    public void incrementStored(String eventId, int quantity) {
+        Query query = new Query(Criteria.where("_id").is(eventId));
+        Update update = new Update().inc("availableSeats", quantity);
+        mongoTemplate.updateFirst(query, update, Event.class);
+    }
+
+    private boolean isWriteBehind() {
+        return writeBehind && !transactions;
+    }
+
+    private void evictCachedSeats(String eventId) {
+        cacheManager.getCache(CacheConfig.EVENT_SEATS).evict(eventId);
+    }
+}
@@ -1,12 +1,19 @@
 package com.events.service;
 
+import com.events.model.CursorPage;
 import com.events.model.Ticket;
 import com.events.model.TicketType;  // Add this import
 import com.events.repository.TicketRepository;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 import java.util.UUID;
 import java.util.ArrayList;
 
@@ -16,16 +23,56 @@ public class TicketService {
     @Autowired
     private TicketRepository ticketRepository;
     
-    public List<Ticket> getAllTickets() {
-        return ticketRepository.findAll();
+    /**
+     * The first {@link CursorPage#UNPAGED_LIMIT} tickets, for callers that
+     * do not paginate.
+     */
+    public CursorPage<Ticket> getAllTickets() {
+        return ticketsPage(null, CursorPage.UNPAGED_LIMIT);
+    }
+    
+    public CursorPage<Ticket> getTicketsPage(String after, Integer limit) {
+        return ticketsPage(after, CursorPage.limit(limit));
+    }
+    
+    private CursorPage<Ticket> ticketsPage(String after, int limit) {
+        Pageable page = PageRequest.of(0, limit, Sort.by("id"));
+        Slice<Ticket> slice = after == null || after.isEmpty()
+                ? ticketRepository.findAllBy(page)
+                : ticketRepository.findByIdGreaterThan(after, page);
+        return CursorPage.of(slice, Ticket::getId);
+    }
+    
+    public Stream<Ticket> streamAllTickets() {
+        return ticketRepository.streamAllBy();
+    }
+    
+    public CursorPage<Ticket> getTicketsByEventIdPage(String eventId, String after, Integer limit) {
+        return ticketsByEventIdPage(eventId, after, CursorPage.limit(limit));
+    }
+    
+    private CursorPage<Ticket> ticketsByEventIdPage(String eventId, String after, int limit) {
+        Pageable page = PageRequest.of(0, limit, Sort.by("id"));
+        Slice<Ticket> slice = after == null || after.isEmpty()
+                ? ticketRepository.findByEventId(eventId, page)
+                : ticketRepository.findByEventIdAndIdGreaterThan(eventId, after, page);
+        return CursorPage.of(slice, Ticket::getId);
+    }
+    
+    public Stream<Ticket> streamTicketsByEventId(String eventId) {
+        return ticketRepository.streamByEventId(eventId);
     }
     
     public Optional<Ticket> getTicketById(String id) {
         return ticketRepository.findById(id);
     }
     
-    public List<Ticket> getTicketsByEventId(String eventId) {
-        return ticketRepository.findByEventId(eventId);
+    /**
+     * The first {@link CursorPage#UNPAGED_LIMIT} tickets of the event, for callers
+     * that do not paginate.
+     */
+    public CursorPage<Ticket> getTicketsByEventId(String eventId) {
+        return ticketsByEventIdPage(eventId, null, CursorPage.UNPAGED_LIMIT);
     }
     
     public List<Ticket> getTicketsByOrderId(String orderId) {
@@ -50,12 +97,25 @@ public class TicketService {
                 });
     }
     
+    /**
+     * Issue all tickets of an order with a single bulk insert. Ticket ids are
+     * generated here so callers can reference them before anything is written.
+     */
     public List<Ticket> createTickets(String eventId, String orderId, String userId, 
                                      TicketType type, int quantity, double unitPrice) {
-        List<Ticket> tickets = new ArrayList<>();
+        return ticketRepository.insert(newTickets(eventId, orderId, userId, type, quantity, unitPrice));
+    }
+    
+    /**
+     * Build the tickets of an order, ids included, without writing them.
+     */
+    public List<Ticket> newTickets(String eventId, String orderId, String userId, 
+                                   TicketType type, int quantity, double unitPrice) {
+        List<Ticket> tickets = new ArrayList<>(quantity);
         
         for (int i = 0; i < quantity; i++) {
             Ticket ticket = new Ticket();
+            ticket.setId(new ObjectId().toHexString());
             ticket.setEventId(eventId);
             ticket.setOrderId(orderId);
             ticket.setUserId(userId);
@@ -63,9 +123,13 @@ public class TicketService {
             ticket.setPrice(unitPrice);
             ticket.setTicketNumber(UUID.randomUUID().toString().substring(0, 8).toUpperCase());
             
-            tickets.add(ticketRepository.save(ticket));
+            tickets.add(ticket);
         }
         
         return tickets;
     }
+    
+    public void deleteTickets(List<Ticket> tickets) {
+        ticketRepository.deleteAll(tickets);
+    }
 }
\ No newline at end of file
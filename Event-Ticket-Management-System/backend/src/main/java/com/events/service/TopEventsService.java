@@ -0,0 +1,293 @@
+package com.events.service;
+
+import com.events.model.Event;
+import com.events.model.Order;
+import com.events.model.SalesBucket;
+import com.events.model.SalesRollup;
+import com.events.repository.EventRepository;
+import com.events.repository.SalesBucketRepository;
+import com.events.repository.SalesRollupRepository;
+import com.events.util.TopK;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Leaderboards of the best-selling events by tickets or revenue over the last
+ * 24 hours, the last 7 days and all time.
+ *
+ * Each window keeps the net totals of the events that sold in it and a bounded
+ * heap of the top {@code leaderboard.size} events per measure. Orders and
+ * cancellations update both in place, so reading a leaderboard costs O(K). The
+ * windows are rebuilt every {@code leaderboard.refresh-interval-ms} by streaming
+ * per-event totals from the hour buckets of {@link SalesTimeSeriesService} and the
+ * event rollups of {@link SalesRollupService} through the heaps, which also lets
+ * old sales fall out of the 24h and 7d windows. Orders themselves are never read.
+ */
+@Service
+public class TopEventsService {
+    private static final Logger logger = LoggerFactory.getLogger(TopEventsService.class);
+
+    public static final String BY_TICKETS = "tickets";
+    public static final String BY_REVENUE = "revenue";
+
+    public enum Window {
+        LAST_24H("24h", Duration.ofHours(24)),
+        LAST_7D("7d", Duration.ofDays(7)),
+        ALL_TIME("all", null);
+
+        private final String param;
+        private final Duration length;
+
+        Window(String param, Duration length) {
+            this.param = param;
+            this.length = length;
+        }
+
+        public String getParam() {
+            return param;
+        }
+
+        /**
+         * @throws IllegalStateException if the value is not 24h, 7d or all
+         */
+        public static Window fromParam(String param) {
+            for (Window window : values()) {
+                if (window.param.equalsIgnoreCase(param)) {
+                    return window;
+                }
+            }
+            throw new IllegalStateException("Unknown window: " + param + ", expected 24h, 7d or all");
+        }
+    }
+
+    @Autowired
+    private SalesBucketRepository salesBucketRepository;
+
+    @Autowired
+    private SalesRollupRepository salesRollupRepository;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private SalesTimeSeriesService salesTimeSeriesService;
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    private final int size;
+
+    private final Map<Window, Board> boards = new ConcurrentHashMap<>();
+
+    public TopEventsService(@Value("${leaderboard.size:50}") int size) {
+        this.size = size;
+        for (Window window : Window.values()) {
+            boards.put(window, new Board(size));
+        }
+    }
+
+    public void recordOrder(Order order) {
+        apply(order, order.getQuantity(), order.getTotalAmount());
+    }
+
+    /**
+     * Take a canceled order back out of the windows that counted it, i.e. those
+     * that still cover its creation time, matching the buckets a refresh reads.
+     */
+    public void recordCancellation(Order order) {
+        apply(order, -order.getQuantity(), -order.getTotalAmount());
+    }
+
+    /**
+     * Up to {@code limit} events, best first, each with its id, title, tickets
+     * sold and revenue in the window.
+     *
+     * @param by {@link #BY_TICKETS} or {@link #BY_REVENUE}
+     * @throws IllegalStateException if {@code by} is neither
+     */
+    public List<Map<String, Object>> getTopEvents(Window window, String by, int limit) {
+        if (!BY_TICKETS.equals(by) && !BY_REVENUE.equals(by)) {
+            throw new IllegalStateException("Unknown ranking: " + by + ", expected tickets or revenue");
+        }
+
+        List<Ranked> ranked = boards.get(window).top(BY_REVENUE.equals(by), Math.max(1, Math.min(limit, size)));
+
+        List<String> eventIds = new ArrayList<>(ranked.size());
+        for (Ranked entry : ranked) {
+            eventIds.add(entry.eventId);
+        }
+        Map<String, String> titles = new HashMap<>();
+        for (Event event : eventRepository.findAllById(eventIds)) {
+            titles.put(event.getId(), event.getTitle());
+        }
+
+        List<Map<String, Object>> topEvents = new ArrayList<>(ranked.size());
+        for (Ranked entry : ranked) {
+            Map<String, Object> event = new LinkedHashMap<>();
+            event.put("rank", topEvents.size() + 1);
+            event.put("id", entry.eventId);
+            event.put("title", titles.get(entry.eventId));
+            event.put("ticketsSold", entry.tickets);
+            event.put("revenue", entry.revenue);
+            topEvents.add(event);
+        }
+        return topEvents;
+    }
+
+    /**
+     * Rebuild every window from the stored buckets and rollups. Pending rollup and
+     * bucket changes are flushed first so the rebuilt totals include them.
+     */
+    @Scheduled(fixedDelayString = "${leaderboard.refresh-interval-ms:60000}")
+    public void refresh() {
+        try {
+            salesTimeSeriesService.flush();
+            salesRollupService.flush();
+
+            for (Window window : Window.values()) {
+                Board fresh = new Board(size);
+                if (window.length == null) {
+                    try (Stream<SalesRollup> rollups = salesRollupRepository.streamEventRollups()) {
+                        Iterator<SalesRollup> iterator = rollups.iterator();
+                        while (iterator.hasNext()) {
+                            SalesRollup rollup = iterator.next();
+                            fresh.add(rollup.getScopeId(), rollup.getNetTickets(), rollup.getNetRevenue());
+                        }
+                    }
+                } else {
+                    String prefix = SalesBucket.eventSeries("");
+                    try (Stream<SalesBucket> totals = salesBucketRepository.sumEventSalesSince(
+                            new Date(windowStart(window)))) {
+                        Iterator<SalesBucket> iterator = totals.iterator();
+                        while (iterator.hasNext()) {
+                            SalesBucket total = iterator.next();
+                            fresh.add(total.getId().substring(prefix.length()), total.getTickets(), total.getRevenue());
+                        }
+                    }
+                }
+                boards.put(window, fresh);
+            }
+        } catch (Exception e) {
+            logger.error("Error refreshing top events", e);
+        }
+    }
+
+    private void apply(Order order, long tickets, double revenue) {
+        String eventId = order.getEventId();
+        if (eventId == null) {
+            return;
+        }
+        long createdAt = order.getCreatedAt() != null ? order.getCreatedAt().getTime() : System.currentTimeMillis();
+        for (Map.Entry<Window, Board> entry : boards.entrySet()) {
+            if (createdAt >= windowStart(entry.getKey())) {
+                entry.getValue().add(eventId, tickets, revenue);
+            }
+        }
+    }
+
+    // Start of the first hour bucket in the window, or 0 for all time
+    private static long windowStart(Window window) {
+        if (window.length == null) {
+            return 0;
+        }
+        long hour = TimeUnit.HOURS.toMillis(1);
+        long since = System.currentTimeMillis() - window.length.toMillis();
+        return since - Math.floorMod(since, hour);
+    }
+
+    // Net totals of one window plus the top entries by each measure
+    private static final class Board {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final int capacity;
+        private final Map<String, double[]> totals = new HashMap<>();
+        private TopK byTickets;
+        private TopK byRevenue;
+        // Set when a top event lost sales, so one outside the heap may now rank above it
+        private boolean stale;
+
+        Board(int capacity) {
+            this.capacity = capacity;
+            this.byTickets = new TopK(capacity);
+            this.byRevenue = new TopK(capacity);
+        }
+
+        void add(String eventId, long tickets, double revenue) {
+            lock.lock();
+            try {
+                double[] eventTotals = totals.computeIfAbsent(eventId, key -> new double[2]);
+                eventTotals[0] += tickets;
+                eventTotals[1] += revenue;
+                if ((tickets < 0 || revenue < 0) && totals.size() > capacity
+                        && (byTickets.contains(eventId) || byRevenue.contains(eventId))) {
+                    stale = true;
+                }
+                byTickets.offer(eventId, eventTotals[0]);
+                byRevenue.offer(eventId, eventTotals[1]);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        List<Ranked> top(boolean byRevenue, int limit) {
+            lock.lock();
+            try {
+                if (stale) {
+                    rebuild();
+                }
+                List<Ranked> ranked = new ArrayList<>(limit);
+                for (TopK.Entry entry : (byRevenue ? this.byRevenue : byTickets).toSortedList()) {
+                    if (ranked.size() == limit) {
+                        break;
+                    }
+                    if (entry.getValue() <= 0) {
+                        continue;
+                    }
+                    double[] eventTotals = totals.get(entry.getKey());
+                    ranked.add(new Ranked(entry.getKey(), (long) eventTotals[0], eventTotals[1]));
+                }
+                return ranked;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void rebuild() {
+            byTickets = new TopK(capacity);
+            byRevenue = new TopK(capacity);
+            for (Map.Entry<String, double[]> entry : totals.entrySet()) {
+                byTickets.offer(entry.getKey(), entry.getValue()[0]);
+                byRevenue.offer(entry.getKey(), entry.getValue()[1]);
+            }
+            stale = false;
+        }
+    }
+
+    private static final class Ranked {
+        final String eventId;
+        final long tickets;
+        final double revenue;
+
+        Ranked(String eventId, long tickets, double revenue) {
+            this.eventId = eventId;
+            this.tickets = tickets;
+            this.revenue = revenue;
+        }
+    }
+}
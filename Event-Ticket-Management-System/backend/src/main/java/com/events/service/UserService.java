@@ -1,12 +1,17 @@
 package com.events.service;
 
+import com.events.model.CursorPage;
 import com.events.model.User;
 import com.events.model.UserStatus;
 import com.events.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
-import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Service
 public class UserService {
@@ -14,8 +19,31 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
     
-    public List<User> getAllUsers() {
-        return userRepository.findAll();
+    @Autowired
+    private SalesTimeSeriesService salesTimeSeriesService;
+    
+    /**
+     * The first {@link CursorPage#UNPAGED_LIMIT} users, for callers that
+     * do not paginate.
+     */
+    public CursorPage<User> getAllUsers() {
+        return usersPage(null, CursorPage.UNPAGED_LIMIT);
+    }
+    
+    public CursorPage<User> getUsersPage(String after, Integer limit) {
+        return usersPage(after, CursorPage.limit(limit));
+    }
+    
+    private CursorPage<User> usersPage(String after, int limit) {
+        Pageable page = PageRequest.of(0, limit, Sort.by("id"));
+        Slice<User> slice = after == null || after.isEmpty()
+                ? userRepository.findAllBy(page)
+                : userRepository.findByIdGreaterThan(after, page);
+        return CursorPage.of(slice, User::getId);
+    }
+    
+    public Stream<User> streamAllUsers() {
+        return userRepository.streamAllBy();
     }
     
     public Optional<User> getUserById(String id) {
@@ -28,7 +56,9 @@ public class UserService {
     
     public User createUser(User user) {
         // In a real application, you would encrypt the password here
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        salesTimeSeriesService.recordSignup();
+        return saved;
     }
     
     public Optional<User> updateUser(String id, User user) {
@@ -1,11 +1,19 @@
 package com.events.service;
 
+import com.events.config.CacheConfig;
+import com.events.model.CursorPage;
 import com.events.model.Venue;
 import com.events.repository.VenueRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
-import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Service
 public class VenueService {
@@ -13,10 +21,31 @@ public class VenueService {
     @Autowired
     private VenueRepository venueRepository;
     
-    public List<Venue> getAllVenues() {
-        return venueRepository.findAll();
+    /**
+     * The first {@link CursorPage#UNPAGED_LIMIT} venues, for callers that
+     * do not paginate.
+     */
+    public CursorPage<Venue> getAllVenues() {
+        return venuesPage(null, CursorPage.UNPAGED_LIMIT);
     }
     
+    public CursorPage<Venue> getVenuesPage(String after, Integer limit) {
+        return venuesPage(after, CursorPage.limit(limit));
+    }
+    
+    private CursorPage<Venue> venuesPage(String after, int limit) {
+        Pageable page = PageRequest.of(0, limit, Sort.by("id"));
+        Slice<Venue> slice = after == null || after.isEmpty()
+                ? venueRepository.findAllBy(page)
+                : venueRepository.findByIdGreaterThan(after, page);
+        return CursorPage.of(slice, Venue::getId);
+    }
+    
+    public Stream<Venue> streamAllVenues() {
+        return venueRepository.streamAllBy();
+    }
+    
+    @Cacheable(cacheNames = CacheConfig.VENUES, key = "#id")
     public Optional<Venue> getVenueById(String id) {
         return venueRepository.findById(id);
     }
@@ -25,6 +54,7 @@ public class VenueService {
         return venueRepository.save(venue);
     }
     
+    @CacheEvict(cacheNames = CacheConfig.VENUES, key = "#id")
     public Optional<Venue> updateVenue(String id, Venue venue) {
         return venueRepository.findById(id)
                 .map(existingVenue -> {
@@ -33,6 +63,7 @@ public class VenueService {
                 });
     }
     
+    @CacheEvict(cacheNames = CacheConfig.VENUES, key = "#id")
     public boolean deleteVenue(String id) {
         return venueRepository.findById(id)
                 .map(venue -> {
@@ -0,0 +1,305 @@
+package com.events.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Virtual waiting room for high-demand on-sales.
+ *
+ * An event with an open room only accepts orders that carry an admission token.
+ * Buyers join a FIFO queue and get a sequence number; every admit interval the
+ * room's admission window moves forward by its rate, and a buyer whose number is
+ * inside the window receives a single-use token on their next poll. The number of
+ * purchases that reach the database is therefore bounded by the rate, whatever
+ * the size of the queue. Joining and polling never touch Mongo.
+ *
+ * A buyer who joins again with the same user id keeps their place instead of
+ * taking a second one. Buyers who stop polling for {@code waiting-room.idle-ms}
+ * before they are admitted, and admitted buyers whose token expired, are swept
+ * out of the queue. An abandoned place still uses up one admission when the
+ * window reaches it.
+ *
+ * Rooms live in memory on a single node and are lost on restart, after which the
+ * event sells without admission control until the room is opened again.
+ */
+@Service
+public class WaitingRoomService {
+    private static final Logger logger = LoggerFactory.getLogger(WaitingRoomService.class);
+
+    @Value("${waiting-room.default-rate:50}")
+    private int defaultRate;
+
+    @Value("${waiting-room.token-ttl-ms:600000}")
+    private long tokenTtlMillis;
+
+    @Value("${waiting-room.idle-ms:120000}")
+    private long idleMillis;
+
+    private final Map<String, Room> rooms = new ConcurrentHashMap<>();
+
+    // token -> admission, shared by all rooms; each token admits one order
+    private final Map<String, Admission> admissions = new ConcurrentHashMap<>();
+
+    /**
+     * Open (or re-rate) the waiting room of an event.
+     *
+     * @param rate buyers admitted per admit interval, the default rate when null
+     */
+    public Map<String, Object> open(String eventId, Integer rate) {
+        int admitRate = rate != null && rate > 0 ? rate : defaultRate;
+        Room room = rooms.computeIfAbsent(eventId, id -> new Room(admitRate));
+        room.rate = admitRate;
+        logger.info("Waiting room open for event {} at {} admissions per interval", eventId, admitRate);
+        return describe(eventId, room);
+    }
+
+    public boolean close(String eventId) {
+        Room room = rooms.remove(eventId);
+        if (room == null) {
+            return false;
+        }
+        admissions.values().removeIf(admission -> admission.eventId.equals(eventId));
+        logger.info("Waiting room closed for event {}", eventId);
+        return true;
+    }
+
+    public boolean isOpen(String eventId) {
+        return eventId != null && rooms.containsKey(eventId);
+    }
+
+    /**
+     * Buyers queued in all open rooms, admitted or not, until their entry expires.
+     */
+    public int getWaiterCount() {
+        int waiters = 0;
+        for (Room room : rooms.values()) {
+            waiters += room.waiters.size();
+        }
+        return waiters;
+    }
+
+    public Map<String, Object> getRoom(String eventId) {
+        Room room = rooms.get(eventId);
+        return room != null ? describe(eventId, room) : null;
+    }
+
+    /**
+     * Put a buyer at the back of the queue. When the event has no open room the
+     * buyer is told so and can order directly.
+     *
+     * @param userId the buyer, whose existing place is returned if they already
+     *        queue for the event; anonymous buyers always get a new place when null
+     */
+    public Map<String, Object> join(String eventId, String userId) {
+        Room room = rooms.get(eventId);
+        if (room == null) {
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("eventId", eventId);
+            status.put("waitingRoom", false);
+            status.put("admitted", true);
+            return status;
+        }
+
+        if (userId == null) {
+            String queueId = UUID.randomUUID().toString();
+            room.waiters.put(queueId, new Waiter(room.tail.incrementAndGet(), null));
+            return position(eventId, queueId);
+        }
+
+        // Atomic per user, so concurrent joins of one user end up with one place
+        String queueId = room.queueIdByUser.compute(userId, (user, existing) -> {
+            if (existing != null && room.waiters.containsKey(existing)) {
+                return existing;
+            }
+            String created = UUID.randomUUID().toString();
+            room.waiters.put(created, new Waiter(room.tail.incrementAndGet(), user));
+            return created;
+        });
+        Map<String, Object> status = position(eventId, queueId);
+        // Null only if the place was swept just now, in which case the user queues again
+        return status != null ? status : join(eventId, userId);
+    }
+
+    /**
+     * Current position of a buyer, issuing their admission token once the
+     * admission window has reached them.
+     *
+     * @return null if the room or the queue id is unknown
+     */
+    public Map<String, Object> position(String eventId, String queueId) {
+        Room room = rooms.get(eventId);
+        Waiter waiter = room != null ? room.waiters.get(queueId) : null;
+        if (waiter == null) {
+            return null;
+        }
+
+        waiter.lastSeenAt = System.currentTimeMillis();
+
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("eventId", eventId);
+        status.put("waitingRoom", true);
+        status.put("queueId", queueId);
+
+        long ahead = waiter.sequence - room.admittedThrough;
+        if (ahead > 0) {
+            status.put("admitted", false);
+            status.put("position", ahead);
+            status.put("queueLength", room.tail.get() - room.admittedThrough);
+            return status;
+        }
+
+        Grant grant = waiter.grant.get();
+        if (grant == null) {
+            // Concurrent polls race to issue the token; only the winner's is registered
+            Grant issued = new Grant(UUID.randomUUID().toString(), System.currentTimeMillis() + tokenTtlMillis);
+            if (waiter.grant.compareAndSet(null, issued)) {
+                admissions.put(issued.token, new Admission(eventId, issued.expiresAt));
+                grant = issued;
+            } else {
+                grant = waiter.grant.get();
+            }
+        }
+        status.put("admitted", true);
+        status.put("position", 0);
+        status.put("admissionToken", grant.token);
+        status.put("expiresAt", grant.expiresAt);
+        return status;
+    }
+
+    /**
+     * Take the admission token of an order for an event with an open room.
+     * Events without a room need no token.
+     *
+     * @throws IllegalStateException if the room is open and the token is missing,
+     *         expired or issued for another event
+     */
+    public void consume(String eventId, String token) {
+        if (!isOpen(eventId)) {
+            return;
+        }
+        Admission admission = token != null ? admissions.get(token) : null;
+        if (admission == null || !admission.eventId.equals(eventId)
+                || admission.expiresAt < System.currentTimeMillis()
+                || !admission.used.compareAndSet(false, true)) {
+            throw new IllegalStateException("A valid admission token is required to order tickets for this event");
+        }
+    }
+
+    /**
+     * Give a consumed token back, so a buyer whose purchase failed can retry
+     * without queueing again.
+     */
+    public void restore(String token) {
+        Admission admission = token != null ? admissions.get(token) : null;
+        if (admission != null) {
+            admission.used.set(false);
+        }
+    }
+
+    /**
+     * Move every room's admission window forward by its rate.
+     */
+    @Scheduled(fixedRateString = "${waiting-room.admit-interval-ms:1000}")
+    public void admit() {
+        for (Room room : rooms.values()) {
+            room.admittedThrough = Math.min(room.tail.get(), room.admittedThrough + room.rate);
+        }
+    }
+
+    /**
+     * Forget buyers whose admission expired, used or not, and buyers who stopped
+     * polling before they were admitted.
+     */
+    @Scheduled(fixedDelayString = "${waiting-room.sweep-interval-ms:60000}")
+    public void sweep() {
+        long now = System.currentTimeMillis();
+        admissions.values().removeIf(admission -> admission.expiresAt < now);
+        for (Room room : rooms.values()) {
+            Iterator<Map.Entry<String, Waiter>> iterator = room.waiters.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Waiter> entry = iterator.next();
+                Waiter waiter = entry.getValue();
+                Grant grant = waiter.grant.get();
+                boolean expired = grant != null
+                        ? grant.expiresAt < now
+                        : waiter.lastSeenAt < now - idleMillis;
+                if (expired) {
+                    iterator.remove();
+                    if (waiter.userId != null) {
+                        room.queueIdByUser.remove(waiter.userId, entry.getKey());
+                    }
+                }
+            }
+        }
+    }
+
+    private Map<String, Object> describe(String eventId, Room room) {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("eventId", eventId);
+        status.put("rate", room.rate);
+        status.put("joined", room.tail.get());
+        status.put("admittedThrough", room.admittedThrough);
+        status.put("waiting", room.tail.get() - room.admittedThrough);
+        return status;
+    }
+
+    private static final class Room {
+        volatile int rate;
+        final AtomicLong tail = new AtomicLong();
+        // Only written by the admit task
+        volatile long admittedThrough;
+        final Map<String, Waiter> waiters = new ConcurrentHashMap<>();
+        // Queue id of each user with a place in the queue
+        final Map<String, String> queueIdByUser = new ConcurrentHashMap<>();
+
+        Room(int rate) {
+            this.rate = rate;
+        }
+    }
+
+    private static final class Waiter {
+        final long sequence;
+        final String userId;
+        // Set once, when the admission window reaches the waiter
+        final AtomicReference<Grant> grant = new AtomicReference<>();
+        volatile long lastSeenAt = System.currentTimeMillis();
+
+        Waiter(long sequence, String userId) {
+            this.sequence = sequence;
+            this.userId = userId;
+        }
+    }
+
+    private static final class Grant {
+        final String token;
+        final long expiresAt;
+
+        Grant(String token, long expiresAt) {
+            this.token = token;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final class Admission {
+        final String eventId;
+        final long expiresAt;
+        final AtomicBoolean used = new AtomicBoolean();
+
+        Admission(String eventId, long expiresAt) {
+            this.eventId = eventId;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.events.util;
+
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Spring {@link org.springframework.cache.Cache} with a fixed time-to-live per
+ * entry and an upper bound on its size.
+ *
+ * Entries live in an access-ordered map, so when the cache is full the least
+ * recently used entry is evicted. The size check and the eviction happen inside
+ * the same insert, under the map's lock, so the cache never grows past its bound.
+ * The lock is a ReentrantLock rather than a monitor: with virtual threads enabled,
+ * request threads that contend on a monitor pin their carriers on Java 21.
+ * {@link #get(Object, Callable)} loads a missing key once: concurrent callers for
+ * the same key wait for that load instead of each running the loader. Hit, miss
+ * and eviction counts are kept for sizing.
+ */
+public class BoundedTtlCache extends AbstractValueAdaptingCache {
+
+    private final String name;
+    private final long ttlNanos;
+    private final int maxSize;
+    // Access-ordered, so reads modify it too; every access holds storeLock
+    private final Map<Object, Entry> store;
+    private final ReentrantLock storeLock = new ReentrantLock();
+    // Loads in progress, so each key is loaded by one caller at a time
+    private final Map<Object, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public BoundedTtlCache(String name, long ttlMillis, int maxSize) {
+        super(false);
+        this.name = name;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.maxSize = maxSize;
+        this.store = new LinkedHashMap<Object, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+                if (size() > BoundedTtlCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    // The bare access-ordered map, which is only safe to read while nothing uses the cache
+    @Override
+    public Object getNativeCache() {
+        return store;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        Object value = peek(key);
+        if (value == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        Object cached = lookup(key);
+        if (cached != null) {
+            return (T) fromStoreValue(cached);
+        }
+
+        CompletableFuture<Object> load = new CompletableFuture<>();
+        CompletableFuture<Object> running = loading.putIfAbsent(key, load);
+        if (running != null) {
+            try {
+                return (T) running.join();
+            } catch (CompletionException e) {
+                throw new ValueRetrievalException(key, valueLoader, e.getCause());
+            }
+        }
+
+        try {
+            // A load that finished just before this one claimed the key already stored the value
+            cached = peek(key);
+            if (cached != null) {
+                T value = (T) fromStoreValue(cached);
+                load.complete(value);
+                return value;
+            }
+            T value = valueLoader.call();
+            put(key, value);
+            load.complete(value);
+            return value;
+        } catch (Exception e) {
+            load.completeExceptionally(e);
+            throw new ValueRetrievalException(key, valueLoader, e);
+        } finally {
+            loading.remove(key, load);
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null) {
+            // Null values are not cached, the next read goes to the database again
+            evict(key);
+            return;
+        }
+        Entry entry = new Entry(toStoreValue(value), System.nanoTime() + ttlNanos);
+        storeLock.lock();
+        try {
+            store.put(key, entry);
+        } finally {
+            storeLock.unlock();
+        }
+    }
+
+    @Override
+    public void evict(Object key) {
+        storeLock.lock();
+        try {
+            store.remove(key);
+        } finally {
+            storeLock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        storeLock.lock();
+        try {
+            store.clear();
+        } finally {
+            storeLock.unlock();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long requests = hitCount + missCount;
+
+        int size;
+        storeLock.lock();
+        try {
+            size = store.size();
+        } finally {
+            storeLock.unlock();
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size);
+        stats.put("maxSize", maxSize);
+        stats.put("ttlMillis", ttlNanos / 1_000_000L);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("evictions", evictions.sum());
+        stats.put("hitRate", requests == 0 ? 0.0 : (double) hitCount / requests);
+        return stats;
+    }
+
+    // The stored value, or null if absent or expired; does not count as a hit or miss
+    private Object peek(Object key) {
+        storeLock.lock();
+        try {
+            Entry entry = store.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.isExpired(System.nanoTime())) {
+                store.remove(key);
+                evictions.increment();
+                return null;
+            }
+            return entry.value;
+        } finally {
+            storeLock.unlock();
+        }
+    }
+
+    private static final class Entry {
+        final Object value;
+        final long expiresAt;
+
+        Entry(Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.events.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Mergeable HyperLogLog sketch for approximate distinct counting.
+ *
+ * With the default precision of 12 the sketch uses 4096 one-byte registers (4 KB)
+ * no matter how many values are added, and the estimate has a relative standard
+ * error of about 1.04 / sqrt(4096) = 1.6%, i.e. it is within 3.2% of the true
+ * count about 95% of the time. Small cardinalities use linear counting and are
+ * close to exact. Values cannot be removed.
+ *
+ * {@link #add} is lock-free and safe to call from many threads at once.
+ */
+public class HyperLogLog {
+    
+    public static final int DEFAULT_PRECISION = 12;
+    
+    private static final VarHandle REGISTERS = MethodHandles.arrayElementVarHandle(byte[].class);
+    
+    private final int precision;
+    private final byte[] registers;
+    
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+    
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("Precision must be between 4 and 18");
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+    
+    /**
+     * Restore a sketch from the bytes returned by {@link #toBytes()}.
+     */
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        int precision = Integer.numberOfTrailingZeros(bytes.length);
+        if (bytes.length != 1 << precision) {
+            throw new IllegalArgumentException("Invalid sketch size: " + bytes.length);
+        }
+        HyperLogLog sketch = new HyperLogLog(precision);
+        System.arraycopy(bytes, 0, sketch.registers, 0, bytes.length);
+        return sketch;
+    }
+    
+    public void add(String value) {
+        if (value == null) {
+            return;
+        }
+        
+        long hash = hash(value);
+        int index = (int) (hash >>> (64 - precision));
+        // Guard bit keeps the rank bounded when the remaining bits are all zero
+        long rest = (hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+        
+        while (true) {
+            byte current = (byte) REGISTERS.getVolatile(registers, index);
+            if (current >= rank || REGISTERS.compareAndSet(registers, index, current, rank)) {
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Fold another sketch of the same precision into this one.
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge sketches of different precision");
+        }
+        for (int i = 0; i < registers.length; i++) {
+            byte rank = (byte) REGISTERS.getVolatile(other.registers, i);
+            while (true) {
+                byte current = (byte) REGISTERS.getVolatile(registers, i);
+                if (current >= rank || REGISTERS.compareAndSet(registers, i, current, rank)) {
+                    break;
+                }
+            }
+        }
+    }
+    
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0.0;
+        int zeros = 0;
+        for (int i = 0; i < m; i++) {
+            byte rank = (byte) REGISTERS.getVolatile(registers, i);
+            sum += 1.0 / (1L << rank);
+            if (rank == 0) {
+                zeros++;
+            }
+        }
+        
+        double alpha = 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        
+        // Linear counting is more accurate while many registers are still empty
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        
+        return Math.round(estimate);
+    }
+    
+    public byte[] toBytes() {
+        byte[] copy = new byte[registers.length];
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = (byte) REGISTERS.getVolatile(registers, i);
+        }
+        return copy;
+    }
+    
+    public int getPrecision() {
+        return precision;
+    }
+    
+    // 64-bit FNV-1a followed by the MurmurHash3 finalizer for good bit dispersion
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,41 @@
+package com.events.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lets at most one log message through per interval, for log statements on hot
+ * paths that would otherwise write a line per request.
+ *
+ * <pre>
+ * long suppressed = sampler.sample();
+ * if (suppressed >= 0) {
+ *     logger.info("Creating order for event {} ({} similar suppressed)", eventId, suppressed);
+ * }
+ * </pre>
+ */
+public class LogSampler {
+
+    private final long intervalNanos;
+    private final AtomicLong nextAllowed = new AtomicLong(System.nanoTime());
+    private final LongAdder suppressed = new LongAdder();
+
+    public LogSampler(long interval, TimeUnit unit) {
+        this.intervalNanos = unit.toNanos(interval);
+    }
+
+    /**
+     * @return -1 if this message should be dropped, otherwise the number of
+     *         messages dropped since the last one that was let through
+     */
+    public long sample() {
+        long now = System.nanoTime();
+        long allowed = nextAllowed.get();
+        if (now - allowed < 0 || !nextAllowed.compareAndSet(allowed, now + intervalNanos)) {
+            suppressed.increment();
+            return -1;
+        }
+        return suppressed.sumThenReset();
+    }
+}
@@ -0,0 +1,310 @@
+package com.events.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Minimal in-process metrics: timers, counters and gauges identified by a name
+ * and tags, rendered as JSON or in the Prometheus text format.
+ *
+ * Timers keep {@link LatencyHistogram}s in microseconds, so percentiles cost a few
+ * atomic increments per recording and a fixed amount of memory per timer, which is
+ * cheap enough to leave on in production.
+ *
+ * Percentiles and the max describe the recent past rather than everything since
+ * startup: every timer records into a ring of {@value #WINDOW_BUCKETS} histograms,
+ * and every window / {@value #WINDOW_BUCKETS} the one that has been filling longest
+ * is cleared and starts over. Readers see the one that is then the oldest, which
+ * covers between two thirds of the window and the whole window. Counts and sums stay
+ * cumulative, as Prometheus expects.
+ */
+public class MetricsRegistry {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private static final int WINDOW_BUCKETS = 3;
+
+    private static final long DEFAULT_WINDOW_MILLIS = 60_000;
+
+    private final long rotateNanos;
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, Gauge> gauges = new ConcurrentHashMap<>();
+
+    public MetricsRegistry() {
+        this(DEFAULT_WINDOW_MILLIS);
+    }
+
+    /**
+     * @param windowMillis how far back percentiles and the max of timers reach
+     */
+    public MetricsRegistry(long windowMillis) {
+        this.rotateNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis) / WINDOW_BUCKETS;
+    }
+
+    /**
+     * @param tags alternating tag names and values
+     */
+    public Timer timer(String name, String... tags) {
+        return timers.computeIfAbsent(key(name, tags), key -> new Timer(name, tags, rotateNanos));
+    }
+
+    public Counter counter(String name, String... tags) {
+        return counters.computeIfAbsent(key(name, tags), key -> new Counter(name, tags));
+    }
+
+    public void gauge(String name, Supplier<? extends Number> value, String... tags) {
+        gauges.put(key(name, tags), new Gauge(name, tags, () -> Collections.singletonMap("", value.get())));
+    }
+
+    /**
+     * A family of gauges whose members come and go, e.g. one per hot event.
+     *
+     * @param values tag value of {@code tag} to gauge value, read at every scrape
+     */
+    public void gaugeFamily(String name, String tag, Supplier<Map<String, ? extends Number>> values) {
+        gauges.put(key(name), new Gauge(name, new String[] {tag}, values));
+    }
+
+    public Map<String, Object> getSnapshot() {
+        Map<String, Object> snapshot = new TreeMap<>();
+        for (Map.Entry<String, Timer> entry : timers.entrySet()) {
+            Timer timer = entry.getValue();
+            // count, mean and percentiles over the window, totals since startup
+            Map<String, Object> summary = timer.windowed().getSummary();
+            summary.put("totalCount", timer.count.sum());
+            summary.put("totalMillis", timer.totalNanos.sum() / 1_000_000);
+            snapshot.put(entry.getKey(), summary);
+        }
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            snapshot.put(entry.getKey(), entry.getValue().count());
+        }
+        for (Gauge gauge : gauges.values()) {
+            for (Map.Entry<String, ? extends Number> value : gauge.values.get().entrySet()) {
+                String[] tags = value.getKey().isEmpty() ? gauge.tags : new String[] {gauge.tags[0], value.getKey()};
+                snapshot.put(key(gauge.name, tags), value.getValue());
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * All metrics in the Prometheus text exposition format (version 0.0.4).
+     * Timers are summaries in seconds with the usual quantiles over the recent
+     * window, and cumulative counts and sums.
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder();
+
+        for (Map.Entry<String, List<Timer>> family : byName(timers).entrySet()) {
+            String name = prometheusName(family.getKey()) + "_seconds";
+            StringBuilder max = new StringBuilder("# TYPE ").append(name).append("_max gauge\n");
+            out.append("# TYPE ").append(name).append(" summary\n");
+            for (Timer timer : family.getValue()) {
+                LatencyHistogram histogram = timer.windowed();
+                for (double quantile : QUANTILES) {
+                    line(out, name, timer.tags, "quantile", String.valueOf(quantile),
+                            histogram.getValueAtPercentile(quantile * 100) / 1e6);
+                }
+                line(out, name + "_count", timer.tags, null, null, timer.count.sum());
+                line(out, name + "_sum", timer.tags, null, null, timer.totalNanos.sum() / 1e9);
+                line(max, name + "_max", timer.tags, null, null, histogram.getMax() / 1e6);
+            }
+            out.append(max);
+        }
+
+        for (Map.Entry<String, List<Counter>> family : byName(counters).entrySet()) {
+            String name = prometheusName(family.getKey()) + "_total";
+            out.append("# TYPE ").append(name).append(" counter\n");
+            for (Counter counter : family.getValue()) {
+                line(out, name, counter.tags, null, null, counter.count());
+            }
+        }
+
+        for (Map.Entry<String, List<Gauge>> family : byName(gauges).entrySet()) {
+            String name = prometheusName(family.getKey());
+            out.append("# TYPE ").append(name).append(" gauge\n");
+            for (Gauge gauge : family.getValue()) {
+                for (Map.Entry<String, ? extends Number> value : gauge.values.get().entrySet()) {
+                    if (value.getKey().isEmpty()) {
+                        line(out, name, gauge.tags, null, null, value.getValue().doubleValue());
+                    } else {
+                        line(out, name, new String[0], gauge.tags[0], value.getKey(), value.getValue().doubleValue());
+                    }
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    private static <M extends Metric> Map<String, List<M>> byName(Map<String, M> metrics) {
+        Map<String, List<M>> families = new TreeMap<>();
+        for (M metric : metrics.values()) {
+            families.computeIfAbsent(metric.name, name -> new ArrayList<>()).add(metric);
+        }
+        return families;
+    }
+
+    private static void line(StringBuilder out, String name, String[] tags, String extraTag, String extraValue,
+                             double value) {
+        out.append(name);
+        Map<String, String> labels = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < tags.length; i += 2) {
+            labels.put(tags[i], tags[i + 1]);
+        }
+        if (extraTag != null) {
+            labels.put(extraTag, extraValue);
+        }
+        if (!labels.isEmpty()) {
+            out.append('{');
+            boolean first = true;
+            for (Map.Entry<String, String> label : labels.entrySet()) {
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                out.append(prometheusName(label.getKey())).append("=\"")
+                        .append(label.getValue().replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+            }
+            out.append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    private static String prometheusName(String name) {
+        return name.replaceAll("[^a-zA-Z0-9_]", "_");
+    }
+
+    private static String key(String name, String... tags) {
+        if (tags.length == 0) {
+            return name;
+        }
+        StringBuilder key = new StringBuilder(name).append('{');
+        for (int i = 0; i + 1 < tags.length; i += 2) {
+            if (i > 0) {
+                key.append(',');
+            }
+            key.append(tags[i]).append('=').append(tags[i + 1]);
+        }
+        return key.append('}').toString();
+    }
+
+    private abstract static class Metric {
+        final String name;
+        final String[] tags;
+
+        Metric(String name, String[] tags) {
+            this.name = name;
+            this.tags = tags;
+        }
+    }
+
+    public static final class Timer extends Metric {
+        private final LatencyHistogram[] ring = new LatencyHistogram[WINDOW_BUCKETS];
+        private final AtomicInteger oldest = new AtomicInteger();
+        private final AtomicLong nextRotation;
+        private final long rotateNanos;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+
+        Timer(String name, String[] tags, long rotateNanos) {
+            super(name, tags);
+            for (int i = 0; i < ring.length; i++) {
+                ring[i] = new LatencyHistogram();
+            }
+            this.rotateNanos = rotateNanos;
+            this.nextRotation = new AtomicLong(System.nanoTime() + rotateNanos);
+        }
+
+        public void recordNanos(long nanos) {
+            rotateIfDue();
+            long micros = nanos / 1_000;
+            for (LatencyHistogram histogram : ring) {
+                histogram.record(micros);
+            }
+            count.increment();
+            totalNanos.add(nanos);
+        }
+
+        // The histogram that has been filling longest
+        LatencyHistogram windowed() {
+            rotateIfDue();
+            return ring[oldest.get()];
+        }
+
+        // Only the caller that moves nextRotation forward clears the oldest histogram
+        private void rotateIfDue() {
+            long now = System.nanoTime();
+            long due = nextRotation.get();
+            while (now - due >= 0) {
+                if (nextRotation.compareAndSet(due, due + rotateNanos)) {
+                    int index = oldest.get();
+                    oldest.set((index + 1) % ring.length);
+                    ring[index].reset();
+                }
+                due = nextRotation.get();
+            }
+        }
+
+        /**
+         * Record the time since {@code startNanos}, a value of {@link System#nanoTime()}.
+         */
+        public void recordSince(long startNanos) {
+            recordNanos(System.nanoTime() - startNanos);
+        }
+
+        public <T> T record(Supplier<T> work) {
+            long start = System.nanoTime();
+            try {
+                return work.get();
+            } finally {
+                recordSince(start);
+            }
+        }
+
+        public void record(Runnable work) {
+            long start = System.nanoTime();
+            try {
+                work.run();
+            } finally {
+                recordSince(start);
+            }
+        }
+    }
+
+    public static final class Counter extends Metric {
+        private final LongAdder count = new LongAdder();
+
+        Counter(String name, String[] tags) {
+            super(name, tags);
+        }
+
+        public void increment() {
+            count.increment();
+        }
+
+        public long count() {
+            return count.sum();
+        }
+    }
+
+    private static final class Gauge extends Metric {
+        final Supplier<? extends Map<String, ? extends Number>> values;
+
+        Gauge(String name, String[] tags, Supplier<? extends Map<String, ? extends Number>> values) {
+            super(name, tags);
+            this.values = values;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.events.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Writes documents as newline-delimited JSON straight from a Mongo cursor, so a
+ * listing never holds more than one document in memory at a time.
+ */
+@Component
+public class NdjsonWriter {
+    
+    public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    
+    private static final int FLUSH_EVERY = 100;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    /**
+     * The stream is opened when the response body is written and closed afterwards,
+     * which releases the underlying cursor.
+     */
+    public <T> ResponseEntity<StreamingResponseBody> stream(Supplier<Stream<T>> source) {
+        return stream(source, document -> {});
+    }
+    
+    /**
+     * Same as {@link #stream(Supplier)}, applying {@code beforeWrite} to every
+     * document, e.g. to blank out fields that must not leave the server.
+     */
+    public <T> ResponseEntity<StreamingResponseBody> stream(Supplier<Stream<T>> source, Consumer<T> beforeWrite) {
+        ObjectWriter writer = objectMapper.writer();
+        StreamingResponseBody body = (OutputStream out) -> {
+            try (Stream<T> documents = source.get()) {
+                Iterator<T> iterator = documents.iterator();
+                int written = 0;
+                while (iterator.hasNext()) {
+                    T document = iterator.next();
+                    beforeWrite.accept(document);
+                    out.write(writer.writeValueAsBytes(document));
+                    out.write('\n');
+                    if (++written % FLUSH_EVERY == 0) {
+                        out.flush();
+                    }
+                }
+                out.flush();
+            }
+        };
+        return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(body);
+    }
+}
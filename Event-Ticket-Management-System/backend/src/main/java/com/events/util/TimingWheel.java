@@ -0,0 +1,203 @@
+package com.events.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hierarchical timing wheel for a large number of keyed deadlines.
+ *
+ * Four wheels of 64 slots each cover 64^4 ticks (about 194 days at one-second
+ * ticks). A timer sits in the wheel matching how far away its deadline is and
+ * moves down one wheel each time the coarser wheel's slot comes round, so
+ * scheduling and cancelling are O(1) and each tick only touches the timers that
+ * are due, however many are outstanding. Deadlines are rounded up to the next tick.
+ *
+ * @param <T> payload handed back when a timer expires
+ */
+public class TimingWheel<T> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_SPAN = 1L << (SLOT_BITS * LEVELS);
+
+    private final long tickMillis;
+    private final Timer<T>[][] wheels;
+    private final Map<String, Timer<T>> timers = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private long currentTick;
+
+    // Generic arrays cannot be created directly, the raw array only ever holds Timer<T>
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TimingWheel(long tickMillis, long startMillis) {
+        this.tickMillis = tickMillis;
+        this.wheels = new Timer[LEVELS][SLOTS];
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * Schedule (or reschedule) the timer of {@code key}.
+     */
+    public void schedule(String key, T payload, long deadlineMillis) {
+        lock.lock();
+        try {
+            Timer<T> existing = timers.remove(key);
+            if (existing != null) {
+                unlink(existing);
+            }
+            Timer<T> timer = new Timer<>(key, payload, (deadlineMillis + tickMillis - 1) / tickMillis);
+            timers.put(key, timer);
+            place(timer);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return true if the timer was pending and is now cancelled, false if it had
+     *         already expired or never existed
+     */
+    public boolean cancel(String key) {
+        lock.lock();
+        try {
+            Timer<T> timer = timers.remove(key);
+            if (timer == null) {
+                return false;
+            }
+            unlink(timer);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return timers.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Move the wheel up to {@code nowMillis} and remove every timer that is due.
+     *
+     * @return payloads of the expired timers, in no particular order
+     */
+    public List<T> advance(long nowMillis) {
+        List<T> expired = new ArrayList<>();
+        long targetTick = nowMillis / tickMillis;
+
+        lock.lock();
+        try {
+            while (currentTick < targetTick) {
+                currentTick++;
+                // Coarser wheels turn when every finer wheel has wrapped around
+                for (int level = 1; level < LEVELS; level++) {
+                    if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+                        break;
+                    }
+                    cascade(level, (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK));
+                }
+
+                Timer<T> timer = detachSlot(0, (int) (currentTick & SLOT_MASK));
+                while (timer != null) {
+                    Timer<T> next = timer.next;
+                    timer.next = null;
+                    if (timer.deadlineTick <= currentTick) {
+                        timers.remove(timer.key);
+                        expired.add(timer.payload);
+                    } else {
+                        place(timer);
+                    }
+                    timer = next;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return expired;
+    }
+
+    private void cascade(int level, int slot) {
+        Timer<T> timer = detachSlot(level, slot);
+        while (timer != null) {
+            Timer<T> next = timer.next;
+            timer.next = null;
+            if (timer.deadlineTick <= currentTick) {
+                // Due this very tick, the finest wheel's current slot is processed next
+                link(timer, 0, (int) (currentTick & SLOT_MASK));
+            } else {
+                place(timer);
+            }
+            timer = next;
+        }
+    }
+
+    private void place(Timer<T> timer) {
+        // Timers already due go in the next slot of the finest wheel
+        long delta = Math.max(timer.deadlineTick - currentTick, 1);
+        long tick = delta >= MAX_SPAN ? currentTick + MAX_SPAN - 1 : currentTick + delta;
+
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        link(timer, level, (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK));
+    }
+
+    private void link(Timer<T> timer, int level, int slot) {
+        timer.level = level;
+        timer.slot = slot;
+        timer.prev = null;
+        timer.next = wheels[level][slot];
+        if (timer.next != null) {
+            timer.next.prev = timer;
+        }
+        wheels[level][slot] = timer;
+    }
+
+    private Timer<T> detachSlot(int level, int slot) {
+        Timer<T> head = wheels[level][slot];
+        wheels[level][slot] = null;
+        for (Timer<T> timer = head; timer != null; timer = timer.next) {
+            timer.prev = null;
+        }
+        return head;
+    }
+
+    private void unlink(Timer<T> timer) {
+        if (timer.prev != null) {
+            timer.prev.next = timer.next;
+        } else if (wheels[timer.level][timer.slot] == timer) {
+            wheels[timer.level][timer.slot] = timer.next;
+        }
+        if (timer.next != null) {
+            timer.next.prev = timer.prev;
+        }
+        timer.prev = null;
+        timer.next = null;
+    }
+
+    private static final class Timer<T> {
+        final String key;
+        final T payload;
+        final long deadlineTick;
+        int level;
+        int slot;
+        Timer<T> prev;
+        Timer<T> next;
+
+        Timer(String key, T payload, long deadlineTick) {
+            this.key = key;
+            this.payload = payload;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
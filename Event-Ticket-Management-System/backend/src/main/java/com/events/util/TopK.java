@@ -0,0 +1,95 @@
+package com.events.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * The {@code capacity} keys with the highest values seen so far, kept in a
+ * bounded min-heap so that a stream of any length can be ranked in
+ * O(n log capacity) time and O(capacity) memory.
+ *
+ * A key offered again replaces its earlier value. Not thread-safe.
+ */
+public class TopK {
+
+    private static final Comparator<Entry> ASCENDING = Comparator.comparingDouble(Entry::getValue)
+            .thenComparing(Entry::getKey, Comparator.reverseOrder());
+
+    private final int capacity;
+    private final PriorityQueue<Entry> heap;
+    private final Map<String, Entry> members = new HashMap<>();
+
+    public TopK(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.heap = new PriorityQueue<>(capacity + 1, ASCENDING);
+    }
+
+    /**
+     * @return true if the key is among the top entries afterwards
+     */
+    public boolean offer(String key, double value) {
+        Entry previous = members.remove(key);
+        if (previous != null) {
+            heap.remove(previous);
+        }
+
+        Entry entry = new Entry(key, value);
+        if (heap.size() < capacity) {
+            add(entry);
+            return true;
+        }
+        if (ASCENDING.compare(entry, heap.peek()) <= 0) {
+            return false;
+        }
+        members.remove(heap.poll().key);
+        add(entry);
+        return true;
+    }
+
+    public boolean contains(String key) {
+        return members.containsKey(key);
+    }
+
+    public int size() {
+        return heap.size();
+    }
+
+    /**
+     * Entries from highest to lowest value.
+     */
+    public List<Entry> toSortedList() {
+        List<Entry> entries = new ArrayList<>(heap);
+        entries.sort(ASCENDING.reversed());
+        return entries;
+    }
+
+    private void add(Entry entry) {
+        heap.add(entry);
+        members.put(entry.key, entry);
+    }
+
+    public static final class Entry {
+        private final String key;
+        private final double value;
+
+        Entry(String key, double value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public double getValue() {
+            return value;
+        }
+    }
+}
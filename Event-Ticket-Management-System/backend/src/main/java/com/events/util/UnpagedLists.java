@@ -0,0 +1,39 @@
+package com.events.util;
+
+import com.events.model.CursorPage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Responses of list endpoints called without {@code after} or {@code limit}.
+ * Existing clients still get a plain JSON array, but it is capped at
+ * {@link CursorPage#UNPAGED_LIMIT} items. When there are more, the cursor of the
+ * next page is sent in the {@value #NEXT_CURSOR_HEADER} header, and a deprecation
+ * warning is logged once per endpoint.
+ */
+public final class UnpagedLists {
+    private static final Logger logger = LoggerFactory.getLogger(UnpagedLists.class);
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private static final Set<String> warned = ConcurrentHashMap.newKeySet();
+
+    private UnpagedLists() {}
+
+    public static <T> ResponseEntity<Object> of(String endpoint, CursorPage<T> page) {
+        if (!page.isHasMore()) {
+            return ResponseEntity.ok(page.getItems());
+        }
+        if (warned.add(endpoint)) {
+            logger.warn("GET {} without after/limit is deprecated and returned only the first {} items; "
+                    + "clients should page with after and limit", endpoint, CursorPage.UNPAGED_LIMIT);
+        }
+        return ResponseEntity.ok()
+                .header(NEXT_CURSOR_HEADER, page.getNextCursor())
+                .body(page.getItems());
+    }
+}
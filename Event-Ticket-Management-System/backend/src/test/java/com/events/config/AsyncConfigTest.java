@@ -0,0 +1,94 @@
+package com.events.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The executors are bounded: once every thread is busy and the queue is full,
+ * further work is rejected instead of queued without limit.
+ */
+class AsyncConfigTest {
+
+    private ThreadPoolTaskExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+        MDC.clear();
+    }
+
+    @Test
+    void purchaseExecutorRejectsWorkWhenFull() throws Exception {
+        AsyncConfig config = new AsyncConfig();
+        ReflectionTestUtils.setField(config, "purchasePoolSize", 1);
+        ReflectionTestUtils.setField(config, "purchaseQueueCapacity", 1);
+        executor = config.purchaseExecutor();
+        assertRejectsWhenFull();
+    }
+
+    @Test
+    void dashboardExecutorRejectsWorkWhenFull() throws Exception {
+        AsyncConfig config = new AsyncConfig();
+        ReflectionTestUtils.setField(config, "dashboardPoolSize", 1);
+        ReflectionTestUtils.setField(config, "dashboardQueueCapacity", 1);
+        executor = config.dashboardExecutor();
+        assertRejectsWhenFull();
+    }
+
+    @Test
+    void purchaseExecutorCarriesTheLoggingContext() throws Exception {
+        AsyncConfig config = new AsyncConfig();
+        ReflectionTestUtils.setField(config, "purchasePoolSize", 1);
+        ReflectionTestUtils.setField(config, "purchaseQueueCapacity", 1);
+        executor = config.purchaseExecutor();
+
+        MDC.put("correlationId", "abc");
+        Future<String> seen = executor.submit(() -> MDC.get("correlationId"));
+        assertEquals("abc", seen.get(5, TimeUnit.SECONDS));
+
+        // The pool thread does not keep the context for the next task
+        MDC.clear();
+        Future<String> next = executor.submit(() -> MDC.get("correlationId"));
+        assertNull(next.get(5, TimeUnit.SECONDS));
+    }
+
+    private void assertRejectsWhenFull() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            // One task holds the only thread, a second fills the queue
+            executor.execute(() -> {
+                running.countDown();
+                await(release);
+            });
+            running.await(5, TimeUnit.SECONDS);
+            executor.execute(() -> await(release));
+
+            assertThrows(TaskRejectedException.class, () -> executor.execute(() -> { }));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.events.config;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.connection.ConnectionPoolSettings;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MongoPoolConfigTest {
+
+    @Test
+    void connectionPoolCustomizerAppliesTheConfiguredLimits() {
+        MongoPoolConfig config = new MongoPoolConfig();
+        ReflectionTestUtils.setField(config, "maxSize", 50);
+        ReflectionTestUtils.setField(config, "minSize", 5);
+        ReflectionTestUtils.setField(config, "maxConnecting", 3);
+        ReflectionTestUtils.setField(config, "maxWaitMs", 750L);
+
+        MongoClientSettings.Builder builder = MongoClientSettings.builder();
+        config.connectionPoolCustomizer().customize(builder);
+        ConnectionPoolSettings pool = builder.build().getConnectionPoolSettings();
+
+        assertEquals(50, pool.getMaxSize());
+        assertEquals(5, pool.getMinSize());
+        assertEquals(3, pool.getMaxConnecting());
+        assertEquals(750, pool.getMaxWaitTime(TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,137 @@
+package com.events.service;
+
+import com.events.model.Event;
+import com.events.model.Order;
+import com.events.model.OrderStatus;
+import com.events.model.Ticket;
+import com.events.model.TicketType;
+import com.events.repository.OrderRepository;
+import com.events.util.MetricsRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * A purchase takes the seats first, then writes all tickets with one insert and
+ * the order with one insert, and undoes the earlier steps when a later one fails.
+ */
+@ExtendWith(MockitoExtension.class)
+class OrderServiceTest {
+
+    private static final String EVENT_ID = "event-1";
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private TicketService ticketService;
+
+    @Mock
+    private EventService eventService;
+
+    @Mock
+    private SeatReservationService seatReservationService;
+
+    @Mock
+    private SalesRollupService salesRollupService;
+
+    @Mock
+    private AttendeeCountService attendeeCountService;
+
+    @Mock
+    private SalesTimeSeriesService salesTimeSeriesService;
+
+    @Mock
+    private TopEventsService topEventsService;
+
+    @Mock
+    private WaitingRoomService waitingRoomService;
+
+    @Mock
+    private OrderTransactionService orderTransactionService;
+
+    @Spy
+    private MetricsRegistry metricsRegistry = new MetricsRegistry();
+
+    @InjectMocks
+    private OrderService orderService;
+
+    @Test
+    void createOrderReservesSeatsThenInsertsTicketsThenTheOrderOnce() {
+        List<Ticket> tickets = new TicketService().newTickets(EVENT_ID, "order", "user-1", TicketType.STANDARD, 3, 20.0);
+        when(seatReservationService.admit(EVENT_ID, 3)).thenReturn(true);
+        when(seatReservationService.commit(EVENT_ID, 3)).thenReturn(true);
+        when(ticketService.createTickets(eq(EVENT_ID), anyString(), eq("user-1"), eq(TicketType.STANDARD), eq(3), eq(20.0)))
+                .thenReturn(tickets);
+        when(orderRepository.insert(any(Order.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Order order = orderService.createOrder("user-1", EVENT_ID, TicketType.STANDARD, 3, 20.0, "card");
+
+        InOrder steps = inOrder(seatReservationService, ticketService, orderRepository);
+        steps.verify(seatReservationService).admit(EVENT_ID, 3);
+        steps.verify(seatReservationService).commit(EVENT_ID, 3);
+        ArgumentCaptor<String> orderId = ArgumentCaptor.forClass(String.class);
+        steps.verify(ticketService).createTickets(eq(EVENT_ID), orderId.capture(), eq("user-1"),
+                eq(TicketType.STANDARD), eq(3), eq(20.0));
+        steps.verify(orderRepository).insert(any(Order.class));
+        verify(orderRepository, never()).save(any(Order.class));
+
+        // The order id exists before the tickets are written, and the order carries their ids
+        assertEquals(orderId.getValue(), order.getId());
+        assertEquals(tickets.stream().map(Ticket::getId).collect(Collectors.toList()), order.getTicketIds());
+        assertEquals(OrderStatus.COMPLETED.name(), order.getStatus());
+        assertEquals(60.0, order.getTotalAmount());
+    }
+
+    @Test
+    void failedOrderInsertDeletesTicketsAndReleasesSeats() {
+        List<Ticket> tickets = new TicketService().newTickets(EVENT_ID, "order", "user-1", TicketType.STANDARD, 2, 20.0);
+        when(seatReservationService.admit(EVENT_ID, 2)).thenReturn(true);
+        when(seatReservationService.commit(EVENT_ID, 2)).thenReturn(true);
+        when(ticketService.createTickets(eq(EVENT_ID), anyString(), eq("user-1"), eq(TicketType.STANDARD), eq(2), eq(20.0)))
+                .thenReturn(tickets);
+        when(orderRepository.insert(any(Order.class))).thenThrow(new IllegalStateException("insert failed"));
+
+        assertThrows(IllegalStateException.class,
+                () -> orderService.createOrder("user-1", EVENT_ID, TicketType.STANDARD, 2, 20.0, "card", "token-1"));
+
+        InOrder undo = inOrder(ticketService, seatReservationService);
+        undo.verify(ticketService).deleteTickets(tickets);
+        undo.verify(seatReservationService).release(EVENT_ID, 2);
+        verify(waitingRoomService).restore("token-1");
+        verify(salesRollupService, never()).recordSale(any(Order.class));
+    }
+
+    @Test
+    void soldOutEventWritesNothing() {
+        when(seatReservationService.admit(EVENT_ID, 4)).thenReturn(false);
+        when(eventService.getEventById(EVENT_ID)).thenReturn(Optional.of(new Event()));
+
+        assertThrows(IllegalStateException.class,
+                () -> orderService.createOrder("user-1", EVENT_ID, TicketType.STANDARD, 4, 20.0, "card"));
+
+        verify(ticketService, never()).createTickets(anyString(), anyString(), anyString(),
+                any(TicketType.class), eq(4), eq(20.0));
+        verify(orderRepository, never()).insert(any(Order.class));
+        verify(seatReservationService, never()).commit(EVENT_ID, 4);
+    }
+}
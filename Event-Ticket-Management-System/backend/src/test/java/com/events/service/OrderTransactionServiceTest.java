@@ -0,0 +1,178 @@
+package com.events.service;
+
+import com.events.model.Order;
+import com.events.model.Ticket;
+import com.mongodb.MongoException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Transactions that fail with a TransientTransactionError or a write conflict are
+ * run again from the start, up to the configured number of attempts, and the seats
+ * are only handed back once the purchase has finally failed.
+ */
+@ExtendWith(MockitoExtension.class)
+class OrderTransactionServiceTest {
+
+    private static final String EVENT_ID = "event-1";
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private SeatReservationService seatReservationService;
+
+    @Mock
+    private ObjectProvider<MongoTransactionManager> transactionManager;
+
+    @Mock
+    private MongoTransactionManager mongoTransactionManager;
+
+    @InjectMocks
+    private OrderTransactionService orderTransactionService;
+
+    private final Order order = newOrder();
+    private final List<Ticket> tickets = List.of(new Ticket(), new Ticket());
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(orderTransactionService, "maxAttempts", MAX_ATTEMPTS);
+        ReflectionTestUtils.setField(orderTransactionService, "backoffMillis", 1L);
+        when(transactionManager.getObject()).thenReturn(mongoTransactionManager);
+        when(seatReservationService.admit(EVENT_ID, 2)).thenReturn(true);
+    }
+
+    @Test
+    void retriesTransientTransactionError() {
+        when(mongoTemplate.insert(any(Order.class))).thenThrow(transientError()).thenReturn(order);
+        when(seatReservationService.decrementStored(EVENT_ID, 2)).thenReturn(true);
+
+        assertTrue(orderTransactionService.purchase(order, tickets));
+
+        verify(mongoTemplate, times(2)).insert(anyList(), eq(Ticket.class));
+        verify(mongoTemplate, times(2)).insert(order);
+        verify(seatReservationService).decrementStored(EVENT_ID, 2);
+        verify(seatReservationService, never()).readmit(EVENT_ID, 2);
+        assertStats(1, 2, 1, 1, 0);
+    }
+
+    @Test
+    void retriesWriteConflictOnTheEventDocument() {
+        when(mongoTemplate.insert(any(Order.class))).thenReturn(order);
+        when(seatReservationService.decrementStored(EVENT_ID, 2))
+                .thenThrow(writeConflict(), writeConflict())
+                .thenReturn(true);
+
+        assertTrue(orderTransactionService.purchase(order, tickets));
+
+        verify(mongoTemplate, times(3)).insert(order);
+        verify(seatReservationService, times(3)).decrementStored(EVENT_ID, 2);
+        verify(seatReservationService, never()).readmit(EVENT_ID, 2);
+        assertStats(1, 3, 2, 1, 0);
+    }
+
+    @Test
+    void givesUpAfterMaxAttemptsAndReturnsTheSeats() {
+        MongoException conflict = writeConflict();
+        when(mongoTemplate.insert(any(Order.class))).thenThrow(conflict);
+
+        MongoException thrown = assertThrows(MongoException.class,
+                () -> orderTransactionService.purchase(order, tickets));
+
+        assertSame(conflict, thrown);
+        verify(mongoTemplate, times(MAX_ATTEMPTS)).insert(order);
+        verify(seatReservationService, never()).decrementStored(EVENT_ID, 2);
+        verify(seatReservationService).readmit(EVENT_ID, 2);
+        assertStats(1, MAX_ATTEMPTS, MAX_ATTEMPTS - 1, 0, 1);
+    }
+
+    @Test
+    void doesNotRetryOtherErrors() {
+        when(mongoTemplate.insert(any(Order.class))).thenThrow(new MongoException(11000, "E11000 duplicate key"));
+
+        assertThrows(MongoException.class, () -> orderTransactionService.purchase(order, tickets));
+
+        verify(mongoTemplate).insert(order);
+        verify(seatReservationService).readmit(EVENT_ID, 2);
+        assertStats(1, 1, 0, 0, 0);
+    }
+
+    @Test
+    void unknownCommitResultThatCommittedIsNotRunAgain() {
+        MongoException unknown = new MongoException(50, "commit timed out");
+        unknown.addLabel(MongoException.UNKNOWN_TRANSACTION_COMMIT_RESULT_LABEL);
+        when(mongoTemplate.insert(any(Order.class))).thenThrow(unknown);
+        when(mongoTemplate.exists(any(Query.class), eq(Order.class))).thenReturn(true);
+
+        assertTrue(orderTransactionService.purchase(order, tickets));
+
+        verify(mongoTemplate).insert(order);
+        verify(seatReservationService, never()).readmit(EVENT_ID, 2);
+        assertStats(1, 1, 0, 1, 0);
+    }
+
+    @Test
+    void soldOutIsNotRetried() {
+        when(mongoTemplate.insert(any(Order.class))).thenReturn(order);
+        when(seatReservationService.decrementStored(EVENT_ID, 2)).thenReturn(false);
+
+        assertFalse(orderTransactionService.purchase(order, tickets));
+
+        verify(seatReservationService).decrementStored(EVENT_ID, 2);
+        verify(seatReservationService, never()).readmit(EVENT_ID, 2);
+        assertStats(1, 1, 0, 0, 0);
+    }
+
+    private void assertStats(long transactions, long attempts, long retries, long commits, long exhausted) {
+        Map<String, Object> stats = orderTransactionService.getStats();
+        assertEquals(transactions, stats.get("transactions"));
+        assertEquals(attempts, stats.get("attempts"));
+        assertEquals(retries, stats.get("retries"));
+        assertEquals(commits, stats.get("commits"));
+        assertEquals(exhausted, stats.get("retriesExhausted"));
+    }
+
+    private static MongoException transientError() {
+        MongoException e = new MongoException(251, "NoSuchTransaction");
+        e.addLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL);
+        return e;
+    }
+
+    private static MongoException writeConflict() {
+        return new MongoException(112, "WriteConflict");
+    }
+
+    private static Order newOrder() {
+        Order order = new Order();
+        order.setId("order-1");
+        order.setEventId(EVENT_ID);
+        order.setQuantity(2);
+        return order;
+    }
+}
@@ -0,0 +1,189 @@
+package com.events.service;
+
+import com.events.config.CacheConfig;
+import com.events.model.Event;
+import com.events.repository.EventRepository;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Many buyers race for the seats of one event while its cached counter is evicted
+ * (and, with write-behind, flushed) over and over. The stored count is a stand-in
+ * for the events collection that applies {@code $inc} updates atomically and
+ * honours the {@code availableSeats >= quantity} condition. Each run prints the
+ * purchase attempts per second it sustained.
+ */
+class SeatReservationServiceStressTest {
+
+    private static final String EVENT_ID = "event-1";
+    private static final int SEATS = 500;
+    private static final int BUYERS = 32;
+    private static final int ATTEMPTS_PER_BUYER = 200;
+
+    private final AtomicInteger stored = new AtomicInteger(SEATS);
+    private final AtomicInteger lowest = new AtomicInteger(SEATS);
+
+    private SeatInventoryCache cache;
+    private SeatReservationService reservations;
+
+    @BeforeEach
+    void setUp() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.updateFirst(any(Query.class), any(UpdateDefinition.class), eq(Event.class)))
+                .thenAnswer(invocation -> apply(invocation.getArgument(0), invocation.getArgument(1)));
+        BulkOperations bulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(Event.class))).thenReturn(bulk);
+        when(bulk.updateOne(any(Query.class), any(Update.class))).thenAnswer(invocation -> {
+            apply(invocation.getArgument(0), invocation.getArgument(1));
+            return bulk;
+        });
+
+        EventRepository eventRepository = mock(EventRepository.class);
+        when(eventRepository.findById(EVENT_ID)).thenAnswer(invocation -> {
+            Event event = new Event();
+            event.setId(EVENT_ID);
+            event.setTotalSeats(SEATS);
+            event.setAvailableSeats(stored.get());
+            return Optional.of(event);
+        });
+
+        cache = new SeatInventoryCache();
+        ReflectionTestUtils.setField(cache, "eventRepository", eventRepository);
+        ReflectionTestUtils.setField(cache, "mongoTemplate", mongoTemplate);
+
+        reservations = new SeatReservationService();
+        ReflectionTestUtils.setField(reservations, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(reservations, "seatInventoryCache", cache);
+        ReflectionTestUtils.setField(reservations, "cacheManager", new ConcurrentMapCacheManager(CacheConfig.EVENT_SEATS));
+    }
+
+    @Test
+    void conditionalUpdatesNeverOversell() throws Exception {
+        ReflectionTestUtils.setField(reservations, "writeBehind", false);
+
+        int sold = runBuyers("conditional updates", false);
+
+        assertEquals(SEATS, sold);
+        assertEquals(0, stored.get());
+        assertTrue(lowest.get() >= 0, "oversold by " + -lowest.get());
+    }
+
+    @Test
+    void writeBehindNeverOversells() throws Exception {
+        ReflectionTestUtils.setField(reservations, "writeBehind", true);
+
+        int sold = runBuyers("write-behind", true);
+        cache.flush();
+
+        assertEquals(SEATS, sold);
+        assertEquals(0, stored.get());
+        assertTrue(lowest.get() >= 0, "oversold by " + -lowest.get());
+    }
+
+    // Returns the seats held by successful reservations that were not released again
+    private int runBuyers(String mode, boolean flushing) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(BUYERS + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean buying = new AtomicBoolean(true);
+        try {
+            List<Future<Integer>> buyers = new ArrayList<>();
+            for (int i = 0; i < BUYERS; i++) {
+                buyers.add(pool.submit(() -> {
+                    start.await();
+                    int held = 0;
+                    for (int attempt = 0; attempt < ATTEMPTS_PER_BUYER; attempt++) {
+                        if (reservations.reserve(EVENT_ID, 1)) {
+                            held++;
+                            // Some buyers cancel, which puts the seat back up for sale
+                            if (attempt % 10 == 0) {
+                                reservations.release(EVENT_ID, 1);
+                                held--;
+                            }
+                        }
+                    }
+                    return held;
+                }));
+            }
+
+            Future<?> chaos = pool.submit(() -> {
+                start.await();
+                while (buying.get()) {
+                    cache.evict(EVENT_ID);
+                    if (flushing) {
+                        cache.flush();
+                    }
+                    Thread.onSpinWait();
+                }
+                return null;
+            });
+
+            long startedAt = System.nanoTime();
+            start.countDown();
+            int sold = 0;
+            for (Future<Integer> buyer : buyers) {
+                sold += buyer.get(30, TimeUnit.SECONDS);
+            }
+            long elapsedNanos = System.nanoTime() - startedAt;
+            buying.set(false);
+
+            long attempts = (long) BUYERS * ATTEMPTS_PER_BUYER;
+            double perSecond = attempts * 1e9 / elapsedNanos;
+            System.out.printf("%s: %d purchase attempts by %d buyers in %.1f ms, %.0f purchases/sec%n",
+                    mode, attempts, BUYERS, elapsedNanos / 1e6, perSecond);
+            chaos.get(30, TimeUnit.SECONDS);
+
+            // Whatever is left after the rush must still be for sale. A release that
+            // raced an eviction can leave the counter low, so resync it first
+            cache.evict(EVENT_ID);
+            while (reservations.reserve(EVENT_ID, 1)) {
+                sold++;
+            }
+            return sold;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private UpdateResult apply(Query query, UpdateDefinition update) {
+        int delta = ((Document) update.getUpdateObject().get("$inc")).getInteger("availableSeats");
+        Document condition = (Document) query.getQueryObject().get("availableSeats");
+        int minimum = condition != null ? ((Number) condition.get("$gte")).intValue() : Integer.MIN_VALUE;
+        while (true) {
+            int current = stored.get();
+            if (current < minimum) {
+                return UpdateResult.acknowledged(0, 0L, null);
+            }
+            if (stored.compareAndSet(current, current + delta)) {
+                lowest.accumulateAndGet(current + delta, Math::min);
+                return UpdateResult.acknowledged(1, 1L, null);
+            }
+        }
+    }
+}
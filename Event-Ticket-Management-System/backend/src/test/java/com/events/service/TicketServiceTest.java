@@ -0,0 +1,64 @@
+package com.events.service;
+
+import com.events.model.Ticket;
+import com.events.model.TicketType;
+import com.events.repository.TicketRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TicketServiceTest {
+
+    @Mock
+    private TicketRepository ticketRepository;
+
+    @InjectMocks
+    private TicketService ticketService;
+
+    @Test
+    void createTicketsWritesEveryTicketWithOneInsert() {
+        when(ticketRepository.insert(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<Ticket> tickets = ticketService.createTickets("event-1", "order-1", "user-1", TicketType.VIP, 5, 40.0);
+
+        verify(ticketRepository, times(1)).insert(anyList());
+        verify(ticketRepository, never()).save(any(Ticket.class));
+        assertEquals(5, tickets.size());
+
+        Set<String> ids = new HashSet<>();
+        for (Ticket ticket : tickets) {
+            assertNotNull(ticket.getId());
+            ids.add(ticket.getId());
+            assertEquals("event-1", ticket.getEventId());
+            assertEquals("order-1", ticket.getOrderId());
+            assertEquals("user-1", ticket.getUserId());
+            assertEquals(TicketType.VIP, ticket.getType());
+            assertEquals(40.0, ticket.getPrice());
+        }
+        assertEquals(5, ids.size());
+    }
+
+    @Test
+    void newTicketsDoesNotWrite() {
+        List<Ticket> tickets = ticketService.newTickets("event-1", "order-1", "user-1", TicketType.STANDARD, 3, 10.0);
+
+        assertEquals(3, tickets.size());
+        verify(ticketRepository, never()).insert(anyList());
+    }
+}
@@ -0,0 +1,97 @@
+package com.events.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class BoundedTtlCacheTest {
+
+    @Test
+    void evictsTheLeastRecentlyUsedEntry() {
+        BoundedTtlCache cache = new BoundedTtlCache("test", 60_000, 3);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.put("c", 3);
+
+        // Reading "a" makes "b" the least recently used
+        assertNotNull(cache.get("a"));
+        cache.put("d", 4);
+
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+        assertNotNull(cache.get("d"));
+        assertEquals(3, cache.getStats().get("size"));
+        assertEquals(1L, cache.getStats().get("evictions"));
+    }
+
+    @Test
+    void neverGrowsPastItsBoundUnderConcurrentPuts() throws Exception {
+        BoundedTtlCache cache = new BoundedTtlCache("test", 60_000, 100);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int writer = t;
+                writers.add(pool.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        cache.put(writer + ":" + i, i);
+                    }
+                }));
+            }
+            for (Future<?> future : writers) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(100, cache.getStats().get("size"));
+    }
+
+    @Test
+    void expiredEntriesAreNotReturned() throws Exception {
+        BoundedTtlCache cache = new BoundedTtlCache("test", 1, 10);
+        cache.put("a", 1);
+        Thread.sleep(5);
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    void concurrentLoadsOfOneKeyRunTheLoaderOnce() throws Exception {
+        BoundedTtlCache cache = new BoundedTtlCache("test", 60_000, 10);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<String>> readers = new ArrayList<>();
+            for (int t = 0; t < 16; t++) {
+                readers.add(pool.submit(() -> {
+                    start.await();
+                    return cache.get("key", () -> {
+                        loads.incrementAndGet();
+                        Thread.sleep(50);
+                        return "value";
+                    });
+                }));
+            }
+            start.countDown();
+            for (Future<String> reader : readers) {
+                assertEquals("value", reader.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+    }
+}
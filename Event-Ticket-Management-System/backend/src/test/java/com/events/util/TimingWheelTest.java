@@ -0,0 +1,149 @@
+package com.events.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTest {
+
+    private static final long TICK = 1000;
+    private static final long START = 1_700_000_000_000L;
+
+    @Test
+    void timerExpiresOnItsDeadlineTickAndNotBefore() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, START);
+        wheel.schedule("a", "a", START + 5 * TICK);
+
+        assertTrue(wheel.advance(START + 4 * TICK).isEmpty());
+        assertEquals(List.of("a"), wheel.advance(START + 5 * TICK));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void deadlinesAreRoundedUpToTheNextTick() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, START);
+        wheel.schedule("a", "a", START + 2 * TICK + 1);
+
+        assertTrue(wheel.advance(START + 2 * TICK).isEmpty());
+        assertEquals(List.of("a"), wheel.advance(START + 3 * TICK));
+    }
+
+    @Test
+    void pastDeadlinesExpireOnTheNextTick() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, START);
+        wheel.schedule("a", "a", START - 10 * TICK);
+
+        assertEquals(List.of("a"), wheel.advance(START + TICK));
+    }
+
+    @Test
+    void timersCascadeDownFromEveryLevel() {
+        TimingWheel<Long> wheel = new TimingWheel<>(TICK, START);
+        // One timer on each wheel: under 64 ticks, under 64^2, under 64^3 and beyond
+        long[] offsets = {63, 64, 100, 4095, 4096, 5000, 262_143, 262_144, 300_000};
+        for (long offset : offsets) {
+            wheel.schedule("t" + offset, offset, START + offset * TICK);
+        }
+
+        for (long offset : offsets) {
+            assertFalse(wheel.advance(START + (offset - 1) * TICK).contains(offset), "early: " + offset);
+            assertEquals(List.of(offset), wheel.advance(START + offset * TICK), "due: " + offset);
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void oneLargeAdvanceExpiresEverythingDue() {
+        TimingWheel<Integer> wheel = new TimingWheel<>(TICK, START);
+        Random random = new Random(42);
+        List<Integer> due = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            long offset = 1 + random.nextInt(500_000);
+            wheel.schedule("t" + i, i, START + offset * TICK);
+            if (offset <= 250_000) {
+                due.add(i);
+            }
+        }
+
+        List<Integer> expired = wheel.advance(START + 250_000 * TICK);
+        Collections.sort(expired);
+        assertEquals(due, expired);
+        assertEquals(10_000 - due.size(), wheel.size());
+    }
+
+    @Test
+    void cancelledAndRescheduledTimersDoNotFireAtTheOldDeadline() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, START);
+        wheel.schedule("a", "a", START + 10 * TICK);
+        wheel.schedule("b", "b", START + 10 * TICK);
+        wheel.schedule("c", "c", START + 10 * TICK);
+
+        assertTrue(wheel.cancel("a"));
+        assertFalse(wheel.cancel("a"));
+        wheel.schedule("b", "b", START + 100 * TICK);
+
+        assertEquals(List.of("c"), wheel.advance(START + 10 * TICK));
+        assertEquals(List.of("b"), wheel.advance(START + 100 * TICK));
+        assertFalse(wheel.cancel("c"));
+    }
+
+    @Test
+    void deadlinesBeyondTheWheelSpanStillExpireOnTime() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, START);
+        long span = 1L << 24;
+        wheel.schedule("far", "far", START + (span + 10) * TICK);
+
+        assertTrue(wheel.advance(START + (span + 9) * TICK).isEmpty());
+        assertEquals(List.of("far"), wheel.advance(START + (span + 10) * TICK));
+    }
+
+    // Expiry benchmark: a million holds spread over a ten minute hold period,
+    // a tenth of them confirmed early, then drained one tick at a time
+    @Test
+    void millionHoldsExpireTickByTick() {
+        int holds = 1_000_000;
+        int holdTicks = 600;
+        TimingWheel<Integer> wheel = new TimingWheel<>(TICK, START);
+        Random random = new Random(7);
+
+        long scheduleStart = System.nanoTime();
+        for (int i = 0; i < holds; i++) {
+            wheel.schedule("o" + i, i, START + (1 + random.nextInt(holdTicks)) * TICK);
+        }
+        long scheduleNanos = System.nanoTime() - scheduleStart;
+
+        long cancelStart = System.nanoTime();
+        int cancelled = 0;
+        for (int i = 0; i < holds; i += 10) {
+            if (wheel.cancel("o" + i)) {
+                cancelled++;
+            }
+        }
+        long cancelNanos = System.nanoTime() - cancelStart;
+
+        long expired = 0;
+        long slowestTickNanos = 0;
+        long advanceStart = System.nanoTime();
+        for (int tick = 1; tick <= holdTicks; tick++) {
+            long tickStart = System.nanoTime();
+            expired += wheel.advance(START + tick * TICK).size();
+            slowestTickNanos = Math.max(slowestTickNanos, System.nanoTime() - tickStart);
+        }
+        long advanceNanos = System.nanoTime() - advanceStart;
+
+        System.out.printf("%d holds: schedule %.0f ns/hold, cancel %.0f ns/hold, "
+                        + "expire %.0f ns/hold over %d ticks, slowest tick %.2f ms%n",
+                holds, (double) scheduleNanos / holds, (double) cancelNanos / cancelled,
+                (double) advanceNanos / expired, holdTicks, slowestTickNanos / 1e6);
+        assertEquals(holds / 10, cancelled);
+        assertEquals(holds - cancelled, expired);
+        assertEquals(0, wheel.size());
+    }
+}